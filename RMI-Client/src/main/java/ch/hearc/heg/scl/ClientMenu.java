@@ -1,14 +1,32 @@
 package ch.hearc.heg.scl;
 
+import ch.hearc.heg.scl.cache.CachingWeatherService;
+import ch.hearc.heg.scl.model.AlertRule;
+import ch.hearc.heg.scl.model.ImportReport;
+import ch.hearc.heg.scl.model.QuantileEstimate;
 import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.model.WeatherSummary;
 import ch.hearc.heg.scl.rmi.WeatherService;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 
 /**
  * Client RMI avec menu interactif pour interroger le service météo.
@@ -20,6 +38,8 @@ public class ClientMenu {
     private static final String SERVICE_NAME = "WeatherService";
 
     private WeatherService weatherService;
+    private ConsoleWeatherListener listener;
+    private ConsoleAlertListener alertListener;
     private final Scanner scanner;
 
     public ClientMenu() {
@@ -34,7 +54,10 @@ public class ClientMenu {
         System.out.println("Connexion au serveur " + SERVER_HOST + ":" + SERVER_PORT + "...");
 
         Registry registry = LocateRegistry.getRegistry(SERVER_HOST, SERVER_PORT);
-        weatherService = (WeatherService) registry.lookup(SERVICE_NAME);
+        WeatherService remoteService = (WeatherService) registry.lookup(SERVICE_NAME);
+
+        // Les lectures répétées sont servies depuis le cache local
+        weatherService = new CachingWeatherService(remoteService);
 
         System.out.println("✓ Connecté au service météo\n");
     }
@@ -53,7 +76,13 @@ public class ClientMenu {
             System.out.println("2. Lister toutes les stations");
             System.out.println("3. Afficher les détails d'une station");
             System.out.println("4. Rafraîchir toutes les stations");
-            System.out.println("5. Quitter");
+            System.out.println("5. S'abonner aux nouvelles mesures");
+            System.out.println("6. Statistiques du serveur");
+            System.out.println("7. Importer des stations (fichier JSON ou CSV)");
+            System.out.println("8. Alertes (règles et notifications)");
+            System.out.println("9. Résumés horaires ou journaliers d'une station");
+            System.out.println("10. Quantiles d'une grandeur (médiane, 95e centile...)");
+            System.out.println("11. Quitter");
             System.out.print("\nVotre choix : ");
 
             try {
@@ -64,11 +93,17 @@ public class ClientMenu {
                     case 2 -> listAllStations();
                     case 3 -> showStationDetails();
                     case 4 -> refreshAllStations();
-                    case 5 -> {
+                    case 5 -> subscribeToStations();
+                    case 6 -> showServerStats();
+                    case 7 -> importStations();
+                    case 8 -> manageAlerts();
+                    case 9 -> showSummaries();
+                    case 10 -> showQuantiles();
+                    case 11 -> {
                         System.out.println("\nAu revoir !");
                         running = false;
                     }
-                    default -> System.out.println("\nChoix invalide. Veuillez choisir entre 1 et 5.");
+                    default -> System.out.println("\nChoix invalide. Veuillez choisir entre 1 et 11.");
                 }
             } catch (NumberFormatException e) {
                 System.out.println("\nVeuillez entrer un nombre valide.");
@@ -77,6 +112,7 @@ public class ClientMenu {
             }
         }
 
+        unsubscribe();
         scanner.close();
     }
 
@@ -197,6 +233,263 @@ public class ClientMenu {
         }
     }
 
+    /**
+     * Option 5 : S'abonner aux nouvelles mesures d'une ou plusieurs stations.
+     * Les mesures sont ensuite affichées dès que le serveur les enregistre.
+     */
+    private void subscribeToStations() throws RemoteException {
+        System.out.println("\n--- Abonnement aux nouvelles mesures ---");
+        System.out.print("ID des stations séparés par des virgules (vide = toutes) : ");
+        String input = scanner.nextLine().trim();
+
+        Set<Integer> stationIds = new HashSet<>();
+        try {
+            if (!input.isEmpty()) {
+                for (String part : input.split(",")) {
+                    stationIds.add(Integer.parseInt(part.trim()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("\nVeuillez entrer des ID valides (nombres entiers).");
+            return;
+        }
+
+        if (listener == null) {
+            listener = new ConsoleWeatherListener();
+        }
+        weatherService.subscribe(listener, stationIds);
+
+        System.out.println("\nAbonnement enregistré pour "
+                + (stationIds.isEmpty() ? "toutes les stations" : stationIds.size() + " station(s)") + ".");
+    }
+
+    /**
+     * Option 6 : Afficher les compteurs de fonctionnement du serveur.
+     */
+    private void showServerStats() throws RemoteException {
+        System.out.println("\n--- Statistiques du serveur ---");
+        Map<String, Long> stats = weatherService.getServerStats();
+
+        for (Map.Entry<String, Long> entry : stats.entrySet()) {
+            System.out.printf("%-40s : %d%n", entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Option 7 : Importer une liste de villes OpenWeatherMap (city.list.json ou CSV).
+     */
+    private void importStations() throws RemoteException {
+        System.out.println("\n--- Import de stations ---");
+        System.out.print("Chemin du fichier (JSON ou CSV) : ");
+        Path file = Path.of(scanner.nextLine().trim());
+
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            System.out.println("\nImpossible de lire le fichier : " + e.getMessage());
+            return;
+        }
+
+        System.out.println("\n⏳ Import en cours (" + content.length + " octets)...");
+        ImportReport report = weatherService.importStations(file.getFileName().toString(), content);
+
+        System.out.println("\n✓ Import terminé");
+        System.out.println("Lignes lues        : " + report.getParsedRows());
+        System.out.println("Stations créées    : " + report.getInsertedRows());
+        System.out.println("Déjà en base       : " + report.getExistingRows());
+        System.out.println("Doublons ignorés   : " + report.getDuplicateRows());
+        System.out.println("Lignes invalides   : " + report.getInvalidRows());
+        System.out.printf("Débit              : %.0f lignes/s (lecture %d ms, écriture %d ms)%n",
+                report.getRowsPerSecond(), report.getParseMillis(), report.getInsertMillis());
+    }
+
+    /**
+     * Option 8 : Lister, créer ou retirer des règles d'alerte ; les alertes sont ensuite
+     * affichées dès que le serveur les émet.
+     */
+    private void manageAlerts() throws RemoteException {
+        System.out.println("\n--- Alertes ---");
+        List<AlertRule> rules = weatherService.getAlertRules();
+        if (rules.isEmpty()) {
+            System.out.println("Aucune règle enregistrée.");
+        }
+        for (AlertRule rule : rules) {
+            System.out.println("  " + rule);
+        }
+
+        System.out.print("\n(a)jouter une règle, (r)etirer une règle, (Entrée) retour : ");
+        String action = scanner.nextLine().trim().toLowerCase(Locale.ROOT);
+        try {
+            if (action.equals("r")) {
+                System.out.print("ID de la règle : ");
+                boolean removed = weatherService.removeAlertRule(Integer.parseInt(scanner.nextLine().trim()));
+                System.out.println(removed ? "\nRègle retirée." : "\nAucune règle avec cet ID.");
+                return;
+            }
+            if (!action.equals("a")) {
+                return;
+            }
+
+            System.out.print("Nom : ");
+            String name = scanner.nextLine().trim();
+            System.out.print("Grandeur (TEMPERATURE, FEELS_LIKE, HUMIDITY, PRESSURE, WIND_SPEED) : ");
+            AlertRule.Metric metric = AlertRule.Metric.valueOf(scanner.nextLine().trim().toUpperCase(Locale.ROOT));
+            System.out.print("Condition (ABOVE, BELOW, RISE, DROP) : ");
+            AlertRule.Condition condition = AlertRule.Condition.valueOf(
+                    scanner.nextLine().trim().toUpperCase(Locale.ROOT));
+            System.out.print(condition.isWindowed() ? "Variation minimale : " : "Seuil : ");
+            double threshold = Double.parseDouble(scanner.nextLine().trim());
+            Duration window = null;
+            if (condition.isWindowed()) {
+                System.out.print("Fenêtre en minutes : ");
+                window = Duration.ofMinutes(Long.parseLong(scanner.nextLine().trim()));
+            }
+            System.out.print("ID des stations séparés par des virgules (vide = toutes) : ");
+            Set<Integer> stationIds = new HashSet<>();
+            String input = scanner.nextLine().trim();
+            if (!input.isEmpty()) {
+                for (String part : input.split(",")) {
+                    stationIds.add(Integer.parseInt(part.trim()));
+                }
+            }
+
+            AlertRule rule = weatherService.addAlertRule(
+                    new AlertRule(0, name, stationIds, metric, condition, threshold, window));
+            if (alertListener == null) {
+                alertListener = new ConsoleAlertListener();
+                weatherService.subscribeAlerts(alertListener);
+            }
+            System.out.println("\nRègle enregistrée : " + rule);
+
+        } catch (IllegalArgumentException e) {
+            // Inclut NumberFormatException et les valeurs d'énumération inconnues
+            System.out.println("\nSaisie invalide : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Option 9 : Afficher les résumés des dernières heures ou des derniers jours d'une station
+     * (minimum, moyenne et maximum de chaque grandeur).
+     */
+    private void showSummaries() throws RemoteException {
+        System.out.println("\n--- Résumés d'une station ---");
+
+        try {
+            System.out.print("ID de la station : ");
+            int stationId = Integer.parseInt(scanner.nextLine().trim());
+            System.out.print("Par (h)eure ou par (j)our : ");
+            boolean hourly = scanner.nextLine().trim().equalsIgnoreCase("h");
+            int defaultCount = hourly ? 24 : 7;
+            System.out.print("Nombre " + (hourly ? "d'heures" : "de jours") + " (défaut " + defaultCount + ") : ");
+            String input = scanner.nextLine().trim();
+            int count = input.isEmpty() ? defaultCount : Integer.parseInt(input);
+            if (count <= 0) {
+                System.out.println("\nLe nombre doit être positif.");
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime from = hourly
+                    ? now.truncatedTo(ChronoUnit.HOURS).minusHours(count - 1)
+                    : now.truncatedTo(ChronoUnit.DAYS).minusDays(count - 1);
+            List<WeatherSummary> summaries = weatherService.getSummaries(stationId,
+                    hourly ? WeatherSummary.Period.HOUR : WeatherSummary.Period.DAY, from, null);
+
+            if (summaries.isEmpty()) {
+                System.out.println("\nAucune mesure sur la période.");
+                return;
+            }
+            DateTimeFormatter format = DateTimeFormatter.ofPattern(hourly ? "yyyy-MM-dd HH:mm" : "yyyy-MM-dd");
+            System.out.println("\nValeurs : minimum / moyenne / maximum");
+            System.out.printf("%-16s %7s  %-22s %-22s %-25s %-18s%n",
+                    "Début", "Mesures", "Température (°C)", "Humidité (%)", "Pression (hPa)", "Vent (m/s)");
+            for (WeatherSummary summary : summaries) {
+                System.out.printf("%-16s %7d  %-22s %-22s %-25s %-18s%n",
+                        summary.getStart().format(format), summary.getReadingCount(), summary.getTemperature(),
+                        summary.getHumidity(), summary.getPressure(), summary.getWindSpeed());
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("\nVeuillez entrer un nombre valide.");
+        } catch (RemoteException e) {
+            System.err.println("\nErreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Option 10 : Estimer des quantiles d'une grandeur sur des stations et les derniers jours.
+     */
+    private void showQuantiles() throws RemoteException {
+        System.out.println("\n--- Quantiles d'une grandeur ---");
+
+        try {
+            System.out.print("ID des stations séparés par des virgules : ");
+            Set<Integer> stationIds = new HashSet<>();
+            for (String part : scanner.nextLine().trim().split(",")) {
+                stationIds.add(Integer.parseInt(part.trim()));
+            }
+            System.out.print("Grandeur (TEMPERATURE, FEELS_LIKE, HUMIDITY, PRESSURE, WIND_SPEED) : ");
+            AlertRule.Metric metric = AlertRule.Metric.valueOf(scanner.nextLine().trim().toUpperCase(Locale.ROOT));
+            System.out.print("Nombre de jours (défaut 7) : ");
+            String input = scanner.nextLine().trim();
+            int days = input.isEmpty() ? 7 : Integer.parseInt(input);
+            if (days <= 0) {
+                System.out.println("\nLe nombre doit être positif.");
+                return;
+            }
+
+            LocalDate to = LocalDate.now().plusDays(1);
+            double[] quantiles = {0.05, 0.25, 0.5, 0.75, 0.95, 0.99};
+            QuantileEstimate estimate = weatherService.getQuantiles(stationIds, metric, to.minusDays(days), to,
+                    quantiles);
+
+            if (estimate.getReadingCount() == 0) {
+                System.out.println("\nAucune mesure sur la période.");
+                return;
+            }
+            System.out.printf("%n%d mesure(s), minimum %.1f, maximum %.1f%n",
+                    estimate.getReadingCount(), estimate.getMin(), estimate.getMax());
+            double[] values = estimate.getValues();
+            for (int i = 0; i < quantiles.length; i++) {
+                System.out.printf("  %5.1f %% : %.1f%n", quantiles[i] * 100, values[i]);
+            }
+        } catch (IllegalArgumentException e) {
+            // Inclut NumberFormatException et les valeurs d'énumération inconnues
+            System.out.println("\nSaisie invalide : " + e.getMessage());
+        } catch (RemoteException e) {
+            System.err.println("\nErreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Désabonne et désexporte les écouteurs pour permettre l'arrêt du client.
+     */
+    private void unsubscribe() {
+        if (alertListener != null) {
+            try {
+                weatherService.unsubscribeAlerts(alertListener);
+                UnicastRemoteObject.unexportObject(alertListener, true);
+            } catch (RemoteException e) {
+                System.err.println("Impossible de retirer l'écouteur d'alertes : " + e.getMessage());
+            }
+            alertListener = null;
+        }
+        if (listener == null) {
+            return;
+        }
+        try {
+            weatherService.unsubscribe(listener);
+        } catch (RemoteException e) {
+            System.err.println("Impossible de se désabonner : " + e.getMessage());
+        }
+        try {
+            UnicastRemoteObject.unexportObject(listener, true);
+        } catch (RemoteException e) {
+            System.err.println("Erreur lors de l'arrêt de l'écouteur : " + e.getMessage());
+        }
+        listener = null;
+    }
+
     /**
      * Affiche une station avec ses données météo détaillées.
      */
@@ -219,6 +512,9 @@ public class ClientMenu {
             System.out.println("Description      : " + station.getCurrentWeather().getDescription());
             System.out.println("Vent             : " + station.getCurrentWeather().getWindSpeed() + " m/s");
             System.out.println("Horodatage       : " + station.getCurrentWeather().getTimestamp());
+            if (station.getCurrentWeather().getValidUntil() != null) {
+                System.out.println("Inchangée jusqu'à: " + station.getCurrentWeather().getValidUntil());
+            }
         } else {
             System.out.println("\nAucune donnée météo disponible.");
         }
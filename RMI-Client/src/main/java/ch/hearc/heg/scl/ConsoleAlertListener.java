@@ -0,0 +1,31 @@
+package ch.hearc.heg.scl;
+
+import ch.hearc.heg.scl.model.Alert;
+import ch.hearc.heg.scl.rmi.AlertListener;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+
+/**
+ * Écouteur exporté par le client pour recevoir les alertes du serveur.
+ * Affiche chaque alerte dans la console.
+ */
+public class ConsoleAlertListener extends UnicastRemoteObject implements AlertListener {
+
+    public ConsoleAlertListener() throws RemoteException {
+        super();
+    }
+
+    @Override
+    public void onAlert(Alert alert) throws RemoteException {
+        String detail = switch (alert.getCondition()) {
+            case ABOVE -> alert.getValue() + " > " + alert.getReference();
+            case BELOW -> alert.getValue() + " < " + alert.getReference();
+            case RISE -> "hausse de " + alert.getReference() + " à " + alert.getValue();
+            case DROP -> "baisse de " + alert.getReference() + " à " + alert.getValue();
+        };
+        System.out.println("\n🚨 Alerte « " + alert.getRuleName() + " » – " + alert.getStationName()
+                + " (station " + alert.getStationId() + ") : " + alert.getMetric() + " " + detail
+                + " (" + alert.getTimestamp() + ")");
+    }
+}
@@ -0,0 +1,26 @@
+package ch.hearc.heg.scl;
+
+import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.rmi.WeatherListener;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+
+/**
+ * Écouteur exporté par le client pour recevoir les données poussées par le serveur.
+ * Affiche chaque nouvelle mesure dans la console.
+ */
+public class ConsoleWeatherListener extends UnicastRemoteObject implements WeatherListener {
+
+    public ConsoleWeatherListener() throws RemoteException {
+        super();
+    }
+
+    @Override
+    public void onWeatherData(WeatherData weatherData) throws RemoteException {
+        System.out.println("\n🔔 Nouvelle mesure pour la station " + weatherData.getStationId() + " : "
+                + weatherData.getTemperature() + "°C, "
+                + weatherData.getDescription() + ", vent "
+                + weatherData.getWindSpeed() + " m/s (" + weatherData.getTimestamp() + ")");
+    }
+}
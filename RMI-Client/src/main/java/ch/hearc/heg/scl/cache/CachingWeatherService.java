@@ -0,0 +1,298 @@
+package ch.hearc.heg.scl.cache;
+
+import ch.hearc.heg.scl.model.AlertRule;
+import ch.hearc.heg.scl.model.ChangeSet;
+import ch.hearc.heg.scl.model.ImportReport;
+import ch.hearc.heg.scl.model.QuantileEstimate;
+import ch.hearc.heg.scl.model.StationList;
+import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.model.WeatherSummary;
+import ch.hearc.heg.scl.rmi.AlertListener;
+import ch.hearc.heg.scl.rmi.ExportCursor;
+import ch.hearc.heg.scl.rmi.WeatherListener;
+import ch.hearc.heg.scl.rmi.WeatherService;
+
+import java.rmi.RemoteException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Décorateur de WeatherService qui met en cache côté client les réponses du serveur.
+ * Les lectures répétées sont servies localement, sans aller-retour RMI.
+ *
+ * Chaque méthode a sa propre durée de validité (TTL). Le cache est borné en nombre
+ * d'entrées (éviction LRU) et entièrement invalidé après refreshAllStations() et importStations().
+ *
+ * La liste des stations expirée est revalidée auprès du serveur avec sa version : tant qu'elle
+ * n'a pas changé, le serveur ne la renvoie pas.
+ *
+ * Les objets retournés sont partagés entre les appels : ils ne doivent pas être modifiés.
+ */
+public class CachingWeatherService implements WeatherService {
+
+    private static final Duration DEFAULT_COORDINATES_TTL = Duration.ofSeconds(60);
+    private static final Duration DEFAULT_STATIONS_TTL = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_DETAILS_TTL = Duration.ofSeconds(30);
+    private static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final WeatherService delegate;
+    private final long coordinatesTtlNanos;
+    private final long stationsTtlNanos;
+    private final long detailsTtlNanos;
+    private final Map<Object, CacheEntry> entries;
+
+    private volatile StationList lastStationList;  // Dernière liste reçue, pour la revalidation
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructeur avec les durées de validité par défaut.
+     *
+     * @param delegate Le service distant à décorer
+     */
+    public CachingWeatherService(WeatherService delegate) {
+        this(delegate, DEFAULT_COORDINATES_TTL, DEFAULT_STATIONS_TTL, DEFAULT_DETAILS_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructeur complet.
+     *
+     * @param delegate Le service distant à décorer
+     * @param coordinatesTtl Validité des recherches par coordonnées
+     * @param stationsTtl Validité de la liste des stations
+     * @param detailsTtl Validité des détails d'une station
+     * @param maxEntries Nombre maximal d'entrées conservées
+     */
+    public CachingWeatherService(WeatherService delegate, Duration coordinatesTtl, Duration stationsTtl,
+                                 Duration detailsTtl, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("La taille du cache doit être positive");
+        }
+        this.delegate = delegate;
+        this.coordinatesTtlNanos = coordinatesTtl.toNanos();
+        this.stationsTtlNanos = stationsTtl.toNanos();
+        this.detailsTtlNanos = detailsTtl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public WeatherStation getStationByCoordinates(double latitude, double longitude) throws RemoteException {
+        CoordinatesKey key = new CoordinatesKey(latitude, longitude);
+        WeatherStation cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        WeatherStation station = delegate.getStationByCoordinates(latitude, longitude);
+        synchronized (entries) {
+            // La recherche peut avoir créé une station : la liste n'est plus à jour
+            entries.remove(AllStationsKey.INSTANCE);
+            put(key, station, coordinatesTtlNanos);
+            if (station != null && station.getId() != null) {
+                // La réponse contient déjà les données actuelles de la station
+                put(new DetailsKey(station.getId()), station, detailsTtlNanos);
+            }
+        }
+        return station;
+    }
+
+    @Override
+    public List<WeatherStation> getAllStations() throws RemoteException {
+        List<WeatherStation> cached = get(AllStationsKey.INSTANCE);
+        if (cached != null) {
+            return cached;
+        }
+
+        StationList known = lastStationList;
+        StationList response = delegate.getAllStations(known != null ? known.getVersion() : 0);
+        if (!response.isNotModified() || known == null) {
+            known = response;
+            lastStationList = response;
+        }
+        List<WeatherStation> stations = List.copyOf(known.getStations());
+        synchronized (entries) {
+            put(AllStationsKey.INSTANCE, stations, stationsTtlNanos);
+        }
+        return stations;
+    }
+
+    @Override
+    public StationList getAllStations(long knownVersion) throws RemoteException {
+        return delegate.getAllStations(knownVersion);
+    }
+
+    @Override
+    public WeatherStation getStationWithWeatherData(int stationId) throws RemoteException {
+        DetailsKey key = new DetailsKey(stationId);
+        WeatherStation cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        WeatherStation station = delegate.getStationWithWeatherData(stationId);
+        synchronized (entries) {
+            put(key, station, detailsTtlNanos);
+        }
+        return station;
+    }
+
+    @Override
+    public int refreshAllStations() throws RemoteException {
+        try {
+            return delegate.refreshAllStations();
+        } finally {
+            // Toutes les données météo ont potentiellement changé
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void subscribe(WeatherListener listener, Set<Integer> stationIds) throws RemoteException {
+        delegate.subscribe(listener, stationIds);
+    }
+
+    @Override
+    public void unsubscribe(WeatherListener listener) throws RemoteException {
+        delegate.unsubscribe(listener);
+    }
+
+    @Override
+    public ChangeSet getChangesSince(long version) throws RemoteException {
+        return delegate.getChangesSince(version);
+    }
+
+    @Override
+    public ImportReport importStations(String fileName, byte[] content) throws RemoteException {
+        try {
+            return delegate.importStations(fileName, content);
+        } finally {
+            // De nouvelles stations ont pu être créées
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public ExportCursor openExport(Integer stationId, LocalDateTime from, LocalDateTime to) throws RemoteException {
+        return delegate.openExport(stationId, from, to);
+    }
+
+    @Override
+    public List<WeatherSummary> getSummaries(int stationId, WeatherSummary.Period period,
+                                             LocalDateTime from, LocalDateTime to) throws RemoteException {
+        return delegate.getSummaries(stationId, period, from, to);
+    }
+
+    @Override
+    public QuantileEstimate getQuantiles(Set<Integer> stationIds, AlertRule.Metric metric,
+                                         LocalDate from, LocalDate to, double[] quantiles) throws RemoteException {
+        return delegate.getQuantiles(stationIds, metric, from, to, quantiles);
+    }
+
+    @Override
+    public AlertRule addAlertRule(AlertRule rule) throws RemoteException {
+        return delegate.addAlertRule(rule);
+    }
+
+    @Override
+    public boolean removeAlertRule(int ruleId) throws RemoteException {
+        return delegate.removeAlertRule(ruleId);
+    }
+
+    @Override
+    public List<AlertRule> getAlertRules() throws RemoteException {
+        return delegate.getAlertRules();
+    }
+
+    @Override
+    public void subscribeAlerts(AlertListener listener) throws RemoteException {
+        delegate.subscribeAlerts(listener);
+    }
+
+    @Override
+    public void unsubscribeAlerts(AlertListener listener) throws RemoteException {
+        delegate.unsubscribeAlerts(listener);
+    }
+
+    @Override
+    public Map<String, Long> getServerStats() throws RemoteException {
+        return delegate.getServerStats();
+    }
+
+    /**
+     * Vide entièrement le cache.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return Le nombre d'appels servis depuis le cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Le nombre d'appels transmis au serveur
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Retourne la valeur en cache si elle est encore valide, sinon null.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(Object key) {
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresAt() < 0) {
+                    hits.incrementAndGet();
+                    return (T) entry.value();
+                }
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Ajoute une valeur au cache. Doit être appelé en tenant le verrou sur entries.
+     */
+    private void put(Object key, Object value, long ttlNanos) {
+        if (value != null && ttlNanos > 0) {
+            entries.put(key, new CacheEntry(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    // Clés et entrées du cache
+
+    private record CacheEntry(Object value, long expiresAt) {
+    }
+
+    private enum AllStationsKey {
+        INSTANCE
+    }
+
+    private record DetailsKey(int stationId) {
+    }
+
+    private record CoordinatesKey(double latitude, double longitude) {
+    }
+}
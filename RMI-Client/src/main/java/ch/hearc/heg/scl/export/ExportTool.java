@@ -0,0 +1,121 @@
+package ch.hearc.heg.scl.export;
+
+import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.rmi.ExportChunks;
+import ch.hearc.heg.scl.rmi.ExportCursor;
+import ch.hearc.heg.scl.rmi.WeatherService;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Exporte l'historique des mesures dans un fichier CSV via le curseur distant du serveur.
+ *
+ * Les blocs sont lus et écrits un à un : la mémoire utilisée ne dépend que de la taille
+ * d'un bloc, quelle que soit la taille de l'export.
+ *
+ * Utilisation (options facultatives sauf --out) :
+ * <pre>
+ * java ch.hearc.heg.scl.export.ExportTool --host localhost --port 1099 --station 12
+ *      --from 2025-01-01T00:00 --to 2025-02-01T00:00 --out mesures.csv
+ * </pre>
+ * Sans --station, toutes les stations sont exportées ; sans --from ni --to, tout l'historique.
+ */
+public class ExportTool {
+
+    private static final String SERVICE_NAME = "WeatherService";
+    private static final String CSV_HEADER =
+            "id,station_id,timestamp,valid_until,temperature,feels_like,humidity,pressure,wind_speed,icon,description";
+
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = 1099;
+        Integer stationId = null;
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        Path out = null;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--host" -> host = value;
+                case "--port" -> port = Integer.parseInt(value);
+                case "--station" -> stationId = Integer.parseInt(value);
+                case "--from" -> from = LocalDateTime.parse(value);
+                case "--to" -> to = LocalDateTime.parse(value);
+                case "--out" -> out = Path.of(value);
+                default -> throw new IllegalArgumentException("Option inconnue : " + args[i]);
+            }
+        }
+        if (out == null) {
+            throw new IllegalArgumentException("Option --out obligatoire (fichier CSV de sortie)");
+        }
+
+        Registry registry = LocateRegistry.getRegistry(host, port);
+        WeatherService service = (WeatherService) registry.lookup(SERVICE_NAME);
+
+        long start = System.nanoTime();
+        ExportCursor cursor = service.openExport(stationId, from, to);
+        long rows = 0;
+        long bytes = 0;
+        try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+
+            byte[] chunk;
+            while ((chunk = cursor.nextChunk()) != null) {
+                bytes += chunk.length;
+                List<WeatherData> readings = ExportChunks.decode(chunk);
+                for (WeatherData data : readings) {
+                    writeRow(writer, data);
+                }
+                rows += readings.size();
+            }
+        } finally {
+            closeQuietly(cursor);
+        }
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        System.out.printf(Locale.ROOT, "%d mesure(s) exportée(s) dans %s en %.1f s (%.0f mesures/s, %.1f Mo reçus)%n",
+                rows, out, seconds, rows / seconds, bytes / 1e6);
+    }
+
+    private static void writeRow(Writer writer, WeatherData data) throws IOException {
+        writer.write(data.getId() + "," + data.getStationId() + "," + data.getTimestamp() + ","
+                + (data.getValidUntil() != null ? data.getValidUntil() : "") + ","
+                + data.getTemperature() + "," + data.getFeelsLike() + "," + data.getHumidity() + ","
+                + data.getPressure() + "," + data.getWindSpeed() + "," + csv(data.getIcon()) + ","
+                + csv(data.getDescription()));
+        writer.write('\n');
+    }
+
+    /**
+     * Champ CSV entre guillemets si nécessaire.
+     */
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void closeQuietly(ExportCursor cursor) {
+        try {
+            cursor.close();
+        } catch (RemoteException e) {
+            // Le serveur ferme de lui-même un curseur terminé ou abandonné
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package ch.hearc.heg.scl.loadtest;
+
+import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.rmi.socket.CompressingSocket;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.rmi.server.UnicastRemoteObject;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compare les octets transmis et la latence de bout en bout d'une grande liste de stations,
+ * avec et sans compression des sockets RMI, sur une liaison lente simulée.
+ *
+ * Le banc d'essai est autonome (aucun serveur ni base de données) : il exporte dans le même
+ * processus un service renvoyant une liste de stations synthétiques, une fois avec un seuil de
+ * compression infini (trames brutes) et une fois avec le seuil demandé. La liaison est simulée
+ * en limitant le débit d'écriture de chaque socket.
+ *
+ * Utilisation (options facultatives) :
+ * <pre>
+ * java ch.hearc.heg.scl.loadtest.CompressionBenchmark --stations 5000 --bandwidth 2000
+ *      --iterations 10 --threshold 1024
+ * </pre>
+ * --bandwidth est en kbit/s (0 = illimité).
+ */
+public class CompressionBenchmark {
+
+    /**
+     * Service minimal exporté pour le banc d'essai.
+     */
+    public interface StationListSource extends Remote {
+        List<WeatherStation> getAllStations() throws RemoteException;
+    }
+
+    private static class SyntheticSource implements StationListSource {
+        private final List<WeatherStation> stations;
+
+        SyntheticSource(List<WeatherStation> stations) {
+            this.stations = stations;
+        }
+
+        @Override
+        public List<WeatherStation> getAllStations() {
+            return stations;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int stationCount = 5000;
+        long bandwidthKbps = 2000;
+        int iterations = 10;
+        int threshold = 1024;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--stations" -> stationCount = Integer.parseInt(value);
+                case "--bandwidth" -> bandwidthKbps = Long.parseLong(value);
+                case "--iterations" -> iterations = Integer.parseInt(value);
+                case "--threshold" -> threshold = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Option inconnue : " + args[i]);
+            }
+        }
+
+        List<WeatherStation> stations = syntheticStations(stationCount);
+        long bytesPerSecond = bandwidthKbps * 1000 / 8;
+
+        System.out.printf(Locale.ROOT, "%d station(s), liaison %s, %d itération(s)%n%n", stationCount,
+                bandwidthKbps > 0 ? bandwidthKbps + " kbit/s" : "illimitée", iterations);
+        System.out.println("┌──────────────────────┬──────────────────┬──────────────┬──────────────┐");
+        System.out.println("│ Configuration        │ Octets / appel   │  p50 (ms)    │  max (ms)    │");
+        System.out.println("├──────────────────────┼──────────────────┼──────────────┼──────────────┤");
+        run("sans compression", stations, Integer.MAX_VALUE, bytesPerSecond, iterations);
+        run("compression > " + threshold + " o", stations, threshold, bytesPerSecond, iterations);
+        System.out.println("└──────────────────────┴──────────────────┴──────────────┴──────────────┘");
+    }
+
+    private static void run(String label, List<WeatherStation> stations, int threshold,
+                            long bytesPerSecond, int iterations) throws Exception {
+        AtomicLong wireBytes = new AtomicLong();
+        SlowLinkClientSocketFactory csf = new SlowLinkClientSocketFactory(threshold, bytesPerSecond);
+        SlowLinkServerSocketFactory ssf = new SlowLinkServerSocketFactory(threshold, bytesPerSecond, wireBytes);
+
+        SyntheticSource source = new SyntheticSource(stations);
+        StationListSource stub = (StationListSource) UnicastRemoteObject.exportObject(source, 0, csf, ssf);
+        try {
+            // Premier appel : établissement de la connexion et chargement des classes
+            stub.getAllStations();
+
+            LatencyHistogram histogram = new LatencyHistogram();
+            wireBytes.set(0);
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                stub.getAllStations();
+                histogram.recordNanos(System.nanoTime() - start);
+            }
+
+            System.out.printf(Locale.ROOT, "│ %-20s │ %16d │ %12.1f │ %12.1f │%n", label,
+                    wireBytes.get() / iterations,
+                    histogram.getQuantileMicros(0.5) / 1000.0,
+                    histogram.getMaxMicros() / 1000.0);
+        } finally {
+            UnicastRemoteObject.unexportObject(source, true);
+        }
+    }
+
+    private static List<WeatherStation> syntheticStations(int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] countries = {"CH", "FR", "DE", "IT", "AT"};
+        List<WeatherStation> stations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stations.add(new WeatherStation(i + 1, 2_600_000L + i, "Station " + i,
+                    countries[i % countries.length],
+                    45 + random.nextDouble() * 3, 5 + random.nextDouble() * 6,
+                    LocalDateTime.now().minusMinutes(random.nextInt(600))));
+        }
+        return stations;
+    }
+
+    // Sockets compressées sur liaison lente simulée
+
+    /**
+     * Socket compressée dont le flux réseau est limité en débit et compté.
+     */
+    private static class SlowLinkSocket extends CompressingSocket {
+        private final long bytesPerSecond;
+        private final AtomicLong counter;
+
+        SlowLinkSocket(int threshold, long bytesPerSecond, AtomicLong counter) {
+            super(threshold);
+            this.bytesPerSecond = bytesPerSecond;
+            this.counter = counter;
+        }
+
+        SlowLinkSocket(String host, int port, int threshold, long bytesPerSecond) throws IOException {
+            super(host, port, threshold);
+            this.bytesPerSecond = bytesPerSecond;
+            this.counter = null;
+        }
+
+        @Override
+        protected OutputStream rawOutputStream() throws IOException {
+            return new ThrottledOutputStream(super.rawOutputStream(), bytesPerSecond, counter);
+        }
+    }
+
+    /**
+     * Flux de sortie limitant le débit et comptant les octets émis.
+     */
+    private static class ThrottledOutputStream extends FilterOutputStream {
+        private final long bytesPerSecond;
+        private final AtomicLong counter;
+        private long nextFreeNanos = System.nanoTime();
+
+        ThrottledOutputStream(OutputStream out, long bytesPerSecond, AtomicLong counter) {
+            super(out);
+            this.bytesPerSecond = bytesPerSecond;
+            this.counter = counter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (counter != null) {
+                counter.addAndGet(len);
+            }
+            if (bytesPerSecond > 0) {
+                long now = System.nanoTime();
+                nextFreeNanos = Math.max(now, nextFreeNanos) + len * 1_000_000_000L / bytesPerSecond;
+                long wait = nextFreeNanos - now;
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            out.write(b, off, len);
+        }
+    }
+
+    private static class SlowLinkClientSocketFactory implements RMIClientSocketFactory, Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int threshold;
+        private final long bytesPerSecond;
+
+        SlowLinkClientSocketFactory(int threshold, long bytesPerSecond) {
+            this.threshold = threshold;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return new SlowLinkSocket(host, port, threshold, bytesPerSecond);
+        }
+    }
+
+    private static class SlowLinkServerSocketFactory implements RMIServerSocketFactory {
+        private final int threshold;
+        private final long bytesPerSecond;
+        private final AtomicLong counter;
+
+        SlowLinkServerSocketFactory(int threshold, long bytesPerSecond, AtomicLong counter) {
+            this.threshold = threshold;
+            this.bytesPerSecond = bytesPerSecond;
+            this.counter = counter;
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            return new ServerSocket(port) {
+                @Override
+                public Socket accept() throws IOException {
+                    Socket socket = new SlowLinkSocket(threshold, bytesPerSecond, counter);
+                    implAccept(socket);
+                    return socket;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ch.hearc.heg.scl.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme de latences à résolution logarithmique, sans verrou.
+ *
+ * Les valeurs sont enregistrées en microsecondes. En dessous de 128 µs la valeur est exacte ;
+ * au-delà, chaque puissance de deux est découpée en 64 intervalles (erreur relative < 1,6 %).
+ * L'enregistrement est en O(1) et ne fait aucune allocation.
+ */
+public class LatencyHistogram {
+
+    private static final int SIGNIFICANT_BITS = 7;
+    private static final int EXACT_LIMIT = 1 << SIGNIFICANT_BITS;          // 128
+    private static final int SUB_BUCKETS = 1 << (SIGNIFICANT_BITS - 1);    // 64
+    private static final int MAX_SHIFT = 40;                               // ~ 12 jours en µs
+
+    private final AtomicLongArray buckets = new AtomicLongArray(EXACT_LIMIT + MAX_SHIFT * SUB_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Enregistre une latence.
+     *
+     * @param nanos Durée en nanosecondes
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        buckets.incrementAndGet(indexOf(micros));
+        count.incrementAndGet();
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * @return Le nombre de valeurs enregistrées
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return La plus grande valeur enregistrée, en microsecondes
+     */
+    public long getMaxMicros() {
+        return max.get();
+    }
+
+    /**
+     * Retourne la valeur du quantile demandé.
+     *
+     * @param quantile Entre 0 et 1 (ex: 0.99)
+     * @return La latence en microsecondes (milieu de l'intervalle), 0 si vide
+     */
+    public long getQuantileMicros(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(valueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < EXACT_LIMIT) {
+            return (int) micros;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = Math.min(msb - SIGNIFICANT_BITS + 1, MAX_SHIFT);
+        int sub = (int) Math.min(micros >>> shift, EXACT_LIMIT - 1);
+        return EXACT_LIMIT + (shift - 1) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    private static long valueOf(int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+        int k = index - EXACT_LIMIT;
+        int shift = k / SUB_BUCKETS + 1;
+        long sub = k % SUB_BUCKETS + SUB_BUCKETS;
+        // Milieu de l'intervalle [sub << shift, (sub + 1) << shift[
+        return (sub << shift) + (1L << (shift - 1));
+    }
+}
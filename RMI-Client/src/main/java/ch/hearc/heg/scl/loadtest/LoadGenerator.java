@@ -0,0 +1,254 @@
+package ch.hearc.heg.scl.loadtest;
+
+import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.rmi.WeatherService;
+
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Générateur de charge pour le service météo RMI.
+ *
+ * Lance N clients virtuels (un thread virtuel chacun) qui appellent le service selon
+ * un mélange d'opérations configurable, à un débit cible global et pendant une durée donnée.
+ * Affiche à la fin le débit et les latences p50/p99/p999 par opération.
+ *
+ * La latence est mesurée depuis l'instant où l'appel aurait dû partir : un serveur qui
+ * ralentit n'est pas masqué par des clients qui attendent avant d'envoyer (omission coordonnée).
+ *
+ * Utilisation (toutes les options sont facultatives) :
+ * <pre>
+ * java ch.hearc.heg.scl.loadtest.LoadGenerator --host localhost --port 1099 --clients 50
+ *      --rate 500 --duration 30 --mix lookup=50,list=30,details=19,refresh=1
+ * </pre>
+ * Un débit de 0 signifie « aussi vite que possible ». Pour ne pas consommer le quota
+ * OpenWeatherMap, démarrer le serveur avec api.url pointant sur StubOpenWeatherMapServer.
+ */
+public class LoadGenerator {
+
+    private static final String SERVICE_NAME = "WeatherService";
+
+    /**
+     * Opérations du mélange de charge.
+     */
+    enum Operation {
+        LOOKUP, LIST, DETAILS, REFRESH
+    }
+
+    private final WeatherService service;
+    private final int clients;
+    private final double rate;
+    private final long durationNanos;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+
+    private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private volatile List<Integer> stationIds = List.of();
+
+    public LoadGenerator(WeatherService service, int clients, double rate, long durationSeconds,
+                         Map<Operation, Integer> mix) {
+        this.service = service;
+        this.clients = clients;
+        this.rate = rate;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Le mélange d'opérations est vide");
+        }
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new LatencyHistogram());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    /**
+     * Exécute la charge puis affiche le rapport.
+     */
+    public void run() throws Exception {
+        stationIds = loadStationIds();
+        System.out.printf(Locale.ROOT, "Charge : %d client(s), débit cible %s, durée %d s, %d station(s) connue(s)%n",
+                clients, rate > 0 ? rate + " op/s" : "illimité",
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos), stationIds.size());
+
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        // Chaque client envoie à intervalle régulier pour atteindre le débit global
+        long intervalNanos = rate > 0 ? (long) (clients * 1_000_000_000L / rate) : 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                // Décalage initial pour étaler les envois des différents clients
+                long offset = intervalNanos > 0 ? intervalNanos * i / clients : 0;
+                executor.submit(() -> runClient(start + offset, deadline, intervalNanos));
+            }
+        }
+
+        printReport(System.nanoTime() - start);
+    }
+
+    /**
+     * Boucle d'un client virtuel.
+     */
+    private void runClient(long firstSend, long deadline, long intervalNanos) {
+        long intended = firstSend;
+        while (true) {
+            if (intervalNanos == 0) {
+                intended = System.nanoTime();
+            }
+            if (intended - deadline >= 0) {
+                return;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Operation operation = pickOperation();
+            try {
+                execute(operation);
+            } catch (Exception e) {
+                errors.get(operation).incrementAndGet();
+            }
+            histograms.get(operation).recordNanos(System.nanoTime() - intended);
+            intended += intervalNanos;
+        }
+    }
+
+    private void execute(Operation operation) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case LOOKUP -> {
+                // Coordonnées aléatoires en Suisse
+                WeatherStation station = service.getStationByCoordinates(
+                        45.8 + random.nextDouble() * 2.0,
+                        5.9 + random.nextDouble() * 4.6);
+                if (station != null && station.getId() != null && !stationIds.contains(station.getId())) {
+                    List<Integer> ids = new ArrayList<>(stationIds);
+                    ids.add(station.getId());
+                    stationIds = List.copyOf(ids);
+                }
+            }
+            case LIST -> service.getAllStations();
+            case DETAILS -> {
+                List<Integer> ids = stationIds;
+                if (ids.isEmpty()) {
+                    service.getAllStations();
+                } else {
+                    service.getStationWithWeatherData(ids.get(random.nextInt(ids.size())));
+                }
+            }
+            case REFRESH -> service.refreshAllStations();
+        }
+    }
+
+    private Operation pickOperation() {
+        int draw = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            draw -= entry.getValue();
+            if (draw < 0) {
+                return entry.getKey();
+            }
+        }
+        return Operation.LIST;
+    }
+
+    private List<Integer> loadStationIds() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (WeatherStation station : service.getAllStations()) {
+            ids.add(station.getId());
+        }
+        return List.copyOf(ids);
+    }
+
+    private void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long totalCount = 0;
+        long totalErrors = 0;
+
+        System.out.println("\n┌──────────┬──────────┬─────────┬───────────┬──────────┬──────────┬──────────┬──────────┐");
+        System.out.println("│ Opération│  Appels  │ Erreurs │  Débit/s  │ p50 (ms) │ p99 (ms) │ p999(ms) │ max (ms) │");
+        System.out.println("├──────────┼──────────┼─────────┼───────────┼──────────┼──────────┼──────────┼──────────┤");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = histograms.get(operation);
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            long errorCount = errors.get(operation).get();
+            totalCount += count;
+            totalErrors += errorCount;
+            System.out.printf(Locale.ROOT, "│ %-8s │ %8d │ %7d │ %9.1f │ %8.2f │ %8.2f │ %8.2f │ %8.2f │%n",
+                    operation.name().toLowerCase(Locale.ROOT), count, errorCount, count / seconds,
+                    histogram.getQuantileMicros(0.50) / 1000.0,
+                    histogram.getQuantileMicros(0.99) / 1000.0,
+                    histogram.getQuantileMicros(0.999) / 1000.0,
+                    histogram.getMaxMicros() / 1000.0);
+        }
+        System.out.println("└──────────┴──────────┴─────────┴───────────┴──────────┴──────────┴──────────┴──────────┘");
+        System.out.printf(Locale.ROOT, "Total : %d appel(s), %d erreur(s), %.1f op/s sur %.1f s%n",
+                totalCount, totalErrors, totalCount / seconds, seconds);
+    }
+
+    /**
+     * Analyse le mélange d'opérations, ex: "lookup=50,list=30,details=19,refresh=1".
+     */
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] keyValue = part.trim().split("=");
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Mélange invalide : " + part);
+            }
+            Operation operation = Operation.valueOf(keyValue[0].trim().toUpperCase(Locale.ROOT));
+            int weight = Integer.parseInt(keyValue[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Poids négatif : " + part);
+            }
+            mix.put(operation, weight);
+        }
+        return mix;
+    }
+
+    /**
+     * Point d'entrée du générateur de charge.
+     */
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = 1099;
+        int clients = 20;
+        double rate = 0;
+        long duration = 30;
+        String mix = "lookup=50,list=30,details=19,refresh=1";
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--host" -> host = value;
+                case "--port" -> port = Integer.parseInt(value);
+                case "--clients" -> clients = Integer.parseInt(value);
+                case "--rate" -> rate = Double.parseDouble(value);
+                case "--duration" -> duration = Long.parseLong(value);
+                case "--mix" -> mix = value;
+                default -> throw new IllegalArgumentException("Option inconnue : " + args[i]);
+            }
+        }
+
+        Registry registry = LocateRegistry.getRegistry(host, port);
+        WeatherService service = (WeatherService) registry.lookup(SERVICE_NAME);
+
+        new LoadGenerator(service, clients, rate, duration, parseMix(mix)).run();
+    }
+}
@@ -0,0 +1,168 @@
+package ch.hearc.heg.scl.model;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Règle d'alerte évaluée par le serveur à chaque nouvelle mesure.
+ *
+ * - ABOVE / BELOW : la grandeur dépasse le seuil (ex. vent > 20 m/s) ;
+ * - RISE / DROP : la grandeur a monté / baissé d'au moins le seuil par rapport au minimum /
+ *   maximum de la fenêtre (ex. température en baisse de 5 °C en une heure).
+ *
+ * Une alerte est émise quand la condition devient vraie pour une station, puis plus rien
+ * jusqu'à ce qu'elle redevienne fausse (pas de répétition à chaque mesure).
+ *
+ * Les règles sont immuables ; l'ID est attribué par le serveur (0 avant l'enregistrement).
+ */
+public class AlertRule implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Grandeur surveillée.
+     */
+    public enum Metric {
+        TEMPERATURE, FEELS_LIKE, HUMIDITY, PRESSURE, WIND_SPEED;
+
+        /**
+         * @return La valeur de cette grandeur dans la mesure
+         */
+        public double of(WeatherData weatherData) {
+            return switch (this) {
+                case TEMPERATURE -> weatherData.getTemperature();
+                case FEELS_LIKE -> weatherData.getFeelsLike();
+                case HUMIDITY -> weatherData.getHumidity();
+                case PRESSURE -> weatherData.getPressure();
+                case WIND_SPEED -> weatherData.getWindSpeed();
+            };
+        }
+    }
+
+    /**
+     * Condition déclenchant l'alerte.
+     */
+    public enum Condition {
+        ABOVE, BELOW, RISE, DROP;
+
+        /**
+         * @return Vrai si la condition porte sur une variation dans une fenêtre de temps
+         */
+        public boolean isWindowed() {
+            return this == RISE || this == DROP;
+        }
+    }
+
+    private final int id;                  // ID attribué par le serveur (0 = non enregistrée)
+    private final String name;             // Nom affiché dans les alertes
+    private final Set<Integer> stationIds; // Stations surveillées (vide = toutes)
+    private final Metric metric;
+    private final Condition condition;
+    private final double threshold;        // Seuil (ABOVE/BELOW) ou variation minimale (RISE/DROP)
+    private final Duration window;         // Fenêtre des variations (null pour ABOVE/BELOW)
+
+    public AlertRule(int id, String name, Set<Integer> stationIds, Metric metric, Condition condition,
+                     double threshold, Duration window) {
+        if (metric == null || condition == null) {
+            throw new IllegalArgumentException("Grandeur et condition obligatoires");
+        }
+        if (condition.isWindowed() && (window == null || window.isZero() || window.isNegative() || threshold <= 0)) {
+            throw new IllegalArgumentException("Une variation demande une fenêtre et un seuil positifs");
+        }
+        this.id = id;
+        this.name = name;
+        this.stationIds = stationIds == null ? Set.of() : Set.copyOf(stationIds);
+        this.metric = metric;
+        this.condition = condition;
+        this.threshold = threshold;
+        this.window = condition.isWindowed() ? window : null;
+    }
+
+    /**
+     * @return Une règle « grandeur au-dessus du seuil » pour toutes les stations
+     */
+    public static AlertRule above(String name, Metric metric, double threshold) {
+        return new AlertRule(0, name, Set.of(), metric, Condition.ABOVE, threshold, null);
+    }
+
+    /**
+     * @return Une règle « grandeur en dessous du seuil » pour toutes les stations
+     */
+    public static AlertRule below(String name, Metric metric, double threshold) {
+        return new AlertRule(0, name, Set.of(), metric, Condition.BELOW, threshold, null);
+    }
+
+    /**
+     * @return Une règle « hausse d'au moins amount dans la fenêtre » pour toutes les stations
+     */
+    public static AlertRule riseBy(String name, Metric metric, double amount, Duration window) {
+        return new AlertRule(0, name, Set.of(), metric, Condition.RISE, amount, window);
+    }
+
+    /**
+     * @return Une règle « baisse d'au moins amount dans la fenêtre » pour toutes les stations
+     */
+    public static AlertRule dropBy(String name, Metric metric, double amount, Duration window) {
+        return new AlertRule(0, name, Set.of(), metric, Condition.DROP, amount, window);
+    }
+
+    /**
+     * @return Une copie limitée à ces stations (vide = toutes)
+     */
+    public AlertRule forStations(Set<Integer> stationIds) {
+        return new AlertRule(id, name, stationIds, metric, condition, threshold, window);
+    }
+
+    /**
+     * @return Une copie portant cet ID
+     */
+    public AlertRule withId(int id) {
+        return new AlertRule(id, name, stationIds, metric, condition, threshold, window);
+    }
+
+    /**
+     * @return Vrai si la règle s'applique à cette station
+     */
+    public boolean appliesTo(Integer stationId) {
+        return stationIds.isEmpty() || stationIds.contains(stationId);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<Integer> getStationIds() {
+        return stationIds;
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    public Condition getCondition() {
+        return condition;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    @Override
+    public String toString() {
+        return "AlertRule{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", " + metric + " " + condition + " " + threshold +
+                (window != null ? " en " + window.toMinutes() + " min" : "") +
+                ", stations=" + (stationIds.isEmpty() ? "toutes" : stationIds) +
+                '}';
+    }
+}
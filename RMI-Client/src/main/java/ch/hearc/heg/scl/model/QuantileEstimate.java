@@ -0,0 +1,103 @@
+package ch.hearc.heg.scl.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Quantiles approchés d'une grandeur sur un ensemble de stations et une période.
+ * Retourné par getQuantiles(), calculé en fusionnant les résumés journaliers des stations.
+ *
+ * L'erreur sur le rang est de l'ordre de 1 % au milieu de la distribution et bien plus faible
+ * aux extrémités ; le minimum et le maximum sont exacts.
+ */
+public class QuantileEstimate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final AlertRule.Metric metric;
+    private final LocalDate from;        // Premier jour (inclus)
+    private final LocalDate to;          // Dernier jour (exclu)
+    private final int stationCount;      // Stations demandées
+    private final long readingCount;     // Mesures résumées (0 si aucune)
+    private final double min;            // NaN si aucune mesure
+    private final double max;
+    private final double[] quantiles;    // Rangs demandés, entre 0 et 1
+    private final double[] values;       // Valeur estimée de chaque rang
+
+    public QuantileEstimate(AlertRule.Metric metric, LocalDate from, LocalDate to, int stationCount,
+                            long readingCount, double min, double max, double[] quantiles, double[] values) {
+        this.metric = metric;
+        this.from = from;
+        this.to = to;
+        this.stationCount = stationCount;
+        this.readingCount = readingCount;
+        this.min = min;
+        this.max = max;
+        this.quantiles = quantiles.clone();
+        this.values = values.clone();
+    }
+
+    public AlertRule.Metric getMetric() {
+        return metric;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    public long getReadingCount() {
+        return readingCount;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double[] getQuantiles() {
+        return quantiles.clone();
+    }
+
+    public double[] getValues() {
+        return values.clone();
+    }
+
+    /**
+     * @param q Rang demandé (par exemple 0.95)
+     * @return La valeur estimée de ce rang, NaN s'il n'a pas été demandé ou s'il n'y a aucune mesure
+     */
+    public double valueAt(double q) {
+        for (int i = 0; i < quantiles.length; i++) {
+            if (quantiles[i] == q) {
+                return values[i];
+            }
+        }
+        return Double.NaN;
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileEstimate{" +
+                "metric=" + metric +
+                ", from=" + from +
+                ", to=" + to +
+                ", stations=" + stationCount +
+                ", readings=" + readingCount +
+                ", min=" + min +
+                ", max=" + max +
+                ", quantiles=" + Arrays.toString(quantiles) +
+                ", values=" + Arrays.toString(values) +
+                '}';
+    }
+}
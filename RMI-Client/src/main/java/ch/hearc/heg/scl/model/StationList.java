@@ -0,0 +1,60 @@
+package ch.hearc.heg.scl.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Liste des stations accompagnée de la version du catalogue du serveur.
+ * Retournée par getAllStations(knownVersion).
+ *
+ * Si notModified est vrai, la version connue du client est toujours la version courante :
+ * la liste n'est pas transmise et le client réutilise la sienne.
+ */
+public class StationList implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long version;                   // Version du catalogue à transmettre au prochain appel
+    private final boolean notModified;            // Vrai si le client a déjà cette version
+    private final List<WeatherStation> stations;  // Stations (vide si notModified)
+
+    private StationList(long version, boolean notModified, List<WeatherStation> stations) {
+        this.version = version;
+        this.notModified = notModified;
+        this.stations = stations;
+    }
+
+    /**
+     * @return Une réponse « non modifiée » pour cette version
+     */
+    public static StationList notModified(long version) {
+        return new StationList(version, true, List.of());
+    }
+
+    /**
+     * @return Une réponse contenant les stations de cette version
+     */
+    public static StationList of(long version, List<WeatherStation> stations) {
+        return new StationList(version, false, stations);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    public List<WeatherStation> getStations() {
+        return stations;
+    }
+
+    @Override
+    public String toString() {
+        return "StationList{" +
+                "version=" + version +
+                ", notModified=" + notModified +
+                ", stations=" + stations.size() +
+                '}';
+    }
+}
@@ -0,0 +1,130 @@
+package ch.hearc.heg.scl.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Résumé des mesures d'une station sur une heure ou un jour : nombre de mesures, minimum,
+ * maximum et moyenne de chaque grandeur.
+ * Retourné par getSummaries(), lu dans les tables d'agrégats sans parcourir les mesures.
+ *
+ * Une mesure prolongée (inchangée) n'est comptée qu'une fois, dans la période de sa date de mesure.
+ */
+public class WeatherSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Durée couverte par un résumé.
+     */
+    public enum Period {
+        HOUR, DAY
+    }
+
+    /**
+     * Minimum, maximum et moyenne d'une grandeur sur la période.
+     */
+    public static class Statistics implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final double min;
+        private final double max;
+        private final double average;
+
+        public Statistics(double min, double max, double average) {
+            this.min = min;
+            this.max = max;
+            this.average = average;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getAverage() {
+            return average;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f / %.1f / %.1f", min, average, max);
+        }
+    }
+
+    private final int stationId;
+    private final Period period;
+    private final LocalDateTime start;     // Début de l'heure ou du jour
+    private final int readingCount;        // Nombre de mesures de la période
+    private final Statistics temperature;  // °C
+    private final Statistics humidity;     // %
+    private final Statistics pressure;     // hPa
+    private final Statistics windSpeed;    // m/s
+
+    public WeatherSummary(int stationId, Period period, LocalDateTime start, int readingCount,
+                          Statistics temperature, Statistics humidity, Statistics pressure, Statistics windSpeed) {
+        this.stationId = stationId;
+        this.period = period;
+        this.start = start;
+        this.readingCount = readingCount;
+        this.temperature = temperature;
+        this.humidity = humidity;
+        this.pressure = pressure;
+        this.windSpeed = windSpeed;
+    }
+
+    public int getStationId() {
+        return stationId;
+    }
+
+    public Period getPeriod() {
+        return period;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * @return La fin (exclue) de la période
+     */
+    public LocalDateTime getEnd() {
+        return period == Period.HOUR ? start.plusHours(1) : start.plusDays(1);
+    }
+
+    public int getReadingCount() {
+        return readingCount;
+    }
+
+    public Statistics getTemperature() {
+        return temperature;
+    }
+
+    public Statistics getHumidity() {
+        return humidity;
+    }
+
+    public Statistics getPressure() {
+        return pressure;
+    }
+
+    public Statistics getWindSpeed() {
+        return windSpeed;
+    }
+
+    @Override
+    public String toString() {
+        return "WeatherSummary{" +
+                "stationId=" + stationId +
+                ", period=" + period +
+                ", start=" + start +
+                ", readings=" + readingCount +
+                ", temperature=" + temperature +
+                ", humidity=" + humidity +
+                ", pressure=" + pressure +
+                ", windSpeed=" + windSpeed +
+                '}';
+    }
+}
@@ -0,0 +1,22 @@
+package ch.hearc.heg.scl.rmi;
+
+import ch.hearc.heg.scl.model.Alert;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Interface RMI de rappel implémentée et exportée par le client.
+ * Le serveur l'appelle pour pousser les alertes des règles enregistrées.
+ */
+public interface AlertListener extends Remote {
+
+    /**
+     * Appelée par le serveur quand une règle se déclenche pour une station.
+     *
+     * @param alert L'alerte
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    void onAlert(Alert alert)
+            throws RemoteException;
+}
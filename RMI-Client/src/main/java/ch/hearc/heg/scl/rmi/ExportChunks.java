@@ -0,0 +1,127 @@
+package ch.hearc.heg.scl.rmi;
+
+import ch.hearc.heg.scl.model.WeatherData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Format binaire des blocs d'un export de mesures (ExportCursor).
+ *
+ * Un bloc : version du format (int), nombre de mesures (int), puis pour chaque mesure
+ * ID, ID de station (int), horodatage (secondes UTC en long, nanosecondes en int), température,
+ * ressenti (double), humidité, pression (int), description, icône (longueur en int puis UTF-8,
+ * -1 = null), vent (double) et fin de validité (comme l'horodatage, Long.MIN_VALUE = null ;
+ * absente de la version 1). Bien plus compact que la sérialisation Java des objets.
+ */
+public final class ExportChunks {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private ExportChunks() {
+    }
+
+    /**
+     * Encode un bloc de mesures.
+     */
+    public static byte[] encode(List<WeatherData> readings) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + readings.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(readings.size());
+            for (WeatherData data : readings) {
+                out.writeInt(data.getId());
+                out.writeInt(data.getStationId());
+                out.writeLong(data.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(data.getTimestamp().getNano());
+                out.writeDouble(data.getTemperature());
+                out.writeDouble(data.getFeelsLike());
+                out.writeInt(data.getHumidity());
+                out.writeInt(data.getPressure());
+                writeString(out, data.getDescription());
+                writeString(out, data.getIcon());
+                out.writeDouble(data.getWindSpeed());
+                LocalDateTime validUntil = data.getValidUntil();
+                out.writeLong(validUntil != null ? validUntil.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE);
+                out.writeInt(validUntil != null ? validUntil.getNano() : 0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // Impossible en mémoire
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Décode un bloc de mesures.
+     *
+     * @throws IOException Si le bloc est tronqué ou d'une autre version du format
+     */
+    public static List<WeatherData> decode(byte[] chunk) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        try {
+            int version = buffer.getInt();
+            if (version != 1 && version != FORMAT_VERSION) {
+                throw new IOException("Version de bloc d'export non prise en charge : " + version);
+            }
+            int count = buffer.getInt();
+            List<WeatherData> readings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                WeatherData data = new WeatherData();
+                data.setId(buffer.getInt());
+                data.setStationId(buffer.getInt());
+                long seconds = buffer.getLong();
+                data.setTimestamp(LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC));
+                data.setTemperature(buffer.getDouble());
+                data.setFeelsLike(buffer.getDouble());
+                data.setHumidity(buffer.getInt());
+                data.setPressure(buffer.getInt());
+                data.setDescription(readString(buffer));
+                data.setIcon(readString(buffer));
+                data.setWindSpeed(buffer.getDouble());
+                if (version >= 2) {
+                    long validSeconds = buffer.getLong();
+                    int validNanos = buffer.getInt();
+                    if (validSeconds != Long.MIN_VALUE) {
+                        data.setValidUntil(LocalDateTime.ofEpochSecond(validSeconds, validNanos, ZoneOffset.UTC));
+                    }
+                }
+                readings.add(data);
+            }
+            return readings;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Bloc d'export tronqué ou corrompu", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
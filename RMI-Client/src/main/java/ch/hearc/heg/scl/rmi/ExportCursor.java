@@ -0,0 +1,36 @@
+package ch.hearc.heg.scl.rmi;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Curseur distant sur un export de mesures, retourné par WeatherService.openExport().
+ *
+ * Le client demande les blocs un à un : le serveur ne lit en base que le bloc demandé,
+ * si bien qu'aucun des deux côtés ne garde l'export complet en mémoire.
+ * Les blocs se décodent avec ExportChunks.decode().
+ *
+ * Le curseur occupe une connexion du serveur tant qu'il est ouvert : le fermer dès que
+ * l'export n'est plus lu. Un curseur abandonné par un client disparu est fermé par le
+ * serveur à l'expiration de son bail RMI.
+ */
+public interface ExportCursor extends Remote {
+
+    /**
+     * Lit le bloc suivant.
+     *
+     * @return Le bloc encodé (au plus la taille de bloc du serveur en mesures),
+     *         ou null quand l'export est terminé (le curseur est alors fermé)
+     * @throws RemoteException En cas d'erreur réseau RMI ou de lecture en base
+     */
+    byte[] nextChunk()
+            throws RemoteException;
+
+    /**
+     * Ferme le curseur et libère sa connexion. Sans effet s'il est déjà fermé.
+     *
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    void close()
+            throws RemoteException;
+}
@@ -0,0 +1,23 @@
+package ch.hearc.heg.scl.rmi;
+
+import ch.hearc.heg.scl.model.WeatherData;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Interface RMI de rappel implémentée et exportée par le client.
+ * Le serveur l'appelle pour pousser les nouvelles données météo des stations suivies.
+ */
+public interface WeatherListener extends Remote {
+
+    /**
+     * Appelée par le serveur dès qu'une nouvelle mesure est enregistrée
+     * pour une station à laquelle le client est abonné.
+     *
+     * @param weatherData La nouvelle mesure (stationId renseigné)
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    void onWeatherData(WeatherData weatherData)
+            throws RemoteException;
+}
@@ -0,0 +1,42 @@
+package ch.hearc.heg.scl.rmi.socket;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+
+/**
+ * Fabrique de sockets clientes compressées.
+ * Sérialisée dans le stub RMI envoyé au client : la classe doit exister des deux côtés.
+ */
+public class CompressingClientSocketFactory implements RMIClientSocketFactory, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int threshold;
+
+    /**
+     * @param threshold Taille minimale d'une trame pour être compressée, en octets
+     */
+    public CompressingClientSocketFactory(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return new CompressingSocket(host, port, threshold);
+    }
+
+    // equals/hashCode : RMI réutilise les connexions des fabriques égales
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return threshold == ((CompressingClientSocketFactory) o).threshold;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(threshold);
+    }
+}
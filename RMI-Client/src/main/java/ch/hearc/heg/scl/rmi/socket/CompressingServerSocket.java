@@ -0,0 +1,29 @@
+package ch.hearc.heg.scl.rmi.socket;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * ServerSocket acceptant des connexions sous forme de CompressingSocket.
+ */
+public class CompressingServerSocket extends ServerSocket {
+
+    private final int threshold;
+
+    /**
+     * @param port Port d'écoute (0 = port libre quelconque)
+     * @param threshold Taille minimale d'une trame pour être compressée
+     */
+    public CompressingServerSocket(int port, int threshold) throws IOException {
+        super(port);
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Socket accept() throws IOException {
+        Socket socket = new CompressingSocket(threshold);
+        implAccept(socket);
+        return socket;
+    }
+}
@@ -1,12 +1,29 @@
 package ch.hearc.heg.scl;
 
+import ch.hearc.heg.scl.dao.WeatherStationDAO;
 import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.ImportReport;
 import ch.hearc.heg.scl.rmi.WeatherServiceImpl;
+import ch.hearc.heg.scl.rmi.socket.CompressingClientSocketFactory;
+import ch.hearc.heg.scl.rmi.socket.CompressingServerSocketFactory;
+import ch.hearc.heg.scl.service.RollupBackfill;
+import ch.hearc.heg.scl.service.StationImporter;
+import ch.hearc.heg.scl.service.WeatherApiClient;
+import ch.hearc.heg.scl.shard.ShardAssignment;
+import ch.hearc.heg.scl.shard.ShardRouter;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Point d'entrée du serveur RMI météo.
@@ -18,39 +35,183 @@ public class Main {
     private static final String SERVICE_NAME = "WeatherService";
 
     public static void main(String[] args) {
+        if (args.length == 2 && "--import".equals(args[0])) {
+            importStations(Path.of(args[1]));
+            return;
+        }
+        if (args.length == 1 && "--backfill-rollups".equals(args[0])) {
+            backfillRollups();
+            return;
+        }
+
         try {
             // 1. Vérifier la connexion à la base de données
             System.out.println("=== Démarrage du serveur RMI Météo ===");
             System.out.println("Vérification de la connexion à la base de données...");
-            DatabaseConfig.getConnection();
+            try (Connection connection = DatabaseConfig.getConnection()) {
+                if (!connection.isValid(5)) {
+                    throw new SQLException("Connexion à la base de données invalide");
+                }
+                System.out.println("Connexion à la base de données établie");
+            }
 
             // 2. Créer le registre RMI
-            System.out.println("Création du registre RMI sur le port " + RMI_PORT + "...");
-            Registry registry = LocateRegistry.createRegistry(RMI_PORT);
+            int registryPort = DatabaseConfig.getIntProperty("rmi.registry.port", RMI_PORT);
+            System.out.println("Création du registre RMI sur le port " + registryPort + "...");
+            Registry registry = LocateRegistry.createRegistry(registryPort);
 
             // 3. Créer et enregistrer le service météo
             System.out.println("Initialisation du service météo...");
-            WeatherServiceImpl weatherService = new WeatherServiceImpl(DatabaseConfig.getApiKey());  // ← MODIF ICI
-            registry.rebind(SERVICE_NAME, weatherService);
+            WeatherApiClient apiClient = createApiClient();
+            WeatherServiceImpl weatherService = createService(apiClient);
+            weatherService.warmStart();
+
+            ShardAssignment shard = ShardAssignment.fromConfig();
+            ShardRouter router = null;
+            if (shard.isSharded()) {
+                // Mode réparti : le shard local est accessible aux autres processus,
+                // les clients passent par l'aiguilleur
+                registry.rebind(ShardRouter.SHARD_SERVICE_NAME, weatherService);
+                router = createRouter(shard, weatherService);
+                weatherService.attachRouter(router);
+                registry.rebind(SERVICE_NAME, router);
+                System.out.println("Shard " + shard.index() + "/" + shard.count());
+            } else {
+                registry.rebind(SERVICE_NAME, weatherService);
+            }
 
             System.out.println("\n=== Serveur RMI prêt ===");
             System.out.println("Service : " + SERVICE_NAME);
-            System.out.println("Port : " + RMI_PORT);
+            System.out.println("Port du registre : " + registryPort);
+            System.out.println("API météo : " + DatabaseConfig.getApiUrl() + " (mode " + apiClient.getMode() + ")");
             System.out.println("En attente de connexions clients...\n");
 
             // 4. Ajouter un hook pour fermer proprement la connexion DB
+            ShardRouter startedRouter = router;
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 System.out.println("\nArrêt du serveur...");
+                if (startedRouter != null) {
+                    startedRouter.shutdown();
+                }
+                weatherService.shutdown();
                 DatabaseConfig.closeConnection();
+                Logger.shutdown();  // Écrit les derniers messages du journal
             }));
 
         } catch (RemoteException e) {
             System.err.println("Erreur RMI : " + e.getMessage());
             e.printStackTrace();
+        } catch (IOException e) {
+            System.err.println("Erreur d'ouverture de l'archive de l'API : " + e.getMessage());
+            e.printStackTrace();
         } catch (SQLException e) {
             System.err.println("Erreur de connexion à la base de données : " + e.getMessage());
             System.err.println("Vérifiez votre fichier database.properties");
             e.printStackTrace();
         }
     }
+
+    /**
+     * Importe un fichier de stations (city.list.json ou CSV) directement en base, sans démarrer
+     * le service : java ... ch.hearc.heg.scl.Main --import city.list.json
+     */
+    private static void importStations(Path file) {
+        System.out.println("=== Import de stations : " + file + " ===");
+        try {
+            ImportReport report = StationImporter.fromConfig(new WeatherStationDAO()).importFile(file);
+            System.out.printf("%d station(s) créée(s), %d déjà en base, %d doublon(s), %d ligne(s) invalide(s)%n",
+                    report.getInsertedRows(), report.getExistingRows(), report.getDuplicateRows(),
+                    report.getInvalidRows());
+            System.out.printf("Débit : %.0f lignes/s (lecture %d ms, écriture %d ms)%n",
+                    report.getRowsPerSecond(), report.getParseMillis(), report.getInsertMillis());
+        } catch (IOException e) {
+            System.err.println("Erreur de lecture du fichier : " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Erreur de base de données pendant l'import : " + e.getMessage());
+        } finally {
+            DatabaseConfig.closeConnection();
+            Logger.shutdown();
+        }
+    }
+
+    /**
+     * Reconstruit les agrégats horaires et journaliers depuis l'historique des mesures, sans démarrer
+     * le service (un serveur en marche peut continuer à écrire) :
+     * java ... ch.hearc.heg.scl.Main --backfill-rollups
+     */
+    private static void backfillRollups() {
+        System.out.println("=== Reconstruction des agrégats ===");
+        try {
+            RollupBackfill.Report report = RollupBackfill.fromConfig().run();
+            System.out.printf("%d station(s), %d ligne(s) d'agrégats écrite(s) en %d ms%n",
+                    report.stations(), report.rollupRows(), report.millis());
+            if (report.failedChunks() > 0) {
+                System.err.println(report.failedChunks() + " plage(s) de stations en échec : relancez la reconstruction");
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur de base de données pendant la reconstruction : " + e.getMessage());
+        } finally {
+            DatabaseConfig.closeConnection();
+            Logger.shutdown();
+        }
+    }
+
+    /**
+     * Crée et exporte le service selon la configuration :
+     * rmi.export.port (0 = port libre) et rmi.compression.threshold
+     * (taille en octets au-delà de laquelle les messages sont compressés, -1 = pas de compression).
+     */
+    private static WeatherServiceImpl createService(WeatherApiClient apiClient) throws RemoteException {
+        int exportPort = DatabaseConfig.getIntProperty("rmi.export.port", 0);
+        int threshold = DatabaseConfig.getIntProperty("rmi.compression.threshold", 1024);
+
+        if (threshold < 0) {
+            System.out.println("Export du service sur le port " + exportPort + " (sans compression)");
+            return new WeatherServiceImpl(apiClient, exportPort, null, null);
+        }
+        System.out.println("Export du service sur le port " + exportPort
+                + " (compression au-delà de " + threshold + " octets)");
+        return new WeatherServiceImpl(apiClient, exportPort,
+                new CompressingClientSocketFactory(threshold),
+                new CompressingServerSocketFactory(threshold));
+    }
+
+    /**
+     * Crée l'aiguilleur du mode réparti, exporté comme le service local.
+     * shard.peers liste le registre (host:port) de chaque shard, dans l'ordre des index.
+     */
+    private static ShardRouter createRouter(ShardAssignment shard, WeatherServiceImpl localShard)
+            throws RemoteException {
+        int exportPort = DatabaseConfig.getIntProperty("rmi.export.port", 0);
+        int threshold = DatabaseConfig.getIntProperty("rmi.compression.threshold", 1024);
+        List<String> peers = Arrays.stream(DatabaseConfig.getProperty("shard.peers", "").split(","))
+                .map(String::trim)
+                .filter(peer -> !peer.isEmpty())
+                .toList();
+
+        if (threshold < 0) {
+            return new ShardRouter(shard, localShard, peers, exportPort, null, null);
+        }
+        return new ShardRouter(shard, localShard, peers, exportPort,
+                new CompressingClientSocketFactory(threshold),
+                new CompressingServerSocketFactory(threshold));
+    }
+
+    /**
+     * Crée le client de l'API météo selon la configuration
+     * (api.mode = live, record ou replay ; api.archive ; api.replay.latency.ms ; api.timeout.ms).
+     */
+    private static WeatherApiClient createApiClient() throws IOException {
+        WeatherApiClient.Mode mode = WeatherApiClient.Mode.valueOf(
+                DatabaseConfig.getProperty("api.mode", "live").toUpperCase(Locale.ROOT));
+        Path archive = Path.of(DatabaseConfig.getProperty("api.archive", "owm-archive.bin"));
+        long replayLatency = DatabaseConfig.getIntProperty("api.replay.latency.ms", 0);
+        Duration timeout = Duration.ofMillis(DatabaseConfig.getIntProperty("api.timeout.ms", 5000));
+
+        if (mode != WeatherApiClient.Mode.LIVE) {
+            System.out.println("Archive de l'API : " + archive.toAbsolutePath());
+        }
+        return new WeatherApiClient(DatabaseConfig.getApiKey(), DatabaseConfig.getApiUrl(),
+                mode, archive, replayLatency, timeout);
+    }
 }
\ No newline at end of file
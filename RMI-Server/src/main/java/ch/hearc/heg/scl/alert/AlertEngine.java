@@ -0,0 +1,251 @@
+package ch.hearc.heg.scl.alert;
+
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.Alert;
+import ch.hearc.heg.scl.model.AlertRule;
+import ch.hearc.heg.scl.model.WeatherData;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Moteur d'alertes évalué à chaque nouvelle mesure, sans relire l'historique.
+ *
+ * submit() ne fait que déposer la mesure dans une file bornée : l'enregistrement n'attend jamais
+ * l'évaluation. Un thread unique évalue ensuite chaque règle concernée à partir d'un petit état
+ * par règle et par station (condition active ou non, extrêmes de la fenêtre pour RISE/DROP),
+ * de taille fixe quel que soit le nombre de mesures. Si la file est pleine, la mesure n'est pas
+ * évaluée et elle est comptée comme abandonnée.
+ *
+ * L'état n'est touché que par le thread d'évaluation ; les règles peuvent être ajoutées ou
+ * retirées depuis n'importe quel thread. Règles et état sont en mémoire (perdus au redémarrage).
+ */
+public class AlertEngine implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(AlertEngine.class);
+
+    /**
+     * Mesure en attente d'évaluation.
+     */
+    private record Reading(String stationName, WeatherData weatherData) {
+    }
+
+    /**
+     * État d'une règle pour une station.
+     */
+    private static final class RuleState {
+        final AlertRule rule;                // Règle pour laquelle l'état a été construit
+        final SlidingExtremes extremes;      // Fenêtre des variations (null pour ABOVE/BELOW)
+        long latestMillis = Long.MIN_VALUE;  // Date de la mesure la plus récente évaluée
+        boolean active = false;              // Condition vraie à la dernière mesure
+
+        RuleState(AlertRule rule) {
+            this.rule = rule;
+            this.extremes = rule.getCondition().isWindowed() ? new SlidingExtremes(rule.getWindow()) : null;
+        }
+    }
+
+    private final Map<Integer, AlertRule> rules = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSequence = new AtomicInteger();  // Prochain ID attribué : nextSequence * idStride + idOffset + 1
+    private final int idStride;
+    private final int idOffset;
+    private final Map<Integer, Map<Integer, RuleState>> states = new ConcurrentHashMap<>();  // règle -> station -> état
+    private final BlockingQueue<Reading> queue;
+    private final Consumer<Alert> sink;
+    private final Thread evaluatorThread;
+
+    private final AtomicLong evaluated = new AtomicLong();
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param queueCapacity Nombre maximal de mesures en attente d'évaluation
+     * @param sink Reçoit chaque alerte émise (sur le thread d'évaluation ; ne doit pas bloquer)
+     */
+    public AlertEngine(int queueCapacity, Consumer<Alert> sink) {
+        this(queueCapacity, sink, 1, 0);
+    }
+
+    /**
+     * En mode réparti, chaque shard attribue les IDs congrus à son index modulo le nombre de
+     * shards : deux shards ne peuvent pas attribuer le même ID à deux règles différentes.
+     *
+     * @param queueCapacity Nombre maximal de mesures en attente d'évaluation
+     * @param sink Reçoit chaque alerte émise (sur le thread d'évaluation ; ne doit pas bloquer)
+     * @param idStride Nombre de shards
+     * @param idOffset Index de ce shard (0 à idStride - 1)
+     */
+    public AlertEngine(int queueCapacity, Consumer<Alert> sink, int idStride, int idOffset) {
+        if (idStride <= 0 || idOffset < 0 || idOffset >= idStride) {
+            throw new IllegalArgumentException("Attribution des IDs de règles invalide : " + idOffset + "/" + idStride);
+        }
+        this.idStride = idStride;
+        this.idOffset = idOffset;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.sink = sink;
+        this.evaluatorThread = new Thread(this::run, "alert-evaluator");
+        this.evaluatorThread.setDaemon(true);
+        this.evaluatorThread.start();
+    }
+
+    /**
+     * Enregistre une règle. Une règle portant l'ID d'une règle existante la remplace
+     * (et repart d'un état vide). Un ID de ce shard n'est ensuite plus attribué.
+     *
+     * @param rule La règle (ID 0 = nouvel ID attribué)
+     * @return La règle enregistrée, avec son ID
+     */
+    public AlertRule addRule(AlertRule rule) {
+        AlertRule registered;
+        if (rule.getId() > 0) {
+            registered = rule;
+            if ((rule.getId() - 1) % idStride == idOffset) {
+                nextSequence.accumulateAndGet((rule.getId() - 1) / idStride + 1, Math::max);
+            }
+        } else {
+            registered = rule.withId(nextSequence.getAndIncrement() * idStride + idOffset + 1);
+        }
+        rules.put(registered.getId(), registered);
+        return registered;
+    }
+
+    /**
+     * Retire une règle et son état. Sans effet si elle n'existe pas.
+     *
+     * @return Vrai si la règle existait
+     */
+    public boolean removeRule(int ruleId) {
+        boolean removed = rules.remove(ruleId) != null;
+        states.remove(ruleId);
+        return removed;
+    }
+
+    /**
+     * @return Les règles enregistrées, par ID
+     */
+    public List<AlertRule> getRules() {
+        List<AlertRule> list = new ArrayList<>(rules.values());
+        list.sort(Comparator.comparingInt(AlertRule::getId));
+        return list;
+    }
+
+    /**
+     * Soumet une mesure enregistrée à l'évaluation. Ne bloque jamais.
+     *
+     * @param stationName Nom de la station (repris dans les alertes)
+     * @param weatherData La mesure, avec son ID de station
+     */
+    public void submit(String stationName, WeatherData weatherData) {
+        if (rules.isEmpty()) {
+            return;
+        }
+        if (!queue.offer(new Reading(stationName, weatherData))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getEvaluatedCount() {
+        return evaluated.get();
+    }
+
+    public long getEmittedCount() {
+        return emitted.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        evaluatorThread.interrupt();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Reading reading;
+            try {
+                reading = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                evaluate(reading);
+            } catch (RuntimeException e) {
+                LOG.error("Erreur d'évaluation des alertes : {}", e.getMessage());
+            }
+        }
+    }
+
+    private void evaluate(Reading reading) {
+        WeatherData data = reading.weatherData();
+        Integer stationId = data.getStationId();
+        if (stationId == null || data.getTimestamp() == null) {
+            return;
+        }
+        long timeMillis = data.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+
+        for (AlertRule rule : rules.values()) {
+            if (!rule.appliesTo(stationId)) {
+                continue;
+            }
+            Map<Integer, RuleState> ruleStates = states.computeIfAbsent(rule.getId(), id -> new HashMap<>());
+            RuleState state = ruleStates.get(stationId);
+            if (state == null || state.rule != rule) {
+                state = new RuleState(rule);  // Nouvelle station ou règle remplacée
+                ruleStates.put(stationId, state);
+            }
+            if (timeMillis < state.latestMillis) {
+                continue;  // Mesure plus ancienne que la dernière évaluée
+            }
+            state.latestMillis = timeMillis;
+            evaluated.incrementAndGet();
+
+            double value = rule.getMetric().of(data);
+            double reference;
+            boolean triggered;
+            switch (rule.getCondition()) {
+                case ABOVE -> {
+                    reference = rule.getThreshold();
+                    triggered = value > reference;
+                }
+                case BELOW -> {
+                    reference = rule.getThreshold();
+                    triggered = value < reference;
+                }
+                case RISE -> {
+                    state.extremes.add(timeMillis, value);
+                    reference = state.extremes.min(timeMillis);
+                    triggered = value - reference >= rule.getThreshold();
+                }
+                case DROP -> {
+                    state.extremes.add(timeMillis, value);
+                    reference = state.extremes.max(timeMillis);
+                    triggered = reference - value >= rule.getThreshold();
+                }
+                default -> throw new IllegalStateException("Condition inconnue : " + rule.getCondition());
+            }
+
+            // Alerte au passage à vrai uniquement, réarmée quand la condition redevient fausse
+            if (triggered && !state.active) {
+                emitted.incrementAndGet();
+                sink.accept(new Alert(rule.getId(), rule.getName(), stationId, reading.stationName(),
+                        rule.getMetric(), rule.getCondition(), value, reference, data.getTimestamp()));
+            }
+            state.active = triggered;
+        }
+
+        // Règle retirée pendant l'évaluation : ne pas garder son état
+        states.keySet().removeIf(ruleId -> !rules.containsKey(ruleId));
+    }
+}
@@ -0,0 +1,76 @@
+package ch.hearc.heg.scl.alert;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Minimum et maximum d'une grandeur sur une fenêtre glissante, en mémoire constante.
+ *
+ * La fenêtre est découpée en BUCKETS tranches de temps, rangées dans un anneau : chaque tranche
+ * garde le minimum et le maximum de ses valeurs, et une tranche sortie de la fenêtre est réutilisée
+ * pour la tranche courante. Ajout et lecture coûtent O(BUCKETS) quel que soit le nombre de mesures ;
+ * le bord ancien de la fenêtre est arrondi à une tranche près.
+ */
+final class SlidingExtremes {
+
+    private static final int BUCKETS = 12;
+
+    private final long bucketMillis;
+    private final long[] bucketIndex = new long[BUCKETS];  // Tranche occupant chaque case (MIN_VALUE = vide)
+    private final double[] min = new double[BUCKETS];
+    private final double[] max = new double[BUCKETS];
+
+    SlidingExtremes(Duration window) {
+        this.bucketMillis = Math.max(1, window.toMillis() / BUCKETS);
+        Arrays.fill(bucketIndex, Long.MIN_VALUE);
+    }
+
+    /**
+     * Ajoute une valeur à l'instant donné (en ms).
+     */
+    void add(long timeMillis, double value) {
+        long index = Math.floorDiv(timeMillis, bucketMillis);
+        int slot = (int) Math.floorMod(index, (long) BUCKETS);
+        if (bucketIndex[slot] != index) {
+            // Case libre ou occupée par une tranche sortie de la fenêtre
+            bucketIndex[slot] = index;
+            min[slot] = value;
+            max[slot] = value;
+        } else {
+            min[slot] = Math.min(min[slot], value);
+            max[slot] = Math.max(max[slot], value);
+        }
+    }
+
+    /**
+     * @return Le minimum des valeurs de la fenêtre se terminant à nowMillis (NaN si vide)
+     */
+    double min(long nowMillis) {
+        long current = Math.floorDiv(nowMillis, bucketMillis);
+        double result = Double.NaN;
+        for (int slot = 0; slot < BUCKETS; slot++) {
+            if (inWindow(bucketIndex[slot], current) && (Double.isNaN(result) || min[slot] < result)) {
+                result = min[slot];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Le maximum des valeurs de la fenêtre se terminant à nowMillis (NaN si vide)
+     */
+    double max(long nowMillis) {
+        long current = Math.floorDiv(nowMillis, bucketMillis);
+        double result = Double.NaN;
+        for (int slot = 0; slot < BUCKETS; slot++) {
+            if (inWindow(bucketIndex[slot], current) && (Double.isNaN(result) || max[slot] > result)) {
+                result = max[slot];
+            }
+        }
+        return result;
+    }
+
+    private static boolean inWindow(long index, long current) {
+        return index != Long.MIN_VALUE && index <= current && index > current - BUCKETS;
+    }
+}
@@ -0,0 +1,100 @@
+package ch.hearc.heg.scl.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache des recherches sans résultat (« aucune station pour ces coordonnées »).
+ *
+ * Une clé enregistrée reste négative pendant la durée de validité du cache : les recherches
+ * répétées sont rejetées localement au lieu de consommer le quota de l'API.
+ * Le cache est borné ; les clés les plus anciennes sont évincées en premier.
+ *
+ * @param <K> Type de la clé (ex: coordonnées arrondies)
+ */
+public class NegativeCache<K> {
+
+    private final long ttlNanos;
+    private final Map<K, Long> expirations;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+
+    /**
+     * @param ttl Durée pendant laquelle une clé reste négative
+     * @param maxEntries Nombre maximal de clés conservées
+     */
+    public NegativeCache(Duration ttl, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("La taille du cache doit être positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        // Même durée pour toutes les clés : l'ordre d'insertion est aussi l'ordre d'expiration
+        this.expirations = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Indique si une clé est connue comme négative. Compte un appel évité si c'est le cas.
+     *
+     * @param key La clé recherchée
+     * @return true si la clé est négative et encore valide
+     */
+    public boolean contains(K key) {
+        synchronized (expirations) {
+            Long expiresAt = expirations.get(key);
+            if (expiresAt == null) {
+                return false;
+            }
+            if (System.nanoTime() - expiresAt >= 0) {
+                expirations.remove(key);
+                return false;
+            }
+        }
+        hits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Enregistre une clé comme négative.
+     *
+     * @param key La clé sans résultat
+     */
+    public void put(K key) {
+        synchronized (expirations) {
+            // Réinsérer pour que la clé reprenne sa place d'expiration
+            expirations.remove(key);
+            expirations.put(key, System.nanoTime() + ttlNanos);
+        }
+        stored.incrementAndGet();
+    }
+
+    /**
+     * @return Le nombre d'appels à l'API évités grâce au cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Le nombre de clés enregistrées depuis le démarrage
+     */
+    public long getStoredCount() {
+        return stored.get();
+    }
+
+    /**
+     * @return Le nombre de clés actuellement conservées
+     */
+    public int size() {
+        synchronized (expirations) {
+            return expirations.size();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package ch.hearc.heg.scl.cache;
+
+import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.service.CoordinateKey;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instantané binaire de l'état en mémoire du serveur, écrit à l'arrêt et relu au démarrage.
+ *
+ * Format (entiers big-endian, chaînes préfixées par leur longueur en octets UTF-8, -1 = null,
+ * dates en secondes UTC + nanosecondes, Long.MIN_VALUE = null) :
+ * <pre>
+ * en-tête  : int MAGIC, int VERSION
+ * stations : int nombre, puis pour chacune
+ *            int id, long idOWM, chaîne nom, chaîne pays, double lat, double lon, date maj
+ * mesures  : int nombre, puis pour chacune
+ *            int id, int idStation, double temp, double ressenti, int humidité, int pression,
+ *            chaîne description, chaîne icône, double vent, date mesure, date fin de validité
+ *            (absente en version 1)
+ * coordonnées : int nombre, puis pour chacune int lat×100, int lon×100, int idStation
+ * </pre>
+ * Le fichier est écrit à côté puis renommé : un arrêt brutal ne laisse jamais d'instantané tronqué.
+ */
+public final class StateSnapshot {
+
+    static final int MAGIC = 0x57535354;  // "WSST"
+    static final int VERSION = 2;
+
+    private StateSnapshot() {
+    }
+
+    /**
+     * Écrit l'état du cache dans un instantané.
+     *
+     * @param cache Le cache à sauvegarder
+     * @param path Chemin de l'instantané (remplacé s'il existe)
+     * @return Le nombre de stations écrites
+     */
+    public static int write(StationStateCache cache, Path path) throws IOException {
+        List<WeatherStation> stations = cache.stations();
+        List<WeatherData> readings = cache.readings();
+        Map<CoordinateKey, Integer> mappings = cache.coordinateMappings();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(stations.size());
+            for (WeatherStation station : stations) {
+                out.writeInt(station.getId());
+                out.writeLong(station.getOpenWeatherMapId() != null ? station.getOpenWeatherMapId() : 0L);
+                writeString(out, station.getName());
+                writeString(out, station.getCountry());
+                out.writeDouble(station.getLatitude());
+                out.writeDouble(station.getLongitude());
+                writeDateTime(out, station.getLastUpdated());
+            }
+
+            out.writeInt(readings.size());
+            for (WeatherData data : readings) {
+                out.writeInt(data.getId() != null ? data.getId() : 0);
+                out.writeInt(data.getStationId());
+                out.writeDouble(data.getTemperature());
+                out.writeDouble(data.getFeelsLike());
+                out.writeInt(data.getHumidity());
+                out.writeInt(data.getPressure());
+                writeString(out, data.getDescription());
+                writeString(out, data.getIcon());
+                out.writeDouble(data.getWindSpeed());
+                writeDateTime(out, data.getTimestamp());
+                writeDateTime(out, data.getValidUntil());
+            }
+
+            out.writeInt(mappings.size());
+            for (Map.Entry<CoordinateKey, Integer> mapping : mappings.entrySet()) {
+                out.writeInt(mapping.getKey().latitudeE2());
+                out.writeInt(mapping.getKey().longitudeE2());
+                out.writeInt(mapping.getValue());
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return stations.size();
+    }
+
+    /**
+     * Relit un instantané (mappé en mémoire) dans le cache.
+     *
+     * @param cache Le cache à remplir
+     * @param path Chemin de l'instantané
+     * @return Le nombre de stations chargées
+     * @throws IOException Si le fichier est illisible, d'une autre version ou tronqué
+     */
+    public static int load(StationStateCache cache, Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Instantané trop volumineux (> 2 Go) : " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Fichier d'instantané invalide : " + path);
+            }
+            int version = buffer.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Version d'instantané non supportée : " + version);
+            }
+
+            int stationCount = buffer.getInt();
+            List<WeatherStation> stations = new ArrayList<>(stationCount);
+            for (int i = 0; i < stationCount; i++) {
+                stations.add(new WeatherStation(buffer.getInt(), buffer.getLong(), readString(buffer),
+                        readString(buffer), buffer.getDouble(), buffer.getDouble(), readDateTime(buffer)));
+            }
+
+            int readingCount = buffer.getInt();
+            List<WeatherData> readings = new ArrayList<>(readingCount);
+            for (int i = 0; i < readingCount; i++) {
+                int id = buffer.getInt();
+                WeatherData data = new WeatherData(buffer.getInt(), buffer.getDouble(), buffer.getDouble(),
+                        buffer.getInt(), buffer.getInt(), readString(buffer), readString(buffer),
+                        buffer.getDouble());
+                data.setId(id);
+                data.setTimestamp(readDateTime(buffer));
+                if (version >= 2) {
+                    data.setValidUntil(readDateTime(buffer));
+                }
+                readings.add(data);
+            }
+
+            int mappingCount = buffer.getInt();
+            Map<CoordinateKey, Integer> mappings = new HashMap<>(mappingCount * 2);
+            for (int i = 0; i < mappingCount; i++) {
+                mappings.put(new CoordinateKey(buffer.getInt(), buffer.getInt()), buffer.getInt());
+            }
+
+            cache.restore(stations, readings, mappings);
+            return stationCount;
+
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Instantané tronqué ou corrompu : " + path, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        if (value == null) {
+            out.writeLong(Long.MIN_VALUE);
+            out.writeInt(0);
+            return;
+        }
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        return seconds == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,134 @@
+package ch.hearc.heg.scl.cache;
+
+import ch.hearc.heg.scl.model.WeatherStation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Catalogue des stations, immuable et versionné.
+ *
+ * Chaque modification construit une nouvelle liste triée par nom et la publie d'un seul coup
+ * (copie sur écriture) : les lectures ne prennent aucun verrou et voient toujours une version
+ * complète. La version ne change que si la liste change réellement (nouvelle station, station
+ * retirée ou renommée) ; la date de dernière mise à jour des stations n'en fait pas partie.
+ *
+ * Les versions suivent l'horloge (microsecondes) et croissent strictement : une version reçue
+ * avant un redémarrage du serveur ne peut pas être prise pour la version courante.
+ */
+public class StationCatalog {
+
+    private static final Comparator<WeatherStation> BY_NAME =
+            Comparator.comparing(WeatherStation::getName).thenComparing(WeatherStation::getId);
+
+    /**
+     * Version publiée du catalogue.
+     *
+     * @param version Version du catalogue
+     * @param stations Stations triées par nom (liste non modifiable)
+     */
+    public record Snapshot(long version, List<WeatherStation> stations) {
+    }
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    /**
+     * @return La version publiée, ou null si le catalogue n'a pas encore été chargé
+     */
+    public Snapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Remplace tout le catalogue (chargement depuis la base). La version est conservée si le
+     * contenu n'a pas changé.
+     *
+     * @param stations Toutes les stations
+     * @return La version publiée
+     */
+    public Snapshot replaceAll(List<WeatherStation> stations) {
+        List<WeatherStation> sorted = new ArrayList<>(stations);
+        sorted.sort(BY_NAME);
+        List<WeatherStation> published = Collections.unmodifiableList(sorted);
+
+        while (true) {
+            Snapshot snapshot = current.get();
+            if (snapshot != null && sameListing(snapshot.stations(), published)) {
+                return snapshot;
+            }
+            Snapshot next = new Snapshot(nextVersion(snapshot), published);
+            if (current.compareAndSet(snapshot, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Ajoute ou remplace une station. Sans effet tant que le catalogue n'est pas chargé
+     * (le chargement la contiendra) ou si la station est déjà listée à l'identique.
+     *
+     * @param station La station enregistrée
+     */
+    public void put(WeatherStation station) {
+        while (true) {
+            Snapshot snapshot = current.get();
+            if (snapshot == null) {
+                return;
+            }
+
+            List<WeatherStation> stations = new ArrayList<>(snapshot.stations().size() + 1);
+            boolean unchanged = false;
+            for (WeatherStation existing : snapshot.stations()) {
+                if (Objects.equals(existing.getId(), station.getId())) {
+                    unchanged = sameListing(existing, station);
+                } else {
+                    stations.add(existing);
+                }
+            }
+            if (unchanged) {
+                return;
+            }
+
+            WeatherStation copy = new WeatherStation(station.getId(), station.getOpenWeatherMapId(),
+                    station.getName(), station.getCountry(), station.getLatitude(), station.getLongitude(),
+                    station.getLastUpdated());
+            int position = Collections.binarySearch(stations, copy, BY_NAME);
+            stations.add(position < 0 ? -position - 1 : position, copy);
+
+            Snapshot next = new Snapshot(nextVersion(snapshot), Collections.unmodifiableList(stations));
+            if (current.compareAndSet(snapshot, next)) {
+                return;
+            }
+        }
+    }
+
+    private static long nextVersion(Snapshot previous) {
+        long now = System.currentTimeMillis() * 1000;
+        return previous == null ? now : Math.max(previous.version() + 1, now);
+    }
+
+    private static boolean sameListing(List<WeatherStation> a, List<WeatherStation> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!sameListing(a.get(i), b.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameListing(WeatherStation a, WeatherStation b) {
+        return Objects.equals(a.getId(), b.getId())
+                && Objects.equals(a.getOpenWeatherMapId(), b.getOpenWeatherMapId())
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getCountry(), b.getCountry())
+                && a.getLatitude() == b.getLatitude()
+                && a.getLongitude() == b.getLongitude();
+    }
+}
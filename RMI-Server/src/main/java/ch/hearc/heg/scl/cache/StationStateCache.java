@@ -0,0 +1,217 @@
+package ch.hearc.heg.scl.cache;
+
+import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.service.CoordinateKey;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * État du serveur conservé en mémoire : catalogue des stations, dernière mesure de chaque
+ * station (en mode réparti, des seules stations du shard) et association coordonnées → station.
+ *
+ * Le cache est alimenté à chaque enregistrement en base, rechargé au démarrage depuis un
+ * instantané (StateSnapshot) puis réconcilié avec la base. Les stations sont stockées sans
+ * données météo et copiées à la lecture : l'appelant peut modifier la copie sans effet sur le cache.
+ *
+ * Les coordonnées recherchées par les clients ne sont pas limitées : leur association est bornée,
+ * les moins récemment utilisées étant oubliées en premier (la recherche suivante repasse par l'API).
+ */
+public class StationStateCache {
+
+    private final Map<Integer, WeatherStation> stations = new ConcurrentHashMap<>();
+    private final Map<Integer, WeatherData> latestReadings = new ConcurrentHashMap<>();
+    private final Map<CoordinateKey, Integer> coordinateIndex;  // Sous son verrou
+    private final Map<Long, Integer> stationIdsByOwmId = new ConcurrentHashMap<>();
+
+    // Stations chargées depuis l'instantané, encore à confirmer par la base
+    private final Set<Integer> unconfirmed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param maxCoordinates Nombre maximal de coordonnées associées à une station
+     */
+    public StationStateCache(int maxCoordinates) {
+        if (maxCoordinates <= 0) {
+            throw new IllegalArgumentException("La taille du cache doit être positive");
+        }
+        this.coordinateIndex = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CoordinateKey, Integer> eldest) {
+                return size() > maxCoordinates;
+            }
+        };
+    }
+
+    /**
+     * Enregistre une station (sans ses données météo). Une version plus ancienne que
+     * celle déjà connue est ignorée.
+     */
+    public void putStation(WeatherStation station) {
+        stations.merge(station.getId(), copyOf(station),
+                (current, candidate) -> isNewer(candidate.getLastUpdated(), current.getLastUpdated()) ? candidate : current);
+        if (station.getOpenWeatherMapId() != null) {
+            stationIdsByOwmId.put(station.getOpenWeatherMapId(), station.getId());
+        }
+        unconfirmed.remove(station.getId());
+    }
+
+    /**
+     * Enregistre une mesure si elle est plus récente que la dernière connue pour sa station.
+     */
+    public void putReading(WeatherData weatherData) {
+        latestReadings.merge(weatherData.getStationId(), weatherData,
+                (current, candidate) -> isNewer(candidate.getTimestamp(), current.getTimestamp()) ? candidate : current);
+    }
+
+    /**
+     * Associe des coordonnées de recherche à une station.
+     */
+    public void mapCoordinates(CoordinateKey key, int stationId) {
+        synchronized (coordinateIndex) {
+            coordinateIndex.put(key, stationId);
+        }
+    }
+
+    /**
+     * @return L'ID de la station associée à ces coordonnées, ou null
+     */
+    public Integer getStationIdFor(CoordinateKey key) {
+        synchronized (coordinateIndex) {
+            return coordinateIndex.get(key);
+        }
+    }
+
+    /**
+     * @return L'ID en base de la station portant cet ID OpenWeatherMap, ou null si inconnue
+     */
+    public Integer getStationIdByOpenWeatherMapId(long openWeatherMapId) {
+        return stationIdsByOwmId.get(openWeatherMapId);
+    }
+
+    /**
+     * @return Une copie de la station sans données météo, ou null si inconnue
+     */
+    public WeatherStation getStation(int stationId) {
+        WeatherStation station = stations.get(stationId);
+        return station != null ? copyOf(station) : null;
+    }
+
+    /**
+     * @return Une copie de la station avec sa dernière mesure, ou null si la station
+     *         ou sa mesure est inconnue
+     */
+    public WeatherStation getStationWithLatest(int stationId) {
+        WeatherData latest = latestReadings.get(stationId);
+        WeatherStation station = latest != null ? getStation(stationId) : null;
+        if (station != null) {
+            station.setCurrentWeather(latest);
+        }
+        return station;
+    }
+
+    /**
+     * @return La dernière mesure connue de la station, ou null
+     */
+    public WeatherData getLatestReading(int stationId) {
+        return latestReadings.get(stationId);
+    }
+
+    /**
+     * @return Le nombre de stations en mémoire
+     */
+    public int stationCount() {
+        return stations.size();
+    }
+
+    // Instantané et réconciliation
+
+    /**
+     * @return Les stations en mémoire (copies sans données météo)
+     */
+    public List<WeatherStation> stations() {
+        List<WeatherStation> result = new ArrayList<>(stations.size());
+        for (WeatherStation station : stations.values()) {
+            result.add(copyOf(station));
+        }
+        return result;
+    }
+
+    /**
+     * @return Les dernières mesures en mémoire
+     */
+    public List<WeatherData> readings() {
+        return new ArrayList<>(latestReadings.values());
+    }
+
+    /**
+     * @return Une copie de l'association coordonnées → station
+     */
+    public Map<CoordinateKey, Integer> coordinateMappings() {
+        synchronized (coordinateIndex) {
+            return Map.copyOf(coordinateIndex);
+        }
+    }
+
+    /**
+     * Charge le contenu d'un instantané. Les stations chargées restent « à confirmer »
+     * jusqu'à la réconciliation avec la base.
+     */
+    public void restore(List<WeatherStation> snapshotStations, List<WeatherData> snapshotReadings,
+                        Map<CoordinateKey, Integer> snapshotMappings) {
+        for (WeatherStation station : snapshotStations) {
+            putStation(station);
+            unconfirmed.add(station.getId());
+        }
+        snapshotReadings.forEach(this::putReading);
+        synchronized (coordinateIndex) {
+            snapshotMappings.forEach(coordinateIndex::putIfAbsent);
+        }
+    }
+
+    /**
+     * Aligne le cache sur le contenu de la base : les versions les plus récentes sont conservées,
+     * les stations de l'instantané absentes de la base sont retirées avec leurs mesures et associations.
+     *
+     * @param dbStations Toutes les stations en base
+     * @param dbReadings Dernière mesure de chaque station en base
+     * @return Le nombre de stations retirées
+     */
+    public int reconcile(List<WeatherStation> dbStations, List<WeatherData> dbReadings) {
+        Set<Integer> inDatabase = new HashSet<>();
+        for (WeatherStation station : dbStations) {
+            putStation(station);
+            inDatabase.add(station.getId());
+        }
+        dbReadings.forEach(this::putReading);
+
+        Set<Integer> removed = new HashSet<>(unconfirmed);
+        removed.removeAll(inDatabase);
+        for (Integer stationId : removed) {
+            stations.remove(stationId);
+            latestReadings.remove(stationId);
+        }
+        synchronized (coordinateIndex) {
+            coordinateIndex.values().removeIf(id -> !stations.containsKey(id));
+        }
+        stationIdsByOwmId.values().removeIf(id -> !stations.containsKey(id));
+        unconfirmed.clear();
+        return removed.size();
+    }
+
+    private static boolean isNewer(LocalDateTime candidate, LocalDateTime current) {
+        return current == null || (candidate != null && !candidate.isBefore(current));
+    }
+
+    private static WeatherStation copyOf(WeatherStation station) {
+        return new WeatherStation(station.getId(), station.getOpenWeatherMapId(),
+                station.getName(), station.getCountry(), station.getLatitude(), station.getLongitude(),
+                station.getLastUpdated());
+    }
+}
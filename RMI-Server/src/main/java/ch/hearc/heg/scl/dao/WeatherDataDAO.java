@@ -2,8 +2,10 @@ package ch.hearc.heg.scl.dao;
 
 import ch.hearc.heg.scl.database.DatabaseConfig;
 import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.monitoring.SqlStatementEvent;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -13,8 +15,26 @@ import java.util.List;
  */
 public class WeatherDataDAO {
 
+    private final boolean readFromReplicas;
+    private final WeatherRollupDAO rollupDAO = new WeatherRollupDAO();
+
+    /**
+     * DAO dont les lectures peuvent être servies par un réplica (retard toléré).
+     */
+    public WeatherDataDAO() {
+        this(true);
+    }
+
+    /**
+     * @param readFromReplicas Faux pour lire sur le primaire (lectures devant voir toutes les écritures validées)
+     */
+    public WeatherDataDAO(boolean readFromReplicas) {
+        this.readFromReplicas = readFromReplicas;
+    }
+
     /**
-     * Insère de nouvelles données météo dans la base.
+     * Insère de nouvelles données météo dans la base et les ajoute aux agrégats horaires et
+     * journaliers, en une transaction (après le verrouillage de la station, comme WeatherDataWriter).
      *
      * @param weatherData Les données météo à insérer
      * @return Les données avec leur ID généré
@@ -25,9 +45,16 @@ public class WeatherDataDAO {
                 "DESCRIPTION, ICON, WIND_SPEED, TIMESTAMP) " +
                 "VALUES (WEATHER_DATA_SEQ.NEXTVAL, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherDataDAO.insert");
+        int rows = -1;
         try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement lock = conn.prepareStatement("SELECT ID FROM WEATHER_STATION WHERE ID = ? FOR UPDATE");
              PreparedStatement stmt = conn.prepareStatement(sql, new String[]{"ID"})) {
 
+            conn.setAutoCommit(false);
+            lock.setInt(1, weatherData.getStationId());
+            lock.executeQuery().close();
+
             stmt.setInt(1, weatherData.getStationId());
             stmt.setDouble(2, weatherData.getTemperature());
             stmt.setDouble(3, weatherData.getFeelsLike());
@@ -47,7 +74,12 @@ public class WeatherDataDAO {
                         weatherData.setId(generatedKeys.getInt(1));
                     }
                 }
+                rollupDAO.apply(conn, List.of(weatherData));
             }
+            conn.commit();
+            rows = rowsAffected;
+        } finally {
+            event.finish(rows);
         }
         return weatherData;
     }
@@ -60,22 +92,28 @@ public class WeatherDataDAO {
      */
     public WeatherData findLatestByStationId(int stationId) throws SQLException {
         String sql = "SELECT ID, STATION_ID, TEMPERATURE, FEELS_LIKE, HUMIDITY, PRESSURE, " +
-                "DESCRIPTION, ICON, WIND_SPEED, TIMESTAMP " +
+                "DESCRIPTION, ICON, WIND_SPEED, TIMESTAMP, VALID_UNTIL " +
                 "FROM WEATHER_DATA " +
                 "WHERE STATION_ID = ? " +
                 "ORDER BY TIMESTAMP DESC " +
                 "FETCH FIRST 1 ROW ONLY";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherDataDAO.findLatestByStationId");
+        int rows = -1;
+        try (Connection conn = readConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, stationId);
 
             try (ResultSet rs = stmt.executeQuery()) {
+                rows = 0;
                 if (rs.next()) {
+                    rows = 1;
                     return mapResultSetToWeatherData(rs);
                 }
             }
+        } finally {
+            event.finish(rows);
         }
         return null;
     }
@@ -89,12 +127,14 @@ public class WeatherDataDAO {
     public List<WeatherData> findAllByStationId(int stationId) throws SQLException {
         List<WeatherData> dataList = new ArrayList<>();
         String sql = "SELECT ID, STATION_ID, TEMPERATURE, FEELS_LIKE, HUMIDITY, PRESSURE, " +
-                "DESCRIPTION, ICON, WIND_SPEED, TIMESTAMP " +
+                "DESCRIPTION, ICON, WIND_SPEED, TIMESTAMP, VALID_UNTIL " +
                 "FROM WEATHER_DATA " +
                 "WHERE STATION_ID = ? " +
                 "ORDER BY TIMESTAMP DESC";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherDataDAO.findAllByStationId");
+        int rows = -1;
+        try (Connection conn = readConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, stationId);
@@ -104,14 +144,148 @@ public class WeatherDataDAO {
                     dataList.add(mapResultSetToWeatherData(rs));
                 }
             }
+            rows = dataList.size();
+        } finally {
+            event.finish(rows);
+        }
+        return dataList;
+    }
+
+    /**
+     * Récupère la mesure la plus récente de chaque station, en une seule requête.
+     *
+     * @return Liste des dernières mesures (une par station ayant des données)
+     */
+    public List<WeatherData> findLatestForAllStations() throws SQLException {
+        List<WeatherData> dataList = new ArrayList<>();
+        String sql = "SELECT ID, STATION_ID, TEMPERATURE, FEELS_LIKE, HUMIDITY, PRESSURE, " +
+                "DESCRIPTION, ICON, WIND_SPEED, TIMESTAMP, VALID_UNTIL " +
+                "FROM (SELECT d.*, ROW_NUMBER() OVER (PARTITION BY STATION_ID ORDER BY TIMESTAMP DESC) AS RN " +
+                "      FROM WEATHER_DATA d) " +
+                "WHERE RN = 1";
+
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherDataDAO.findLatestForAllStations");
+        int rows = -1;
+        try (Connection conn = readConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                dataList.add(mapResultSetToWeatherData(rs));
+            }
+            rows = dataList.size();
+        } finally {
+            event.finish(rows);
         }
         return dataList;
     }
 
+    /**
+     * Curseur sur l'historique des mesures, lu au fil de l'eau : seules les fetchSize lignes
+     * du dernier aller-retour sont en mémoire. Garde sa connexion jusqu'à close().
+     */
+    public static final class HistoryCursor implements AutoCloseable {
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private boolean exhausted = false;
+
+        private HistoryCursor(Connection connection, PreparedStatement statement, ResultSet resultSet) {
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+        }
+
+        /**
+         * @return La mesure suivante, ou null à la fin
+         */
+        public WeatherData next() throws SQLException {
+            if (exhausted || !resultSet.next()) {
+                exhausted = true;
+                return null;
+            }
+            return mapResultSetToWeatherData(resultSet);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try (connection; statement; resultSet) {
+                exhausted = true;
+            }
+        }
+    }
+
+    /**
+     * Ouvre un curseur sur les mesures d'une période, triées par date puis par ID.
+     * Une mesure antérieure au début de la période mais confirmée jusque dans la période
+     * (VALID_UNTIL) en fait partie.
+     *
+     * @param stationId ID de la station, ou null pour toutes les stations
+     * @param from Début de la période (inclus), ou null
+     * @param to Fin de la période (exclue), ou null
+     * @param fetchSize Nombre de lignes lues par aller-retour avec la base
+     * @return Le curseur, à fermer par l'appelant
+     */
+    public HistoryCursor openHistory(Integer stationId, LocalDateTime from, LocalDateTime to, int fetchSize)
+            throws SQLException {
+        // Seuls les critères fournis figurent dans la requête, pour que les index restent utilisables
+        StringBuilder sql = new StringBuilder("SELECT ID, STATION_ID, TEMPERATURE, FEELS_LIKE, HUMIDITY, PRESSURE, " +
+                "DESCRIPTION, ICON, WIND_SPEED, TIMESTAMP, VALID_UNTIL " +
+                "FROM WEATHER_DATA WHERE 1 = 1");
+        if (stationId != null) {
+            sql.append(" AND STATION_ID = ?");
+        }
+        if (from != null) {
+            sql.append(" AND (TIMESTAMP >= ? OR VALID_UNTIL >= ?)");
+        }
+        if (to != null) {
+            sql.append(" AND TIMESTAMP < ?");
+        }
+        sql.append(" ORDER BY TIMESTAMP, ID");
+
+        // L'événement mesure l'ouverture du curseur ; les lignes sont lues ensuite au fil de l'eau
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherDataDAO.openHistory");
+        Connection conn = readConnection();
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql.toString());
+            stmt.setFetchSize(fetchSize);
+            int index = 1;
+            if (stationId != null) {
+                stmt.setInt(index++, stationId);
+            }
+            if (from != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(from));
+                stmt.setTimestamp(index++, Timestamp.valueOf(from));
+            }
+            if (to != null) {
+                stmt.setTimestamp(index, Timestamp.valueOf(to));
+            }
+            HistoryCursor cursor = new HistoryCursor(conn, stmt, stmt.executeQuery());
+            event.finish(0);
+            return cursor;
+
+        } catch (SQLException | RuntimeException e) {
+            event.finish(-1);
+            if (stmt != null) {
+                stmt.close();
+            }
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Connexion pour une lecture : réplica si autorisé et assez frais, sinon primaire.
+     */
+    private Connection readConnection() throws SQLException {
+        return readFromReplicas ? DatabaseConfig.getReadConnection() : DatabaseConfig.getConnection();
+    }
+
     /**
      * Convertit un ResultSet en objet WeatherData.
      */
-    private WeatherData mapResultSetToWeatherData(ResultSet rs) throws SQLException {
+    private static WeatherData mapResultSetToWeatherData(ResultSet rs) throws SQLException {
         WeatherData data = new WeatherData();
         data.setId(rs.getInt("ID"));
         data.setStationId(rs.getInt("STATION_ID"));
@@ -123,6 +297,8 @@ public class WeatherDataDAO {
         data.setIcon(rs.getString("ICON"));
         data.setWindSpeed(rs.getDouble("WIND_SPEED"));
         data.setTimestamp(rs.getTimestamp("TIMESTAMP").toLocalDateTime());
+        Timestamp validUntil = rs.getTimestamp("VALID_UNTIL");
+        data.setValidUntil(validUntil != null ? validUntil.toLocalDateTime() : null);
         return data;
     }
 }
@@ -0,0 +1,488 @@
+package ch.hearc.heg.scl.dao;
+
+import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.monitoring.SqlStatementEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Écriture groupée des mesures (« group commit »).
+ *
+ * Les mesures soumises par les threads RMI sont rassemblées par un thread d'écriture unique :
+ * dès qu'une mesure arrive, il attend au plus la fenêtre configurée (ou d'avoir N mesures),
+ * puis insère tout le lot et met à jour LAST_UPDATED des stations concernées dans une seule
+ * transaction, sur sa propre connexion. Une seule validation (et une seule écriture du journal)
+ * sert ainsi tous les appelants du lot, qui sont débloqués ensemble. Un lot en échec (SQL ou
+ * autre) est rejoué mesure par mesure ; un appelant n'attend jamais plus de AWAIT_TIMEOUT_SECONDS.
+ *
+ * Une mesure identique à la précédente ne crée pas de ligne : extend() prolonge la validité
+ * (VALID_UNTIL) de la ligne existante, dans le même lot que les insertions. La prolongation n'a
+ * lieu que si cette ligne est toujours la plus récente de sa station en base ; sinon (ligne
+ * supprimée, ou mesure plus récente écrite par un autre processus) la mesure reçue est insérée.
+ *
+ * Les mesures insérées sont ajoutées aux agrégats horaires et journaliers (WeatherRollupDAO) dans
+ * la même transaction, après la mise à jour (et donc le verrouillage) de leurs stations.
+ *
+ * Seules les stations déjà en base passent par ici : une nouvelle station passe par
+ * WeatherStationDAO.upsertWithReading.
+ */
+public class WeatherDataWriter implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(WeatherDataWriter.class);
+    private static final String INSERT_SQL = "INSERT INTO WEATHER_DATA " +
+            "(ID, STATION_ID, TEMPERATURE, FEELS_LIKE, HUMIDITY, PRESSURE, " +
+            "DESCRIPTION, ICON, WIND_SPEED, TIMESTAMP) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String NEXT_IDS_SQL =
+            "SELECT WEATHER_DATA_SEQ.NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?";
+    private static final String EXTEND_SQL = "UPDATE WEATHER_DATA d " +
+            "SET VALID_UNTIL = GREATEST(NVL(VALID_UNTIL, ?), ?) " +
+            "WHERE ID = ? AND STATION_ID = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM WEATHER_DATA n " +
+            "WHERE n.STATION_ID = d.STATION_ID AND n.TIMESTAMP > d.TIMESTAMP)";
+    private static final String UPDATE_STATION_SQL =
+            "UPDATE WEATHER_STATION SET LAST_UPDATED = ? WHERE ID = ?";
+
+    private static final long IDLE_POLL_MILLIS = 200;
+    private static final long AWAIT_TIMEOUT_SECONDS = 30;  // Attente maximale d'un appelant
+
+    /**
+     * Mesure en attente d'écriture et futur de l'appelant. Pour une prolongation, weatherData est
+     * la ligne à prolonger et observed la mesure reçue, insérée si la prolongation n'a pas lieu
+     * (null pour une insertion).
+     */
+    private record PendingWrite(WeatherData weatherData, WeatherData observed, LocalDateTime stationUpdated,
+                                CompletableFuture<WeatherData> result) {
+
+        boolean extension() {
+            return observed != null;
+        }
+    }
+
+    private final WeatherRollupDAO rollupDAO = new WeatherRollupDAO();
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final int maxBatchRows;
+    private final long windowNanos;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private Connection connection;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong extensions = new AtomicLong();
+
+    /**
+     * @param maxBatchRows Nombre maximal de mesures par transaction
+     * @param window Durée maximale d'attente d'autres mesures avant d'écrire un lot
+     */
+    public WeatherDataWriter(int maxBatchRows, Duration window) {
+        if (maxBatchRows <= 0) {
+            throw new IllegalArgumentException("La taille des lots doit être positive");
+        }
+        this.maxBatchRows = maxBatchRows;
+        this.windowNanos = window.toNanos();
+        this.writerThread = new Thread(this::run, "weather-data-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Soumet une mesure à écrire avec le prochain lot.
+     *
+     * @param weatherData La mesure (son ID est renseigné à l'écriture)
+     * @param stationUpdated Nouvelle date de mise à jour de sa station
+     * @return Un futur complété, avec la mesure, après la validation du lot
+     */
+    public CompletableFuture<WeatherData> submit(WeatherData weatherData, LocalDateTime stationUpdated) {
+        return enqueue(weatherData, null, stationUpdated);
+    }
+
+    /**
+     * Écrit une mesure et attend la validation de son lot.
+     *
+     * @param weatherData La mesure (son ID est renseigné à l'écriture)
+     * @param stationUpdated Nouvelle date de mise à jour de sa station
+     * @return La mesure avec son ID
+     * @throws SQLException Si le lot n'a pas pu être écrit
+     */
+    public WeatherData write(WeatherData weatherData, LocalDateTime stationUpdated) throws SQLException {
+        return await(submit(weatherData, stationUpdated));
+    }
+
+    /**
+     * Prolonge la validité d'une mesure déjà en base et attend la validation de son lot.
+     * Une date de validité plus ancienne que celle enregistrée est ignorée. Si la mesure n'est plus
+     * la plus récente de sa station en base (ou n'existe plus), la mesure reçue est insérée à la place.
+     *
+     * @param weatherData La mesure, avec son ID et sa nouvelle date de validité (validUntil)
+     * @param observed La mesure reçue, identique, à insérer si la prolongation n'a pas lieu
+     * @param stationUpdated Nouvelle date de mise à jour de sa station
+     * @return weatherData si elle a été prolongée, sinon observed avec son ID
+     * @throws SQLException Si le lot n'a pas pu être écrit
+     */
+    public WeatherData extend(WeatherData weatherData, WeatherData observed, LocalDateTime stationUpdated)
+            throws SQLException {
+        if (weatherData.getId() == null || weatherData.getValidUntil() == null) {
+            throw new IllegalArgumentException("Mesure à prolonger sans ID ou sans date de validité");
+        }
+        return await(enqueue(weatherData, observed, stationUpdated));
+    }
+
+    private CompletableFuture<WeatherData> enqueue(WeatherData weatherData, WeatherData observed,
+                                                   LocalDateTime stationUpdated) {
+        CompletableFuture<WeatherData> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new SQLException("Écriture des mesures arrêtée"));
+            return result;
+        }
+        queue.add(new PendingWrite(weatherData, observed, stationUpdated, result));
+        return result;
+    }
+
+    private static WeatherData await(CompletableFuture<WeatherData> future) throws SQLException {
+        try {
+            return future.get(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Erreur lors de l'écriture de la mesure", e.getCause());
+        } catch (TimeoutException e) {
+            // La mesure peut encore être écrite avec un lot ultérieur
+            throw new SQLException("Écriture de la mesure non confirmée après " + AWAIT_TIMEOUT_SECONDS + " s");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attente de l'écriture de la mesure interrompue", e);
+        }
+    }
+
+    /**
+     * @return Le nombre de transactions validées
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * @return Le nombre de mesures insérées
+     */
+    public long getRowCount() {
+        return rows.get();
+    }
+
+    /**
+     * @return Le nombre de mesures prolongées au lieu d'être insérées
+     */
+    public long getExtensionCount() {
+        return extensions.get();
+    }
+
+    /**
+     * Écrit les mesures encore en attente puis ferme la connexion.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Mesures soumises pendant l'arrêt
+        failPending(List.of());
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchRows);
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    collect(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            LOG.error("Arrêt inattendu de l'écriture des mesures : {}", e.getMessage());
+            throw e;
+        } finally {
+            // Plus personne n'écrira : les appelants encore en attente sont libérés
+            running = false;
+            failPending(batch);
+            closeConnection();
+        }
+    }
+
+    /**
+     * Fait échouer les écritures d'un lot non terminé et celles encore en file.
+     */
+    private void failPending(List<PendingWrite> batch) {
+        SQLException stopped = new SQLException("Écriture des mesures arrêtée");
+        for (PendingWrite write : batch) {
+            write.result().completeExceptionally(stopped);
+        }
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            write.result().completeExceptionally(stopped);
+        }
+    }
+
+    /**
+     * Attend une première mesure, puis complète le lot pendant la fenêtre ou jusqu'à N mesures.
+     * L'attente de la première mesure est bornée pour remarquer l'arrêt.
+     */
+    private void collect(List<PendingWrite> batch) throws InterruptedException {
+        PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchRows) {
+            queue.drainTo(batch, maxBatchRows - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchRows || remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        List<WeatherData> written;
+        try {
+            Connection conn = connection();
+            SqlStatementEvent event = SqlStatementEvent.start("WeatherDataWriter.writeBatch");
+            int rowCount = -1;
+            try {
+                written = applyBatch(conn, batch);
+                conn.commit();
+                rowCount = batch.size();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                event.finish(rowCount);
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (batch.size() > 1) {
+                // Une mesure invalide (ex: station supprimée) ne doit pas faire échouer les autres :
+                // le lot est rejoué mesure par mesure
+                LOG.warn("Échec d'un lot de {} mesure(s), écriture une à une : {}", batch.size(), e.getMessage());
+                for (PendingWrite write : batch) {
+                    writeBatch(List.of(write));
+                }
+                return;
+            }
+            LOG.error("Échec de l'écriture d'une mesure : {}", e.getMessage());
+            closeConnection();  // Rouverte à la prochaine écriture
+            batch.get(0).result().completeExceptionally(e);
+            return;
+        }
+
+        batches.incrementAndGet();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingWrite write = batch.get(i);
+            boolean extended = write.extension() && written.get(i) == write.weatherData();
+            (extended ? extensions : rows).incrementAndGet();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(written.get(i));
+        }
+    }
+
+    /**
+     * Écrit un lot dans la transaction en cours.
+     *
+     * @return Pour chaque mesure du lot, la mesure écrite : insérée, prolongée, ou reçue et insérée
+     *         à la place d'une prolongation refusée
+     */
+    private List<WeatherData> applyBatch(Connection conn, List<PendingWrite> batch) throws SQLException {
+        List<WeatherData> inserts = new ArrayList<>(batch.size());
+        List<PendingWrite> extensionWrites = new ArrayList<>();
+        Map<Integer, LocalDateTime> stationUpdates = new TreeMap<>();  // Stations verrouillées dans l'ordre des ID
+        for (PendingWrite write : batch) {
+            if (write.extension()) {
+                extensionWrites.add(write);
+            } else {
+                inserts.add(write.weatherData());
+            }
+            stationUpdates.merge(write.weatherData().getStationId(), write.stationUpdated(),
+                    (a, b) -> a.isAfter(b) ? a : b);
+        }
+
+        // Les stations d'abord : une reconstruction de leurs agrégats en cours est attendue
+        try (PreparedStatement stmt = conn.prepareStatement(UPDATE_STATION_SQL)) {
+            for (Map.Entry<Integer, LocalDateTime> update : stationUpdates.entrySet()) {
+                stmt.setTimestamp(1, Timestamp.valueOf(update.getValue()));
+                stmt.setInt(2, update.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        // Insertions d'abord : une prolongation tient compte des mesures plus récentes du même lot
+        List<Integer> ids = insertReadings(conn, inserts);
+        List<WeatherData> inserted = new ArrayList<>(inserts);
+        List<Integer> insertedIds = new ArrayList<>(ids);
+
+        List<WeatherData> written = new ArrayList<>(batch.size());
+        if (!extensionWrites.isEmpty()) {
+            int[] counts = extendReadings(conn, extensionWrites);
+            List<WeatherData> fallbacks = new ArrayList<>();
+            for (int i = 0; i < extensionWrites.size(); i++) {
+                if (counts[i] == 0) {
+                    fallbacks.add(extensionWrites.get(i).observed());
+                }
+            }
+            if (!fallbacks.isEmpty()) {
+                LOG.debug("{} prolongation(s) refusée(s) (mesure plus récente en base), insertion à la place",
+                        fallbacks.size());
+                inserted.addAll(fallbacks);
+                insertedIds.addAll(insertReadings(conn, fallbacks));
+            }
+            int next = 0;
+            for (PendingWrite write : batch) {
+                if (write.extension()) {
+                    written.add(counts[next++] == 0 ? write.observed() : write.weatherData());
+                } else {
+                    written.add(write.weatherData());
+                }
+            }
+        } else {
+            for (PendingWrite write : batch) {
+                written.add(write.weatherData());
+            }
+        }
+
+        // Les IDs ne sont attribués qu'une fois toutes les instructions passées
+        for (int i = 0; i < inserted.size(); i++) {
+            inserted.get(i).setId(insertedIds.get(i));
+        }
+        return written;
+    }
+
+    /**
+     * Insère des mesures et les ajoute aux agrégats.
+     *
+     * @return Les IDs réservés, dans l'ordre des mesures (attribués par l'appelant)
+     */
+    private List<Integer> insertReadings(Connection conn, List<WeatherData> inserts) throws SQLException {
+        if (inserts.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> ids = nextIds(conn, inserts.size());
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (int i = 0; i < inserts.size(); i++) {
+                WeatherData data = inserts.get(i);
+                stmt.setInt(1, ids.get(i));
+                stmt.setInt(2, data.getStationId());
+                stmt.setDouble(3, data.getTemperature());
+                stmt.setDouble(4, data.getFeelsLike());
+                stmt.setInt(5, data.getHumidity());
+                stmt.setInt(6, data.getPressure());
+                stmt.setString(7, data.getDescription());
+                stmt.setString(8, data.getIcon());
+                stmt.setDouble(9, data.getWindSpeed());
+                stmt.setTimestamp(10, Timestamp.valueOf(data.getTimestamp()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        rollupDAO.apply(conn, inserts);
+        return ids;
+    }
+
+    /**
+     * Prolonge des mesures restées les plus récentes de leur station.
+     *
+     * @return Le nombre de lignes modifiées par prolongation : 0 si la mesure n'est plus la plus
+     *         récente de sa station ou n'existe plus (Statement.SUCCESS_NO_INFO compte comme prolongée)
+     */
+    private int[] extendReadings(Connection conn, List<PendingWrite> extensionWrites) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(EXTEND_SQL)) {
+            for (PendingWrite write : extensionWrites) {
+                WeatherData data = write.weatherData();
+                Timestamp validUntil = Timestamp.valueOf(data.getValidUntil());
+                stmt.setTimestamp(1, validUntil);
+                stmt.setTimestamp(2, validUntil);
+                stmt.setInt(3, data.getId());
+                stmt.setInt(4, data.getStationId());
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            if (counts.length != extensionWrites.size()) {
+                throw new SQLException("Prolongations incomplètes : " + counts.length + "/" + extensionWrites.size());
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Réserve en une requête les IDs de toutes les mesures insérées du lot.
+     */
+    private List<Integer> nextIds(Connection conn, int count) throws SQLException {
+        List<Integer> ids = new ArrayList<>(count);
+        try (PreparedStatement stmt = conn.prepareStatement(NEXT_IDS_SQL)) {
+            stmt.setInt(1, count);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        if (ids.size() != count) {
+            throw new SQLException("Réservation des IDs incomplète : " + ids.size() + "/" + count);
+        }
+        return ids;
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = DatabaseConfig.openConnection();
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.warn("Erreur lors de la fermeture de la connexion d'écriture : {}", e.getMessage());
+            }
+            connection = null;
+        }
+    }
+}
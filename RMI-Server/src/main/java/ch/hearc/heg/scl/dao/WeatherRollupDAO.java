@@ -0,0 +1,333 @@
+package ch.hearc.heg.scl.dao;
+
+import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.model.WeatherSummary;
+import ch.hearc.heg.scl.monitoring.SqlStatementEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object pour les tables d'agrégats WEATHER_ROLLUP_HOUR et WEATHER_ROLLUP_DAY.
+ *
+ * Chaque ligne résume les mesures d'une station sur une heure ou un jour : nombre de mesures,
+ * puis minimum, maximum et somme de chaque grandeur (la moyenne est la somme divisée par le
+ * nombre). Ces valeurs se combinent : apply() ajoute les mesures d'un lot aux lignes existantes
+ * par un MERGE, dans la transaction qui insère les mesures.
+ *
+ * Les agrégats d'une station ne sont modifiés qu'après le verrouillage de sa ligne WEATHER_STATION
+ * (mise à jour de LAST_UPDATED dans le chemin d'écriture, SELECT ... FOR UPDATE dans rebuild()) :
+ * l'ajout d'un lot et la reconstruction d'une station ne se croisent jamais.
+ */
+public class WeatherRollupDAO {
+
+    private static final String[] METRICS = {"TEMPERATURE", "HUMIDITY", "PRESSURE", "WIND_SPEED"};
+
+    private static final String HOUR_TABLE = "WEATHER_ROLLUP_HOUR";
+    private static final String DAY_TABLE = "WEATHER_ROLLUP_DAY";
+    private static final String MERGE_HOUR_SQL = mergeSql(HOUR_TABLE);
+    private static final String MERGE_DAY_SQL = mergeSql(DAY_TABLE);
+    private static final String COLUMNS = columns();
+
+    private final boolean readFromReplicas;
+
+    /**
+     * DAO dont les lectures peuvent être servies par un réplica (retard toléré).
+     */
+    public WeatherRollupDAO() {
+        this(true);
+    }
+
+    /**
+     * @param readFromReplicas Faux pour lire sur le primaire
+     */
+    public WeatherRollupDAO(boolean readFromReplicas) {
+        this.readFromReplicas = readFromReplicas;
+    }
+
+    /**
+     * Agrégat partiel d'une station sur une période, calculé en mémoire avant le MERGE.
+     */
+    private static final class Bucket {
+        final int stationId;
+        final LocalDateTime start;
+        int count = 0;
+        final double[] min = new double[METRICS.length];
+        final double[] max = new double[METRICS.length];
+        final double[] sum = new double[METRICS.length];
+
+        Bucket(int stationId, LocalDateTime start) {
+            this.stationId = stationId;
+            this.start = start;
+        }
+
+        void add(WeatherData data) {
+            for (int i = 0; i < METRICS.length; i++) {
+                double value = value(data, i);
+                min[i] = count == 0 ? value : Math.min(min[i], value);
+                max[i] = count == 0 ? value : Math.max(max[i], value);
+                sum[i] += value;
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Ajoute des mesures nouvellement insérées aux agrégats horaires et journaliers, sur la
+     * connexion (et dans la transaction) de l'appelant. Les mesures d'une même station et d'une
+     * même période sont d'abord combinées : une ligne d'agrégat par période touchée.
+     *
+     * @param conn Connexion de l'appelant, qui valide la transaction
+     * @param readings Mesures insérées (station et date renseignées)
+     */
+    public void apply(Connection conn, Collection<WeatherData> readings) throws SQLException {
+        if (readings.isEmpty()) {
+            return;
+        }
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherRollupDAO.apply");
+        int rows = -1;
+        try {
+            rows = merge(conn, MERGE_HOUR_SQL, aggregate(readings, ChronoUnit.HOURS))
+                    + merge(conn, MERGE_DAY_SQL, aggregate(readings, ChronoUnit.DAYS));
+        } finally {
+            event.finish(rows);
+        }
+    }
+
+    private static Collection<Bucket> aggregate(Collection<WeatherData> readings, ChronoUnit unit) {
+        Map<String, Bucket> buckets = new LinkedHashMap<>();
+        for (WeatherData data : readings) {
+            LocalDateTime start = data.getTimestamp().truncatedTo(unit);
+            buckets.computeIfAbsent(data.getStationId() + "@" + start, key -> new Bucket(data.getStationId(), start))
+                    .add(data);
+        }
+        return buckets.values();
+    }
+
+    private static int merge(Connection conn, String sql, Collection<Bucket> buckets) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Bucket bucket : buckets) {
+                int index = 1;
+                stmt.setInt(index++, bucket.stationId);
+                stmt.setTimestamp(index++, Timestamp.valueOf(bucket.start));
+                stmt.setInt(index++, bucket.count);
+                for (int i = 0; i < METRICS.length; i++) {
+                    stmt.setDouble(index++, bucket.min[i]);
+                    stmt.setDouble(index++, bucket.max[i]);
+                    stmt.setDouble(index++, bucket.sum[i]);
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return buckets.size();
+    }
+
+    /**
+     * Recalcule entièrement les agrégats d'une plage de stations à partir des mesures, en une
+     * transaction : les agrégats horaires depuis WEATHER_DATA, puis les journaliers depuis les
+     * horaires. Les écritures de mesures de ces stations attendent la fin de la reconstruction.
+     *
+     * @param fromStationId Première station de la plage (incluse)
+     * @param toStationId Dernière station de la plage (incluse)
+     * @return Le nombre de lignes d'agrégats écrites
+     */
+    public int rebuild(int fromStationId, int toStationId) throws SQLException {
+        String lockSql = "SELECT ID FROM WEATHER_STATION WHERE ID BETWEEN ? AND ? ORDER BY ID FOR UPDATE";
+        String hourSql = "INSERT INTO " + HOUR_TABLE + " (" + COLUMNS + ") " +
+                "SELECT STATION_ID, TRUNC(TIMESTAMP, 'HH24'), COUNT(*)" + aggregates(true) +
+                " FROM WEATHER_DATA WHERE STATION_ID BETWEEN ? AND ? " +
+                "GROUP BY STATION_ID, TRUNC(TIMESTAMP, 'HH24')";
+        String daySql = "INSERT INTO " + DAY_TABLE + " (" + COLUMNS + ") " +
+                "SELECT STATION_ID, TRUNC(BUCKET_START), SUM(READING_COUNT)" + aggregates(false) +
+                " FROM " + HOUR_TABLE + " WHERE STATION_ID BETWEEN ? AND ? " +
+                "GROUP BY STATION_ID, TRUNC(BUCKET_START)";
+
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherRollupDAO.rebuild");
+        int rows = -1;
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(lockSql)) {
+                    bindRange(stmt, fromStationId, toStationId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            // Verrouillage des stations de la plage
+                        }
+                    }
+                }
+                for (String table : new String[]{HOUR_TABLE, DAY_TABLE}) {
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "DELETE FROM " + table + " WHERE STATION_ID BETWEEN ? AND ?")) {
+                        bindRange(stmt, fromStationId, toStationId);
+                        stmt.executeUpdate();
+                    }
+                }
+                int written = 0;
+                for (String sql : new String[]{hourSql, daySql}) {
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        bindRange(stmt, fromStationId, toStationId);
+                        written += stmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                rows = written;
+                return written;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } finally {
+            event.finish(rows);
+        }
+    }
+
+    private static void bindRange(PreparedStatement stmt, int fromStationId, int toStationId) throws SQLException {
+        stmt.setInt(1, fromStationId);
+        stmt.setInt(2, toStationId);
+    }
+
+    /**
+     * Lit les résumés d'une station sur une période, triés par date.
+     *
+     * @param stationId ID de la station
+     * @param period Heure ou jour
+     * @param from Début de la période (inclus), ou null
+     * @param to Fin de la période (exclue), ou null
+     * @return Les résumés des heures ou des jours ayant au moins une mesure
+     */
+    public List<WeatherSummary> findSummaries(int stationId, WeatherSummary.Period period,
+                                              LocalDateTime from, LocalDateTime to) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS)
+                .append(" FROM ").append(period == WeatherSummary.Period.HOUR ? HOUR_TABLE : DAY_TABLE)
+                .append(" WHERE STATION_ID = ?");
+        if (from != null) {
+            sql.append(" AND BUCKET_START >= ?");
+        }
+        if (to != null) {
+            sql.append(" AND BUCKET_START < ?");
+        }
+        sql.append(" ORDER BY BUCKET_START");
+
+        List<WeatherSummary> summaries = new ArrayList<>();
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherRollupDAO.findSummaries");
+        int rows = -1;
+        try (Connection conn = readFromReplicas ? DatabaseConfig.getReadConnection() : DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            int index = 1;
+            stmt.setInt(index++, stationId);
+            if (from != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(from));
+            }
+            if (to != null) {
+                stmt.setTimestamp(index, Timestamp.valueOf(to));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(mapResultSetToSummary(rs, period));
+                }
+            }
+            rows = summaries.size();
+        } finally {
+            event.finish(rows);
+        }
+        return summaries;
+    }
+
+    private static WeatherSummary mapResultSetToSummary(ResultSet rs, WeatherSummary.Period period)
+            throws SQLException {
+        int count = rs.getInt("READING_COUNT");
+        WeatherSummary.Statistics[] statistics = new WeatherSummary.Statistics[METRICS.length];
+        for (int i = 0; i < METRICS.length; i++) {
+            statistics[i] = new WeatherSummary.Statistics(
+                    rs.getDouble(METRICS[i] + "_MIN"),
+                    rs.getDouble(METRICS[i] + "_MAX"),
+                    count > 0 ? rs.getDouble(METRICS[i] + "_SUM") / count : 0);
+        }
+        return new WeatherSummary(rs.getInt("STATION_ID"), period,
+                rs.getTimestamp("BUCKET_START").toLocalDateTime(), count,
+                statistics[0], statistics[1], statistics[2], statistics[3]);
+    }
+
+    /**
+     * Valeur de la grandeur METRICS[metric] dans une mesure.
+     */
+    private static double value(WeatherData data, int metric) {
+        return switch (metric) {
+            case 0 -> data.getTemperature();
+            case 1 -> data.getHumidity();
+            case 2 -> data.getPressure();
+            default -> data.getWindSpeed();
+        };
+    }
+
+    /**
+     * Colonnes d'une table d'agrégats, dans l'ordre des paramètres des requêtes.
+     */
+    private static String columns() {
+        StringBuilder columns = new StringBuilder("STATION_ID, BUCKET_START, READING_COUNT");
+        for (String metric : METRICS) {
+            columns.append(", ").append(metric).append("_MIN, ")
+                    .append(metric).append("_MAX, ")
+                    .append(metric).append("_SUM");
+        }
+        return columns.toString();
+    }
+
+    /**
+     * MIN, MAX et SUM de chaque grandeur pour un INSERT ... SELECT ... GROUP BY : sur les colonnes
+     * des mesures, ou sur celles des agrégats horaires.
+     */
+    private static String aggregates(boolean fromReadings) {
+        StringBuilder select = new StringBuilder();
+        for (String metric : METRICS) {
+            if (fromReadings) {
+                // Un vent absent est compté comme 0, comme dans le chemin d'écriture
+                String value = metric.equals("WIND_SPEED") ? "NVL(WIND_SPEED, 0)" : metric;
+                select.append(", MIN(").append(value).append("), MAX(").append(value)
+                        .append("), SUM(").append(value).append(")");
+            } else {
+                select.append(", MIN(").append(metric).append("_MIN), MAX(").append(metric)
+                        .append("_MAX), SUM(").append(metric).append("_SUM)");
+            }
+        }
+        return select.toString();
+    }
+
+    /**
+     * MERGE ajoutant un agrégat partiel à la ligne de sa station et de sa période (créée si absente).
+     */
+    private static String mergeSql(String table) {
+        StringBuilder source = new StringBuilder("SELECT ? AS STATION_ID, ? AS BUCKET_START, ? AS READING_COUNT");
+        StringBuilder update = new StringBuilder("t.READING_COUNT = t.READING_COUNT + s.READING_COUNT");
+        StringBuilder values = new StringBuilder("s.STATION_ID, s.BUCKET_START, s.READING_COUNT");
+        for (String metric : METRICS) {
+            String min = metric + "_MIN";
+            String max = metric + "_MAX";
+            String sum = metric + "_SUM";
+            source.append(", ? AS ").append(min).append(", ? AS ").append(max).append(", ? AS ").append(sum);
+            update.append(", t.").append(min).append(" = LEAST(t.").append(min).append(", s.").append(min).append(")")
+                    .append(", t.").append(max).append(" = GREATEST(t.").append(max).append(", s.").append(max).append(")")
+                    .append(", t.").append(sum).append(" = t.").append(sum).append(" + s.").append(sum);
+            values.append(", s.").append(min).append(", s.").append(max).append(", s.").append(sum);
+        }
+        return "MERGE INTO " + table + " t " +
+                "USING (" + source + " FROM DUAL) s " +
+                "ON (t.STATION_ID = s.STATION_ID AND t.BUCKET_START = s.BUCKET_START) " +
+                "WHEN MATCHED THEN UPDATE SET " + update + " " +
+                "WHEN NOT MATCHED THEN INSERT (" + columns() + ") VALUES (" + values + ")";
+    }
+}
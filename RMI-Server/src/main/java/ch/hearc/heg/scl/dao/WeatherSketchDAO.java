@@ -0,0 +1,186 @@
+package ch.hearc.heg.scl.dao;
+
+import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.monitoring.SqlStatementEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Data Access Object pour la table WEATHER_SKETCH : un résumé de distribution (QuantileSketch
+ * sérialisé) par station, par jour et par grandeur.
+ */
+public class WeatherSketchDAO {
+
+    private static final int MAX_IN_LIST = 500;  // Stations par requête (Oracle limite IN à 1000)
+
+    /**
+     * Résumé enregistré.
+     *
+     * @param stationId ID de la station
+     * @param bucketStart Début du jour
+     * @param metric Nom de la grandeur
+     * @param readingCount Nombre de mesures résumées
+     * @param sketch Résumé sérialisé
+     */
+    public record StoredSketch(int stationId, LocalDateTime bucketStart, String metric, long readingCount,
+                               byte[] sketch) {
+    }
+
+    private final boolean readFromReplicas;
+
+    /**
+     * DAO dont les lectures peuvent être servies par un réplica (retard toléré).
+     */
+    public WeatherSketchDAO() {
+        this(true);
+    }
+
+    /**
+     * @param readFromReplicas Faux pour lire sur le primaire (lectures devant voir toutes les écritures validées)
+     */
+    public WeatherSketchDAO(boolean readFromReplicas) {
+        this.readFromReplicas = readFromReplicas;
+    }
+
+    /**
+     * Lit les résumés d'une grandeur pour des stations et une période.
+     *
+     * @param stationIds IDs des stations
+     * @param metric Nom de la grandeur
+     * @param from Début de la période (inclus)
+     * @param to Fin de la période (exclue)
+     * @return Les résumés existants (un jour sans mesure n'a pas de résumé)
+     */
+    public List<StoredSketch> findSketches(Collection<Integer> stationIds, String metric,
+                                           LocalDateTime from, LocalDateTime to) throws SQLException {
+        List<StoredSketch> sketches = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>(stationIds);
+
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherSketchDAO.findSketches");
+        int rows = -1;
+        try (Connection conn = readConnection()) {
+            for (int start = 0; start < ids.size(); start += MAX_IN_LIST) {
+                List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_IN_LIST));
+                String sql = "SELECT STATION_ID, BUCKET_START, METRIC, READING_COUNT, SKETCH " +
+                        "FROM WEATHER_SKETCH " +
+                        "WHERE METRIC = ? AND BUCKET_START >= ? AND BUCKET_START < ? " +
+                        "AND STATION_ID IN (" + "?, ".repeat(chunk.size() - 1) + "?)";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    int index = 1;
+                    stmt.setString(index++, metric);
+                    stmt.setTimestamp(index++, Timestamp.valueOf(from));
+                    stmt.setTimestamp(index++, Timestamp.valueOf(to));
+                    for (int stationId : chunk) {
+                        stmt.setInt(index++, stationId);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            sketches.add(mapResultSetToSketch(rs));
+                        }
+                    }
+                }
+            }
+            rows = sketches.size();
+        } finally {
+            event.finish(rows);
+        }
+        return sketches;
+    }
+
+    /**
+     * Lit les résumés de toutes les grandeurs d'une station pour un jour, sur le primaire
+     * (avant de les compléter et de les réécrire).
+     *
+     * @param stationId ID de la station
+     * @param bucketStart Début du jour
+     * @return Les résumés existants
+     */
+    public List<StoredSketch> findStationDay(int stationId, LocalDateTime bucketStart) throws SQLException {
+        String sql = "SELECT STATION_ID, BUCKET_START, METRIC, READING_COUNT, SKETCH " +
+                "FROM WEATHER_SKETCH " +
+                "WHERE STATION_ID = ? AND BUCKET_START = ?";
+
+        List<StoredSketch> sketches = new ArrayList<>();
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherSketchDAO.findStationDay");
+        int rows = -1;
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, stationId);
+            stmt.setTimestamp(2, Timestamp.valueOf(bucketStart));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sketches.add(mapResultSetToSketch(rs));
+                }
+            }
+            rows = sketches.size();
+        } finally {
+            event.finish(rows);
+        }
+        return sketches;
+    }
+
+    /**
+     * Enregistre (crée ou remplace) des résumés en un lot, validé en une transaction.
+     *
+     * @param sketches Résumés complets à écrire
+     */
+    public void saveAll(List<StoredSketch> sketches) throws SQLException {
+        String sql = "MERGE INTO WEATHER_SKETCH t " +
+                "USING (SELECT ? AS STATION_ID, ? AS BUCKET_START, ? AS METRIC, ? AS READING_COUNT, " +
+                "? AS SKETCH, ? AS UPDATED_AT FROM DUAL) s " +
+                "ON (t.STATION_ID = s.STATION_ID AND t.BUCKET_START = s.BUCKET_START AND t.METRIC = s.METRIC) " +
+                "WHEN MATCHED THEN UPDATE SET t.READING_COUNT = s.READING_COUNT, t.SKETCH = s.SKETCH, " +
+                "t.UPDATED_AT = s.UPDATED_AT " +
+                "WHEN NOT MATCHED THEN INSERT (STATION_ID, BUCKET_START, METRIC, READING_COUNT, SKETCH, UPDATED_AT) " +
+                "VALUES (s.STATION_ID, s.BUCKET_START, s.METRIC, s.READING_COUNT, s.SKETCH, s.UPDATED_AT)";
+
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherSketchDAO.saveAll");
+        int rows = -1;
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            conn.setAutoCommit(false);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (StoredSketch sketch : sketches) {
+                stmt.setInt(1, sketch.stationId());
+                stmt.setTimestamp(2, Timestamp.valueOf(sketch.bucketStart()));
+                stmt.setString(3, sketch.metric());
+                stmt.setLong(4, sketch.readingCount());
+                stmt.setBytes(5, sketch.sketch());
+                stmt.setTimestamp(6, now);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+            rows = sketches.size();
+        } finally {
+            event.finish(rows);
+        }
+    }
+
+    /**
+     * Connexion pour une lecture : réplica si autorisé et assez frais, sinon primaire.
+     */
+    private Connection readConnection() throws SQLException {
+        return readFromReplicas ? DatabaseConfig.getReadConnection() : DatabaseConfig.getConnection();
+    }
+
+    private static StoredSketch mapResultSetToSketch(ResultSet rs) throws SQLException {
+        return new StoredSketch(
+                rs.getInt("STATION_ID"),
+                rs.getTimestamp("BUCKET_START").toLocalDateTime(),
+                rs.getString("METRIC"),
+                rs.getLong("READING_COUNT"),
+                rs.getBytes("SKETCH"));
+    }
+}
@@ -1,7 +1,9 @@
 package ch.hearc.heg.scl.dao;
 
 import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.model.WeatherData;
 import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.monitoring.SqlStatementEvent;
 
 import java.sql.*;
 import java.time.LocalDateTime;
@@ -15,6 +17,23 @@ import java.util.Optional;
  */
 public class WeatherStationDAO {
 
+    private final boolean readFromReplicas;
+    private final WeatherRollupDAO rollupDAO = new WeatherRollupDAO();
+
+    /**
+     * DAO dont les lectures peuvent être servies par un réplica (retard toléré).
+     */
+    public WeatherStationDAO() {
+        this(true);
+    }
+
+    /**
+     * @param readFromReplicas Faux pour lire sur le primaire (lectures devant voir toutes les écritures validées)
+     */
+    public WeatherStationDAO(boolean readFromReplicas) {
+        this.readFromReplicas = readFromReplicas;
+    }
+
     /**
      * Recherche une station par son ID OpenWeatherMap.
      *
@@ -25,16 +44,22 @@ public class WeatherStationDAO {
         String sql = "SELECT ID, OPENWEATHERMAP_ID, NAME, COUNTRY, LATITUDE, LONGITUDE, LAST_UPDATED " +
                 "FROM WEATHER_STATION WHERE OPENWEATHERMAP_ID = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherStationDAO.findByOpenWeatherMapId");
+        int rows = -1;
+        try (Connection conn = readConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, openWeatherMapId);
 
             try (ResultSet rs = stmt.executeQuery()) {
+                rows = 0;
                 if (rs.next()) {
+                    rows = 1;
                     return Optional.of(mapResultSetToStation(rs));
                 }
             }
+        } finally {
+            event.finish(rows);
         }
         return Optional.empty();
     }
@@ -50,6 +75,8 @@ public class WeatherStationDAO {
                 "(ID, OPENWEATHERMAP_ID, NAME, COUNTRY, LATITUDE, LONGITUDE, LAST_UPDATED) " +
                 "VALUES (WEATHER_STATION_SEQ.NEXTVAL, ?, ?, ?, ?, ?, ?)";
 
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherStationDAO.insert");
+        int rows = -1;
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, new String[]{"ID"})) {
 
@@ -70,25 +97,208 @@ public class WeatherStationDAO {
                     }
                 }
             }
+            rows = rowsAffected;
+        } finally {
+            event.finish(rows);
         }
         return station;
     }
 
     /**
-     * Met à jour la date de dernière mise à jour d'une station.
+     * Résultat d'un enregistrement combiné station + mesure.
+     *
+     * @param stationId ID de la station (existante ou créée)
+     * @param readingId ID de la mesure insérée
+     * @param stationCreated Vrai si la station vient d'être créée
+     */
+    public record UpsertResult(int stationId, int readingId, boolean stationCreated) {
+    }
+
+    /**
+     * Enregistre une station (créée si son ID OpenWeatherMap est inconnu, sinon sa date de mise à jour
+     * est modifiée) et insère sa mesure, en un seul aller-retour et une seule transaction.
+     *
+     * Le bloc PL/SQL tente d'abord la mise à jour ; si aucune ligne n'existe, il insère la station.
+     * Si une autre requête l'a insérée entre-temps (contrainte d'unicité), la mise à jour est rejouée :
+     * deux recherches simultanées de la même ville n'échouent plus. La mesure est ensuite ajoutée
+     * aux agrégats horaires et journaliers ; en cas d'erreur rien n'est enregistré, sinon tout est
+     * validé ensemble.
+     *
+     * @param station La station retournée par l'API ; son ID et sa date de mise à jour sont renseignés
+     * @param weatherData La mesure à insérer ; son ID et celui de sa station sont renseignés
+     * @return Les IDs attribués
+     */
+    public UpsertResult upsertWithReading(WeatherStation station, WeatherData weatherData) throws SQLException {
+        String sql = "DECLARE " +
+                "  v_owm_id WEATHER_STATION.OPENWEATHERMAP_ID%TYPE := ?; " +
+                "  v_updated WEATHER_STATION.LAST_UPDATED%TYPE := ?; " +
+                "  v_station_id WEATHER_STATION.ID%TYPE; " +
+                "  v_reading_id WEATHER_DATA.ID%TYPE; " +
+                "  v_created NUMBER(1) := 0; " +
+                "BEGIN " +
+                "  UPDATE WEATHER_STATION SET LAST_UPDATED = v_updated WHERE OPENWEATHERMAP_ID = v_owm_id " +
+                "    RETURNING ID INTO v_station_id; " +
+                "  IF SQL%ROWCOUNT = 0 THEN " +
+                "    BEGIN " +
+                "      INSERT INTO WEATHER_STATION " +
+                "        (ID, OPENWEATHERMAP_ID, NAME, COUNTRY, LATITUDE, LONGITUDE, LAST_UPDATED) " +
+                "        VALUES (WEATHER_STATION_SEQ.NEXTVAL, v_owm_id, ?, ?, ?, ?, v_updated) " +
+                "        RETURNING ID INTO v_station_id; " +
+                "      v_created := 1; " +
+                "    EXCEPTION WHEN DUP_VAL_ON_INDEX THEN " +
+                "      UPDATE WEATHER_STATION SET LAST_UPDATED = v_updated WHERE OPENWEATHERMAP_ID = v_owm_id " +
+                "        RETURNING ID INTO v_station_id; " +
+                "    END; " +
+                "  END IF; " +
+                "  INSERT INTO WEATHER_DATA " +
+                "    (ID, STATION_ID, TEMPERATURE, FEELS_LIKE, HUMIDITY, PRESSURE, " +
+                "     DESCRIPTION, ICON, WIND_SPEED, TIMESTAMP) " +
+                "    VALUES (WEATHER_DATA_SEQ.NEXTVAL, v_station_id, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "    RETURNING ID INTO v_reading_id; " +
+                "  ? := v_station_id; " +
+                "  ? := v_reading_id; " +
+                "  ? := v_created; " +
+                "END;";
+
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherStationDAO.upsertWithReading");
+        int rows = -1;
+        try (Connection conn = DatabaseConfig.getConnection();
+             CallableStatement stmt = conn.prepareCall(sql)) {
+
+            conn.setAutoCommit(false);
+            stmt.setLong(1, station.getOpenWeatherMapId());
+            stmt.setTimestamp(2, Timestamp.valueOf(station.getLastUpdated()));
+            stmt.setString(3, station.getName());
+            stmt.setString(4, station.getCountry());
+            stmt.setDouble(5, station.getLatitude());
+            stmt.setDouble(6, station.getLongitude());
+            stmt.setDouble(7, weatherData.getTemperature());
+            stmt.setDouble(8, weatherData.getFeelsLike());
+            stmt.setInt(9, weatherData.getHumidity());
+            stmt.setInt(10, weatherData.getPressure());
+            stmt.setString(11, weatherData.getDescription());
+            stmt.setString(12, weatherData.getIcon());
+            stmt.setDouble(13, weatherData.getWindSpeed());
+            stmt.setTimestamp(14, Timestamp.valueOf(weatherData.getTimestamp()));
+            stmt.registerOutParameter(15, Types.INTEGER);
+            stmt.registerOutParameter(16, Types.INTEGER);
+            stmt.registerOutParameter(17, Types.INTEGER);
+
+            stmt.execute();
+
+            UpsertResult result = new UpsertResult(stmt.getInt(15), stmt.getInt(16), stmt.getInt(17) == 1);
+            weatherData.setStationId(result.stationId());
+            // La station est verrouillée par le bloc : ses agrégats peuvent être modifiés
+            rollupDAO.apply(conn, List.of(weatherData));
+            conn.commit();
+
+            station.setId(result.stationId());
+            weatherData.setId(result.readingId());
+            rows = 2;
+            return result;
+        } finally {
+            event.finish(rows);
+        }
+    }
+
+    /**
+     * Insère en un seul lot les stations dont l'ID OpenWeatherMap est absent de la base ;
+     * les autres sont laissées telles quelles. Le lot est validé en une transaction.
+     *
+     * Chaque ligne est un MERGE « WHEN NOT MATCHED » : la déduplication se fait dans la base,
+     * sans lecture préalable. Si le lot échoue parce qu'une station a été créée entre-temps par
+     * une autre requête (contrainte d'unicité), il est rejoué ligne par ligne et ces stations
+     * sont comptées comme existantes.
+     *
+     * @param stations Stations à créer (sans ID), sans doublon d'ID OpenWeatherMap
+     * @return Le nombre de stations créées
+     */
+    public int insertMissing(List<WeatherStation> stations) throws SQLException {
+        String sql = "MERGE INTO WEATHER_STATION t " +
+                "USING (SELECT ? AS OPENWEATHERMAP_ID, ? AS NAME, ? AS COUNTRY, ? AS LATITUDE, " +
+                "? AS LONGITUDE, ? AS LAST_UPDATED FROM DUAL) s " +
+                "ON (t.OPENWEATHERMAP_ID = s.OPENWEATHERMAP_ID) " +
+                "WHEN NOT MATCHED THEN INSERT " +
+                "(ID, OPENWEATHERMAP_ID, NAME, COUNTRY, LATITUDE, LONGITUDE, LAST_UPDATED) " +
+                "VALUES (WEATHER_STATION_SEQ.NEXTVAL, s.OPENWEATHERMAP_ID, s.NAME, s.COUNTRY, " +
+                "s.LATITUDE, s.LONGITUDE, s.LAST_UPDATED)";
+
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherStationDAO.insertMissing");
+        int rows = -1;
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            conn.setAutoCommit(false);
+            for (WeatherStation station : stations) {
+                bindMerge(stmt, station);
+                stmt.addBatch();
+            }
+
+            int inserted = 0;
+            try {
+                for (int count : stmt.executeBatch()) {
+                    if (count > 0) {
+                        inserted += count;
+                    }
+                }
+            } catch (BatchUpdateException e) {
+                conn.rollback();
+                inserted = 0;
+                for (WeatherStation station : stations) {
+                    bindMerge(stmt, station);
+                    try {
+                        inserted += stmt.executeUpdate();
+                    } catch (SQLIntegrityConstraintViolationException duplicate) {
+                        // Créée entre-temps par une autre requête : déjà en base
+                    }
+                }
+            }
+            conn.commit();
+            rows = inserted;
+            return inserted;
+        } finally {
+            event.finish(rows);
+        }
+    }
+
+    private static void bindMerge(PreparedStatement stmt, WeatherStation station) throws SQLException {
+        stmt.setLong(1, station.getOpenWeatherMapId());
+        stmt.setString(2, station.getName());
+        stmt.setString(3, station.getCountry());
+        stmt.setDouble(4, station.getLatitude());
+        stmt.setDouble(5, station.getLongitude());
+        stmt.setTimestamp(6, Timestamp.valueOf(station.getLastUpdated()));
+    }
+
+    /**
+     * Met à jour la date de dernière mise à jour d'une station (maintenant).
      *
      * @param stationId ID de la station
      */
     public void updateLastUpdated(int stationId) throws SQLException {
+        updateLastUpdated(stationId, LocalDateTime.now());
+    }
+
+    /**
+     * Met à jour la date de dernière mise à jour d'une station.
+     *
+     * @param stationId ID de la station
+     * @param lastUpdated Nouvelle date de mise à jour
+     */
+    public void updateLastUpdated(int stationId, LocalDateTime lastUpdated) throws SQLException {
         String sql = "UPDATE WEATHER_STATION SET LAST_UPDATED = ? WHERE ID = ?";
 
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherStationDAO.updateLastUpdated");
+        int rows = -1;
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setTimestamp(1, Timestamp.valueOf(lastUpdated));
             stmt.setInt(2, stationId);
 
-            stmt.executeUpdate();
+            rows = stmt.executeUpdate();
+        } finally {
+            event.finish(rows);
         }
     }
 
@@ -103,13 +313,18 @@ public class WeatherStationDAO {
                 "FROM WEATHER_STATION " +
                 "ORDER BY NAME";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherStationDAO.findAll");
+        int rows = -1;
+        try (Connection conn = readConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
                 stations.add(mapResultSetToStation(rs));
             }
+            rows = stations.size();
+        } finally {
+            event.finish(rows);
         }
         return stations;
     }
@@ -124,20 +339,74 @@ public class WeatherStationDAO {
                 "FROM WEATHER_STATION " +
                 "WHERE ID = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherStationDAO.findById");
+        int rows = -1;
+        try (Connection conn = readConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
 
             try (ResultSet rs = stmt.executeQuery()) {
+                rows = 0;
                 if (rs.next()) {
+                    rows = 1;
                     return mapResultSetToStation(rs);
                 }
             }
+        } finally {
+            event.finish(rows);
         }
         return null;
     }
 
+    /**
+     * Recherche la station la plus proche de coordonnées, dans un carré de tolérance.
+     *
+     * @param latitude Latitude recherchée
+     * @param longitude Longitude recherchée
+     * @param maxDelta Écart maximal en degrés sur chaque axe
+     * @return Optional contenant la station la plus proche si elle existe
+     */
+    public Optional<WeatherStation> findNearest(double latitude, double longitude, double maxDelta)
+            throws SQLException {
+        String sql = "SELECT ID, OPENWEATHERMAP_ID, NAME, COUNTRY, LATITUDE, LONGITUDE, LAST_UPDATED " +
+                "FROM WEATHER_STATION " +
+                "WHERE LATITUDE BETWEEN ? AND ? AND LONGITUDE BETWEEN ? AND ? " +
+                "ORDER BY POWER(LATITUDE - ?, 2) + POWER(LONGITUDE - ?, 2) " +
+                "FETCH FIRST 1 ROW ONLY";
+
+        SqlStatementEvent event = SqlStatementEvent.start("WeatherStationDAO.findNearest");
+        int rows = -1;
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setDouble(1, latitude - maxDelta);
+            stmt.setDouble(2, latitude + maxDelta);
+            stmt.setDouble(3, longitude - maxDelta);
+            stmt.setDouble(4, longitude + maxDelta);
+            stmt.setDouble(5, latitude);
+            stmt.setDouble(6, longitude);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                rows = 0;
+                if (rs.next()) {
+                    rows = 1;
+                    return Optional.of(mapResultSetToStation(rs));
+                }
+            }
+        } finally {
+            event.finish(rows);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Connexion pour une lecture : réplica si autorisé et assez frais, sinon primaire.
+     */
+    private Connection readConnection() throws SQLException {
+        return readFromReplicas ? DatabaseConfig.getReadConnection() : DatabaseConfig.getConnection();
+    }
+
     /**
      * Convertit un ResultSet en objet WeatherStation.
      */
@@ -0,0 +1,165 @@
+package ch.hearc.heg.scl.database;
+
+import ch.hearc.heg.scl.logging.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool de connexions JDBC minimal.
+ *
+ * Les DAO ouvrent et ferment une connexion à chaque opération (try-with-resources) : la connexion
+ * remise est un mandataire dont close() rend la connexion réelle au pool au lieu de la fermer.
+ * Plusieurs requêtes peuvent ainsi s'exécuter en parallèle sans se fermer mutuellement la connexion.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class);
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final long acquireTimeoutMillis;
+
+    private final Semaphore permits;
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param url URL JDBC
+     * @param username Utilisateur
+     * @param password Mot de passe
+     * @param maxSize Nombre maximal de connexions ouvertes
+     * @param acquireTimeoutMillis Attente maximale d'une connexion libre
+     */
+    public ConnectionPool(String url, String username, String password, int maxSize, long acquireTimeoutMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("La taille du pool doit être positive");
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Emprunte une connexion ; elle est rendue au pool par close().
+     *
+     * @throws SQLException Si aucune connexion ne se libère à temps ou si l'ouverture échoue
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Pool de connexions fermé");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Aucune connexion libre après " + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attente d'une connexion interrompue", e);
+        }
+
+        try {
+            Connection connection;
+            while ((connection = idle.poll()) != null) {
+                if (!connection.isClosed()) {
+                    return wrap(connection);
+                }
+            }
+            return wrap(DriverManager.getConnection(url, username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Ferme toutes les connexions inactives ; les connexions empruntées sont fermées à leur retour.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    private void release(Connection connection) {
+        try {
+            if (closed || connection.isClosed()) {
+                closeQuietly(connection);
+                return;
+            }
+            // Rendre la connexion dans l'état attendu par le prochain emprunteur
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            idle.add(connection);
+        } catch (SQLException e) {
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean released = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close" -> {
+                        synchronized (this) {
+                            if (!released) {
+                                released = true;
+                                release(connection);
+                            }
+                        }
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        synchronized (this) {
+                            return released || connection.isClosed();
+                        }
+                    }
+                    default -> {
+                        synchronized (this) {
+                            if (released) {
+                                throw new SQLException("Connexion déjà rendue au pool");
+                            }
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.warn("Erreur lors de la fermeture d'une connexion : {}", e.getMessage());
+        }
+    }
+}
@@ -5,6 +5,10 @@ import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -17,7 +21,11 @@ public class DatabaseConfig {
     private static String USERNAME;
     private static String PASSWORD;
     private static String API_KEY;  // ← AJOUT
-    private static Connection connection = null;
+    private static String API_URL;
+    private static final Properties PROPERTIES = new Properties();
+    private static ConnectionPool pool = null;
+    private static ReplicaSet replicas = null;
+    private static boolean replicasInitialized = false;
 
     static {
         loadConfiguration();
@@ -27,7 +35,7 @@ public class DatabaseConfig {
      * Charge la configuration depuis le fichier database.properties.
      */
     private static void loadConfiguration() {
-        Properties props = new Properties();
+        Properties props = PROPERTIES;
 
         try (InputStream input = DatabaseConfig.class.getClassLoader()
                 .getResourceAsStream("database.properties")) {
@@ -44,6 +52,7 @@ public class DatabaseConfig {
             USERNAME = props.getProperty("db.username");
             PASSWORD = props.getProperty("db.password");
             API_KEY = props.getProperty("api.key");  // ← AJOUT
+            API_URL = props.getProperty("api.url", "https://api.openweathermap.org/data/2.5/weather");
 
             // Validation
             if (URL == null || USERNAME == null || PASSWORD == null || API_KEY == null) {  // ← MODIF
@@ -60,19 +69,79 @@ public class DatabaseConfig {
     }
 
     /**
-     * Récupère la connexion à la base de données (singleton).
+     * Emprunte une connexion au pool (db.pool.size connexions au plus, 8 par défaut).
+     * La fermer la rend au pool : les DAO l'utilisent dans un try-with-resources.
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
+        return getPool().getConnection();
+    }
+
+    /**
+     * Emprunte une connexion pour une lecture pouvant tolérer un léger retard.
+     * Sans réplica configuré (db.replica.urls), c'est une connexion du primaire ; sinon celle d'un
+     * réplica dont le retard ne dépasse pas db.replica.max.lag.ms, à défaut celle du primaire.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        ReplicaSet replicaSet = getReplicas();
+        return replicaSet != null ? replicaSet.getReadConnection() : getConnection();
+    }
+
+    /**
+     * @return Le retard mesuré de chaque réplica en ms (-1 = inconnu), vide sans réplica
+     */
+    public static synchronized List<Long> getReplicaLagMillis() {
+        return replicas != null ? replicas.getLagMillis() : List.of();
+    }
+
+    private static synchronized ReplicaSet getReplicas() throws SQLException {
+        if (!replicasInitialized) {
+            List<String> urls = Arrays.stream(getProperty("db.replica.urls", "").split(","))
+                    .map(String::trim)
+                    .filter(url -> !url.isEmpty())
+                    .toList();
+            if (!urls.isEmpty()) {
+                String username = getProperty("db.replica.username", USERNAME);
+                String password = getProperty("db.replica.password", PASSWORD);
+                int poolSize = getIntProperty("db.replica.pool.size", getIntProperty("db.pool.size", 8));
+                List<ConnectionPool> pools = new ArrayList<>();
+                for (String url : urls) {
+                    pools.add(new ConnectionPool(url, username, password, poolSize,
+                            getIntProperty("db.pool.timeout.ms", 5000)));
+                }
+                replicas = new ReplicaSet(getPool(), urls, pools,
+                        Duration.ofMillis(getIntProperty("db.replica.max.lag.ms", 5000)),
+                        Duration.ofMillis(getIntProperty("db.replica.check.ms", 5000)));
+                System.out.println(urls.size() + " réplica(s) en lecture configuré(s)");
+            }
+            replicasInitialized = true;
+        }
+        return replicas;
+    }
+
+    private static synchronized ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
             try {
                 Class.forName("oracle.jdbc.driver.OracleDriver");
-                connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-                System.out.println("Connexion à la base de données établie");
             } catch (ClassNotFoundException e) {
                 throw new SQLException("Driver Oracle JDBC non trouvé", e);
             }
+            pool = new ConnectionPool(URL, USERNAME, PASSWORD,
+                    getIntProperty("db.pool.size", 8), getIntProperty("db.pool.timeout.ms", 5000));
+        }
+        return pool;
+    }
+
+    /**
+     * Ouvre une nouvelle connexion, indépendante de la connexion partagée.
+     * Utile à un composant qui gère lui-même ses transactions ; l'appelant doit la fermer.
+     */
+    public static Connection openConnection() throws SQLException {
+        try {
+            Class.forName("oracle.jdbc.driver.OracleDriver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("Driver Oracle JDBC non trouvé", e);
         }
-        return connection;
+        return DriverManager.getConnection(URL, USERNAME, PASSWORD);
     }
 
     /**
@@ -84,16 +153,80 @@ public class DatabaseConfig {
     }
 
     /**
-     * Ferme la connexion à la base de données.
+     * Récupère l'URL de l'API météo (api.url, optionnelle).
+     * Permet de pointer le serveur vers un bouchon local pour les tests de charge.
+     * @return L'URL de base de l'API
      */
-    public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                System.out.println("Connexion à la base de données fermée");
-            } catch (SQLException e) {
-                System.err.println("Erreur lors de la fermeture de la connexion : " + e.getMessage());
-            }
+    public static String getApiUrl() {
+        return API_URL;
+    }
+
+    /**
+     * Récupère un paramètre optionnel de la configuration.
+     * Une propriété système de même nom (-Dcle=valeur) l'emporte sur le fichier, ce qui permet
+     * de lancer plusieurs serveurs (shards) avec le même database.properties.
+     *
+     * @param key Nom du paramètre
+     * @param defaultValue Valeur si le paramètre est absent
+     * @return La valeur configurée ou la valeur par défaut
+     */
+    public static String getProperty(String key, String defaultValue) {
+        String value = System.getProperty(key, PROPERTIES.getProperty(key));
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Récupère un paramètre entier optionnel de la configuration.
+     *
+     * @param key Nom du paramètre
+     * @param defaultValue Valeur si le paramètre est absent
+     * @return La valeur configurée ou la valeur par défaut
+     * @throws IllegalStateException Si la valeur n'est pas un entier
+     */
+    public static int getIntProperty(String key, int defaultValue) {
+        String value = System.getProperty(key, PROPERTIES.getProperty(key));
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Valeur entière invalide pour " + key + " : " + value);
+        }
+    }
+
+    /**
+     * Récupère un paramètre décimal optionnel de la configuration.
+     *
+     * @param key Nom du paramètre
+     * @param defaultValue Valeur si le paramètre est absent
+     * @return La valeur configurée ou la valeur par défaut
+     * @throws IllegalStateException Si la valeur n'est pas un nombre
+     */
+    public static double getDoubleProperty(String key, double defaultValue) {
+        String value = System.getProperty(key, PROPERTIES.getProperty(key));
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Valeur décimale invalide pour " + key + " : " + value);
+        }
+    }
+
+    /**
+     * Ferme les connexions à la base de données.
+     */
+    public static synchronized void closeConnection() {
+        if (replicas != null) {
+            replicas.close();
+            replicas = null;
+        }
+        if (pool != null) {
+            pool.close();
+            pool = null;
+            System.out.println("Connexions à la base de données fermées");
         }
     }
 }
\ No newline at end of file
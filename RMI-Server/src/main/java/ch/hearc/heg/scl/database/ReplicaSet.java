@@ -0,0 +1,156 @@
+package ch.hearc.heg.scl.database;
+
+import ch.hearc.heg.scl.logging.Logger;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Réplicas en lecture de la base, chacun avec son pool de connexions.
+ *
+ * Le retard de chaque réplica est mesuré périodiquement en comparant la dernière date de mise à jour
+ * des stations (MAX(LAST_UPDATED)) sur le primaire et sur le réplica. Une lecture est confiée, à tour
+ * de rôle, à un réplica dont le retard ne dépasse pas la tolérance ; s'il n'y en a aucun (réplica en
+ * retard, injoignable ou en erreur), la lecture part sur le primaire.
+ */
+class ReplicaSet implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ReplicaSet.class);
+    private static final String FRESHNESS_SQL = "SELECT MAX(LAST_UPDATED) FROM WEATHER_STATION";
+
+    /**
+     * Un réplica et son dernier état mesuré.
+     */
+    private static final class Replica {
+        final String url;
+        final ConnectionPool pool;
+        volatile boolean usable = false;  // Inutilisable tant que le premier contrôle n'a pas eu lieu
+        volatile long lagMillis = -1;
+
+        Replica(String url, ConnectionPool pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+    }
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService checker;
+
+    /**
+     * @param primary Pool du primaire (référence pour le retard et repli)
+     * @param urls URL JDBC des réplicas (pour les messages)
+     * @param replicaPools Pool de chaque réplica, dans l'ordre des URL
+     * @param maxLag Retard toléré d'un réplica
+     * @param checkInterval Intervalle entre deux mesures du retard
+     */
+    ReplicaSet(ConnectionPool primary, List<String> urls, List<ConnectionPool> replicaPools,
+               Duration maxLag, Duration checkInterval) {
+        this.primary = primary;
+        for (int i = 0; i < urls.size(); i++) {
+            replicas.add(new Replica(urls.get(i), replicaPools.get(i)));
+        }
+        this.maxLagMillis = maxLag.toMillis();
+        this.checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::checkLag, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Emprunte une connexion de lecture : un réplica assez frais, sinon le primaire.
+     */
+    Connection getReadConnection() throws SQLException {
+        int count = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (!replica.usable) {
+                continue;
+            }
+            try {
+                return replica.pool.getConnection();
+            } catch (SQLException e) {
+                // Réplica injoignable : écarté jusqu'au prochain contrôle
+                replica.usable = false;
+                LOG.warn("Réplica {} écarté : {}", replica.url, e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * @return Le retard mesuré de chaque réplica en ms (-1 = inconnu ou injoignable)
+     */
+    List<Long> getLagMillis() {
+        List<Long> lags = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            lags.add(replica.lagMillis);
+        }
+        return lags;
+    }
+
+    @Override
+    public void close() {
+        checker.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    private void checkLag() {
+        Timestamp primaryLatest;
+        try {
+            primaryLatest = latestUpdate(primary);
+        } catch (SQLException e) {
+            LOG.warn("Contrôle des réplicas impossible (primaire) : {}", e.getMessage());
+            return;
+        }
+
+        for (Replica replica : replicas) {
+            try {
+                Timestamp replicaLatest = latestUpdate(replica.pool);
+                long lag = 0;
+                if (primaryLatest != null) {
+                    lag = replicaLatest == null ? Long.MAX_VALUE
+                            : Math.max(0, primaryLatest.getTime() - replicaLatest.getTime());
+                }
+                boolean usable = lag <= maxLagMillis;
+                if (usable != replica.usable) {
+                    LOG.info("Réplica {} {} (retard {})", replica.url, usable ? "utilisé" : "écarté",
+                            lag == Long.MAX_VALUE ? "inconnu" : lag + " ms");
+                }
+                replica.lagMillis = lag == Long.MAX_VALUE ? -1 : lag;
+                replica.usable = usable;
+            } catch (SQLException e) {
+                if (replica.usable) {
+                    LOG.warn("Réplica {} écarté : {}", replica.url, e.getMessage());
+                }
+                replica.lagMillis = -1;
+                replica.usable = false;
+            }
+        }
+    }
+
+    private static Timestamp latestUpdate(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(FRESHNESS_SQL)) {
+            return rs.next() ? rs.getTimestamp(1) : null;
+        }
+    }
+}
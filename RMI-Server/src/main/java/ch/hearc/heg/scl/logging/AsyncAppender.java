@@ -0,0 +1,222 @@
+package ch.hearc.heg.scl.logging;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Écrit les messages du journal sur la console depuis un thread dédié.
+ *
+ * Les messages sont déposés dans un anneau de cases préallouées : l'appelant ne fait que réserver
+ * une case (un compare-and-set) et y ranger le modèle et ses arguments, sans rien formater ni
+ * allouer. Le thread « log-writer » formate ensuite les messages et les écrit sur System.out
+ * (DEBUG, INFO) ou System.err (WARN, ERROR). Si l'anneau est plein, le message est abandonné et
+ * compté : une console lente ne bloque jamais un thread RMI. Le nombre de messages perdus est
+ * signalé dès que l'écriture rattrape son retard.
+ *
+ * Les arguments sont convertis en texte au moment de l'écriture : ils ne doivent pas être modifiés
+ * après l'appel (chaînes, nombres, dates et objets immuables).
+ */
+final class AsyncAppender {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final long IDLE_PARK_NANOS = 100_000_000L;
+
+    /**
+     * Case de l'anneau, réutilisée à chaque tour.
+     */
+    private static final class Slot {
+        volatile long sequence = -1;  // Numéro du message publié dans la case
+        long timeMillis;
+        Level level;
+        String loggerName;
+        String threadName;
+        String pattern;
+        Object arg1;
+        Object arg2;
+        Object[] args;  // Tous les arguments s'il y en a plus de deux (null sinon)
+        int argCount;
+
+        void clear() {
+            loggerName = null;
+            threadName = null;
+            pattern = null;
+            arg1 = null;
+            arg2 = null;
+            args = null;
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();     // Prochain numéro à réserver
+    private volatile long consumed = 0;                      // Prochain numéro à écrire
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean writerParked = false;
+    private volatile boolean closed = false;
+
+    private final StringBuilder line = new StringBuilder(256);  // Sous son propre verrou
+    private long droppedReported = 0;
+
+    /**
+     * @param capacity Nombre de messages en attente au plus (arrondi à la puissance de deux supérieure)
+     */
+    AsyncAppender(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.writerThread = new Thread(this::run, "log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Dépose un message. Ne bloque jamais ; après close(), le message est écrit directement.
+     */
+    void append(Level level, String loggerName, String pattern, int argCount, Object arg1, Object arg2,
+                Object[] args) {
+        if (closed) {
+            synchronized (line) {
+                line.setLength(0);
+                format(line, System.currentTimeMillis(), level, loggerName, Thread.currentThread().getName(),
+                        pattern, argCount, arg1, arg2, args);
+                streamFor(level).println(line);
+            }
+            return;
+        }
+
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.timeMillis = System.currentTimeMillis();
+        slot.level = level;
+        slot.loggerName = loggerName;
+        slot.threadName = Thread.currentThread().getName();
+        slot.pattern = pattern;
+        slot.argCount = argCount;
+        slot.arg1 = arg1;
+        slot.arg2 = arg2;
+        slot.args = args;
+        slot.sequence = sequence;  // Publication : le thread d'écriture peut lire la case
+
+        if (writerParked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Écrit les messages en attente puis arrête le thread d'écriture. Les messages suivants
+     * sont écrits directement par l'appelant.
+     */
+    void close() {
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long next = 0;
+        boolean pendingFlush = false;
+        while (true) {
+            Slot slot = slots[(int) (next & mask)];
+            if (slot.sequence == next) {
+                synchronized (line) {
+                    line.setLength(0);
+                    format(line, slot.timeMillis, slot.level, slot.loggerName, slot.threadName,
+                            slot.pattern, slot.argCount, slot.arg1, slot.arg2, slot.args);
+                    streamFor(slot.level).append(line).append(System.lineSeparator());
+                }
+                slot.clear();
+                next++;
+                consumed = next;  // Libère la case pour les appelants
+                written.incrementAndGet();
+                pendingFlush = true;
+                continue;
+            }
+
+            // Anneau vide (ou case réservée mais pas encore publiée)
+            if (pendingFlush) {
+                System.out.flush();
+                System.err.flush();
+                pendingFlush = false;
+            }
+            reportDropped();
+            if (closed && claimed.get() == next) {
+                return;
+            }
+            writerParked = true;
+            if (slots[(int) (next & mask)].sequence != next) {
+                LockSupport.parkNanos(this, closed ? 1_000_000L : IDLE_PARK_NANOS);
+            }
+            writerParked = false;
+        }
+    }
+
+    private void reportDropped() {
+        long total = dropped.get();
+        if (total > droppedReported) {
+            System.err.println(LocalDateTime.now().format(TIME_FORMAT) + " WARN  [log-writer] "
+                    + (total - droppedReported) + " message(s) du journal perdu(s) (file pleine)");
+            droppedReported = total;
+        }
+    }
+
+    private static PrintStream streamFor(Level level) {
+        return level.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+    }
+
+    /**
+     * Formate une ligne : date, niveau, nom du journal, thread, puis le message dont chaque {}
+     * est remplacé par l'argument suivant.
+     */
+    private static void format(StringBuilder out, long timeMillis, Level level, String loggerName,
+                               String threadName, String pattern, int argCount, Object arg1, Object arg2,
+                               Object[] args) {
+        TIME_FORMAT.formatTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), ZoneId.systemDefault()), out);
+        out.append(' ').append(level.name());
+        for (int i = level.name().length(); i < 5; i++) {
+            out.append(' ');
+        }
+        out.append(" [").append(loggerName).append("] (").append(threadName).append(") ");
+
+        int argIndex = 0;
+        int start = 0;
+        int placeholder;
+        while (argIndex < argCount && (placeholder = pattern.indexOf("{}", start)) >= 0) {
+            out.append(pattern, start, placeholder);
+            Object arg = args != null ? args[argIndex] : argIndex == 0 ? arg1 : arg2;
+            out.append(arg);
+            argIndex++;
+            start = placeholder + 2;
+        }
+        out.append(pattern, start, pattern.length());
+    }
+}
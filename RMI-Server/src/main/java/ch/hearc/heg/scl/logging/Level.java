@@ -0,0 +1,22 @@
+package ch.hearc.heg.scl.logging;
+
+import java.util.Locale;
+
+/**
+ * Niveau d'un message du journal, du plus détaillé au plus grave.
+ */
+public enum Level {
+    DEBUG, INFO, WARN, ERROR;
+
+    /**
+     * @param name Nom du niveau, sans tenir compte de la casse
+     * @throws IllegalStateException Si le nom ne correspond à aucun niveau
+     */
+    public static Level parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Niveau de journal invalide : " + name);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package ch.hearc.heg.scl.logging;
+
+import ch.hearc.heg.scl.database.DatabaseConfig;
+
+/**
+ * Journal d'un composant du serveur.
+ *
+ * Les messages sont des modèles dont chaque {} est remplacé par l'argument suivant :
+ * <pre>LOG.info("Station mise à jour : {}", station.getName());</pre>
+ * Un message d'un niveau inférieur à log.level (INFO par défaut) est ignoré avant toute
+ * concaténation ou formatage. Les autres sont confiés à un AsyncAppender commun (log.buffer.size
+ * messages en attente au plus, 8192 par défaut) : l'appelant n'écrit jamais sur la console.
+ *
+ * Les variantes à un et deux arguments évitent l'allocation d'un tableau.
+ */
+public final class Logger {
+
+    /**
+     * Configuration lue au premier message.
+     */
+    private static final class Holder {
+        static final Level THRESHOLD = Level.parse(DatabaseConfig.getProperty("log.level", "INFO"));
+        static final AsyncAppender APPENDER = new AsyncAppender(DatabaseConfig.getIntProperty("log.buffer.size", 8192));
+    }
+
+    private final String name;
+
+    private Logger(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param owner Classe du composant (son nom simple identifie les messages)
+     */
+    public static Logger getLogger(Class<?> owner) {
+        return new Logger(owner.getSimpleName());
+    }
+
+    /**
+     * @return Le nombre de messages abandonnés parce que la file d'écriture était pleine
+     */
+    public static long getDroppedCount() {
+        return Holder.APPENDER.getDroppedCount();
+    }
+
+    /**
+     * @return Le nombre de messages écrits par le thread d'écriture
+     */
+    public static long getWrittenCount() {
+        return Holder.APPENDER.getWrittenCount();
+    }
+
+    /**
+     * Écrit les messages en attente. À appeler à l'arrêt du serveur ; les messages suivants sont
+     * écrits directement.
+     */
+    public static void shutdown() {
+        Holder.APPENDER.close();
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(Holder.THRESHOLD) >= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String message) {
+        log(Level.DEBUG, message);
+    }
+
+    public void debug(String pattern, Object arg) {
+        log(Level.DEBUG, pattern, arg);
+    }
+
+    public void debug(String pattern, Object arg1, Object arg2) {
+        log(Level.DEBUG, pattern, arg1, arg2);
+    }
+
+    public void debug(String pattern, Object... args) {
+        log(Level.DEBUG, pattern, args);
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public void info(String pattern, Object arg) {
+        log(Level.INFO, pattern, arg);
+    }
+
+    public void info(String pattern, Object arg1, Object arg2) {
+        log(Level.INFO, pattern, arg1, arg2);
+    }
+
+    public void info(String pattern, Object... args) {
+        log(Level.INFO, pattern, args);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public void warn(String pattern, Object arg) {
+        log(Level.WARN, pattern, arg);
+    }
+
+    public void warn(String pattern, Object arg1, Object arg2) {
+        log(Level.WARN, pattern, arg1, arg2);
+    }
+
+    public void warn(String pattern, Object... args) {
+        log(Level.WARN, pattern, args);
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    public void error(String pattern, Object arg) {
+        log(Level.ERROR, pattern, arg);
+    }
+
+    public void error(String pattern, Object arg1, Object arg2) {
+        log(Level.ERROR, pattern, arg1, arg2);
+    }
+
+    public void error(String pattern, Object... args) {
+        log(Level.ERROR, pattern, args);
+    }
+
+    private void log(Level level, String message) {
+        if (isEnabled(level)) {
+            Holder.APPENDER.append(level, name, message, 0, null, null, null);
+        }
+    }
+
+    private void log(Level level, String pattern, Object arg) {
+        if (isEnabled(level)) {
+            Holder.APPENDER.append(level, name, pattern, 1, arg, null, null);
+        }
+    }
+
+    private void log(Level level, String pattern, Object arg1, Object arg2) {
+        if (isEnabled(level)) {
+            Holder.APPENDER.append(level, name, pattern, 2, arg1, arg2, null);
+        }
+    }
+
+    private void log(Level level, String pattern, Object[] args) {
+        if (isEnabled(level)) {
+            Holder.APPENDER.append(level, name, pattern, args.length, null, null, args);
+        }
+    }
+}
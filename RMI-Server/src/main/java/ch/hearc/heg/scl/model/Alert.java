@@ -0,0 +1,83 @@
+package ch.hearc.heg.scl.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Alerte émise par le serveur quand une règle se déclenche pour une station.
+ * Envoyée aux écouteurs enregistrés par subscribeAlerts().
+ */
+public class Alert implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int ruleId;
+    private final String ruleName;
+    private final int stationId;
+    private final String stationName;
+    private final AlertRule.Metric metric;
+    private final AlertRule.Condition condition;
+    private final double value;          // Valeur de la mesure déclenchante
+    private final double reference;      // Seuil (ABOVE/BELOW) ou extrême de la fenêtre (RISE/DROP)
+    private final LocalDateTime timestamp;  // Date de la mesure déclenchante
+
+    public Alert(int ruleId, String ruleName, int stationId, String stationName, AlertRule.Metric metric,
+                 AlertRule.Condition condition, double value, double reference, LocalDateTime timestamp) {
+        this.ruleId = ruleId;
+        this.ruleName = ruleName;
+        this.stationId = stationId;
+        this.stationName = stationName;
+        this.metric = metric;
+        this.condition = condition;
+        this.value = value;
+        this.reference = reference;
+        this.timestamp = timestamp;
+    }
+
+    public int getRuleId() {
+        return ruleId;
+    }
+
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    public int getStationId() {
+        return stationId;
+    }
+
+    public String getStationName() {
+        return stationName;
+    }
+
+    public AlertRule.Metric getMetric() {
+        return metric;
+    }
+
+    public AlertRule.Condition getCondition() {
+        return condition;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getReference() {
+        return reference;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "Alert{" +
+                "rule='" + ruleName + '\'' +
+                ", station=" + stationName + " (" + stationId + ")" +
+                ", " + metric + " " + condition +
+                ", value=" + value +
+                ", reference=" + reference +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package ch.hearc.heg.scl.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Ensemble des modifications survenues depuis une version donnée.
+ * Retourné par getChangesSince() pour synchroniser un miroir côté client.
+ *
+ * Si fullResync est vrai, la version demandée n'est plus connue du serveur :
+ * stations contient alors toutes les stations et readings la dernière mesure de chacune,
+ * et le client doit remplacer entièrement son miroir.
+ */
+public class ChangeSet implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long version;                 // Version à transmettre au prochain appel
+    private final boolean fullResync;           // Vrai si le miroir doit être reconstruit
+    private final List<WeatherStation> stations;  // Stations nouvelles ou modifiées
+    private final List<WeatherData> readings;     // Nouvelles mesures
+
+    public ChangeSet(long version, boolean fullResync, List<WeatherStation> stations, List<WeatherData> readings) {
+        this.version = version;
+        this.fullResync = fullResync;
+        this.stations = stations;
+        this.readings = readings;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isFullResync() {
+        return fullResync;
+    }
+
+    public List<WeatherStation> getStations() {
+        return stations;
+    }
+
+    public List<WeatherData> getReadings() {
+        return readings;
+    }
+
+    public boolean isEmpty() {
+        return stations.isEmpty() && readings.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" +
+                "version=" + version +
+                ", fullResync=" + fullResync +
+                ", stations=" + stations.size() +
+                ", readings=" + readings.size() +
+                '}';
+    }
+}
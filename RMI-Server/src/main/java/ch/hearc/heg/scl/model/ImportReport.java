@@ -0,0 +1,78 @@
+package ch.hearc.heg.scl.model;
+
+import java.io.Serializable;
+
+/**
+ * Bilan d'un import de stations en masse.
+ * Retourné par importStations().
+ */
+public class ImportReport implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int parsedRows;      // Lignes valides lues dans le fichier
+    private final int invalidRows;     // Lignes ignorées (champ manquant ou invalide)
+    private final int duplicateRows;   // Doublons dans le fichier (même ID OpenWeatherMap)
+    private final int insertedRows;    // Stations créées
+    private final int existingRows;    // Stations déjà en base, laissées telles quelles
+    private final long parseMillis;    // Durée de la lecture du fichier
+    private final long insertMillis;   // Durée de l'écriture en base
+
+    public ImportReport(int parsedRows, int invalidRows, int duplicateRows, int insertedRows,
+                        int existingRows, long parseMillis, long insertMillis) {
+        this.parsedRows = parsedRows;
+        this.invalidRows = invalidRows;
+        this.duplicateRows = duplicateRows;
+        this.insertedRows = insertedRows;
+        this.existingRows = existingRows;
+        this.parseMillis = parseMillis;
+        this.insertMillis = insertMillis;
+    }
+
+    public int getParsedRows() {
+        return parsedRows;
+    }
+
+    public int getInvalidRows() {
+        return invalidRows;
+    }
+
+    public int getDuplicateRows() {
+        return duplicateRows;
+    }
+
+    public int getInsertedRows() {
+        return insertedRows;
+    }
+
+    public int getExistingRows() {
+        return existingRows;
+    }
+
+    public long getParseMillis() {
+        return parseMillis;
+    }
+
+    public long getInsertMillis() {
+        return insertMillis;
+    }
+
+    /**
+     * @return Débit de l'import complet (lecture et écriture) en lignes lues par seconde
+     */
+    public double getRowsPerSecond() {
+        long totalMillis = parseMillis + insertMillis;
+        return totalMillis > 0 ? parsedRows * 1000.0 / totalMillis : parsedRows;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport{" +
+                "parsed=" + parsedRows +
+                ", invalid=" + invalidRows +
+                ", duplicates=" + duplicateRows +
+                ", inserted=" + insertedRows +
+                ", existing=" + existingRows +
+                ", rowsPerSecond=" + String.format("%.0f", getRowsPerSecond()) +
+                '}';
+    }
+}
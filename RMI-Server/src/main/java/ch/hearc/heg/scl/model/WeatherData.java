@@ -20,6 +20,7 @@ public class WeatherData implements Serializable {
     private String icon;                   // Code icône OpenWeatherMap (ex: "01d")
     private double windSpeed;              // Vitesse du vent en m/s
     private LocalDateTime timestamp;       // Date/heure de la mesure
+    private LocalDateTime validUntil;      // Dernière mesure identique confirmant celle-ci (null si aucune)
     
     // Constructeur vide
     public WeatherData() {
@@ -120,6 +121,21 @@ public class WeatherData implements Serializable {
     public void setTimestamp(LocalDateTime timestamp) {
         this.timestamp = timestamp;
     }
+
+    public LocalDateTime getValidUntil() {
+        return validUntil;
+    }
+
+    public void setValidUntil(LocalDateTime validUntil) {
+        this.validUntil = validUntil;
+    }
+
+    /**
+     * @return La date jusqu'à laquelle la mesure est confirmée : validUntil, ou à défaut timestamp
+     */
+    public LocalDateTime getObservedUntil() {
+        return validUntil != null ? validUntil : timestamp;
+    }
     
     @Override
     public String toString() {
@@ -131,6 +147,7 @@ public class WeatherData implements Serializable {
                 ", description='" + description + '\'' +
                 ", windSpeed=" + windSpeed + "m/s" +
                 ", timestamp=" + timestamp +
+                (validUntil != null ? ", validUntil=" + validUntil : "") +
                 '}';
     }
 }
\ No newline at end of file
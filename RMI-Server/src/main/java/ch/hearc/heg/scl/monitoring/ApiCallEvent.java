@@ -0,0 +1,62 @@
+package ch.hearc.heg.scl.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Événement JFR : un appel à l'API OpenWeatherMap (ou sa relecture depuis l'archive).
+ */
+@Name("ch.hearc.heg.scl.ApiCall")
+@Label("Appel API météo")
+@Category({"Service météo", "API"})
+@Description("Requête à OpenWeatherMap : clé de la requête, statut HTTP, taille de la réponse")
+@StackTrace(false)
+public class ApiCallEvent extends jdk.jfr.Event {
+
+    @Label("Requête")
+    @Description("Paramètres de la requête, sans la clé API")
+    String urlKey;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Statut HTTP")
+    @Description("0 si aucune réponse (délai dépassé, erreur réseau)")
+    int status;
+
+    @Label("Taille de la réponse")
+    @DataAmount
+    long bytes;
+
+    /**
+     * Démarre la mesure d'un appel. Presque gratuit si l'événement n'est pas enregistré.
+     */
+    public static ApiCallEvent start(String urlKey, String mode) {
+        ApiCallEvent event = new ApiCallEvent();
+        event.begin();
+        event.urlKey = urlKey;
+        event.mode = mode;
+        return event;
+    }
+
+    /**
+     * Termine la mesure et enregistre l'événement si JFR le demande.
+     *
+     * @param status Statut HTTP (0 si aucune réponse)
+     * @param body Corps de la réponse (null si aucune réponse)
+     */
+    public void finish(int status, String body) {
+        end();
+        if (shouldCommit()) {
+            this.status = status;
+            this.bytes = body != null ? body.getBytes(StandardCharsets.UTF_8).length : 0;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ch.hearc.heg.scl.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Événement JFR : l'exécution d'une méthode distante du service, attente de la cloison comprise.
+ * La (dé)sérialisation des paramètres et du résultat par RMI se fait hors de cet intervalle.
+ */
+@Name("ch.hearc.heg.scl.RmiMethod")
+@Label("Méthode RMI")
+@Category({"Service météo", "RMI"})
+@Description("Appel d'une méthode de WeatherService : attente d'une place, issue")
+@StackTrace(false)
+public class RmiMethodEvent extends jdk.jfr.Event {
+
+    public static final String OK = "ok";
+    public static final String REJECTED = "rejected";
+    public static final String ERROR = "error";
+
+    @Label("Méthode")
+    String method;
+
+    @Label("Attente")
+    @Description("Temps passé à attendre une place dans la cloison de la méthode")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+
+    @Label("Issue")
+    @Description("ok, rejected (cloison saturée) ou error")
+    String outcome;
+
+    /**
+     * Démarre la mesure d'un appel. Presque gratuit si l'événement n'est pas enregistré.
+     */
+    public static RmiMethodEvent start(String method) {
+        RmiMethodEvent event = new RmiMethodEvent();
+        event.begin();
+        event.method = method;
+        return event;
+    }
+
+    /**
+     * Termine la mesure et enregistre l'événement si JFR le demande.
+     *
+     * @param queueNanos Attente d'une place dans la cloison (0 sans cloison)
+     * @param outcome OK, REJECTED ou ERROR
+     */
+    public void finish(long queueNanos, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.queueTime = queueNanos;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
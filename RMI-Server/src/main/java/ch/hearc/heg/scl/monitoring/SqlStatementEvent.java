@@ -0,0 +1,54 @@
+package ch.hearc.heg.scl.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Événement JFR : une instruction SQL d'un DAO, de l'emprunt de la connexion à la lecture
+ * de la dernière ligne.
+ */
+@Name("ch.hearc.heg.scl.SqlStatement")
+@Label("Instruction SQL")
+@Category({"Service météo", "Base de données"})
+@Description("Instruction exécutée par un DAO : nom, lignes lues ou écrites")
+@StackTrace(false)
+@Threshold("1 ms")
+public class SqlStatementEvent extends jdk.jfr.Event {
+
+    @Label("Instruction")
+    @Description("Classe et méthode du DAO")
+    String statement;
+
+    @Label("Lignes")
+    @Description("Lignes lues ou écrites, -1 en cas d'erreur")
+    int rows;
+
+    /**
+     * Démarre la mesure d'une instruction. Presque gratuit si l'événement n'est pas enregistré.
+     *
+     * @param statement Nom de l'instruction (ex. WeatherStationDAO.findAll)
+     */
+    public static SqlStatementEvent start(String statement) {
+        SqlStatementEvent event = new SqlStatementEvent();
+        event.begin();
+        event.statement = statement;
+        return event;
+    }
+
+    /**
+     * Termine la mesure et enregistre l'événement si JFR le demande.
+     *
+     * @param rows Lignes lues ou écrites, -1 si l'instruction a échoué
+     */
+    public void finish(int rows) {
+        end();
+        if (shouldCommit()) {
+            this.rows = rows;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ch.hearc.heg.scl.rmi;
+
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.Alert;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gère les écouteurs d'alertes des clients.
+ *
+ * Comme pour les mesures (SubscriptionManager), la publication dépose l'alerte dans la file
+ * de chaque écouteur et l'envoi RMI se fait en arrière-plan ; un écouteur injoignable est retiré.
+ */
+public class AlertSubscriptionManager {
+
+    private static final Logger LOG = Logger.getLogger(AlertSubscriptionManager.class);
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final Map<AlertListener, ListenerQueue<Alert>> listeners = new ConcurrentHashMap<>();
+    private final ExecutorService deliveryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Enregistre un écouteur. Sans effet s'il l'est déjà.
+     */
+    public void subscribe(AlertListener listener) {
+        listeners.computeIfAbsent(listener, key -> new ListenerQueue<>(
+                listener::onAlert,
+                QUEUE_CAPACITY,
+                deliveryExecutor,
+                () -> removeUnreachable(listener)
+        ));
+        LOG.info("Écouteur d'alertes enregistré ({} écouteur(s))", listeners.size());
+    }
+
+    /**
+     * Retire un écouteur.
+     */
+    public void unsubscribe(AlertListener listener) {
+        ListenerQueue<Alert> removed = listeners.remove(listener);
+        if (removed != null) {
+            removed.close();
+        }
+    }
+
+    /**
+     * Publie une alerte vers tous les écouteurs. Ne bloque jamais.
+     */
+    public void publish(Alert alert) {
+        for (ListenerQueue<Alert> queue : listeners.values()) {
+            queue.offer(alert);
+        }
+    }
+
+    /**
+     * @return Le nombre total d'alertes abandonnées pour les écouteurs actuels
+     */
+    public long getDroppedCount() {
+        return listeners.values().stream().mapToLong(ListenerQueue::getDroppedCount).sum();
+    }
+
+    /**
+     * Ferme toutes les files et arrête l'envoi.
+     */
+    public void shutdown() {
+        listeners.values().forEach(ListenerQueue::close);
+        listeners.clear();
+        deliveryExecutor.shutdownNow();
+    }
+
+    private void removeUnreachable(AlertListener listener) {
+        if (listeners.remove(listener) != null) {
+            LOG.warn("Écouteur d'alertes injoignable, retiré");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ch.hearc.heg.scl.rmi;
+
+import ch.hearc.heg.scl.monitoring.RmiMethodEvent;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cloison limitant le nombre d'exécutions simultanées d'une méthode distante.
+ *
+ * RMI crée un thread par appel entrant, sans limite. Chaque méthode a donc ses propres places
+ * d'exécution et sa propre file d'attente bornée : une rafale d'appels coûteux ne peut pas
+ * épuiser les connexions à la base ni affamer les lectures bon marché.
+ * Quand la file est pleine, ou que l'attente dépasse le délai, l'appel est rejeté immédiatement
+ * par une ServiceOverloadedException.
+ *
+ * Chaque appel est mesuré par un événement JFR RmiMethod (attente comprise).
+ */
+class Bulkhead {
+
+    /**
+     * Corps d'une méthode distante exécuté dans la cloison.
+     */
+    @FunctionalInterface
+    interface RemoteCall<T> {
+        T call() throws RemoteException;
+    }
+
+    private final String name;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitMillis;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name Nom de la méthode protégée
+     * @param maxConcurrent Nombre maximal d'exécutions simultanées
+     * @param maxQueued Nombre maximal d'appels en attente d'une place
+     * @param maxWaitMillis Durée maximale d'attente d'une place
+     */
+    Bulkhead(String name, int maxConcurrent, int maxQueued, long maxWaitMillis) {
+        if (maxConcurrent <= 0 || maxQueued < 0) {
+            throw new IllegalArgumentException("Limites invalides pour " + name);
+        }
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Exécute l'appel dès qu'une place est libre.
+     *
+     * @throws ServiceOverloadedException Si la file d'attente est pleine ou l'attente trop longue
+     */
+    <T> T call(RemoteCall<T> call) throws RemoteException {
+        RmiMethodEvent event = RmiMethodEvent.start(name);
+        long queueNanos;
+        try {
+            queueNanos = acquire();
+        } catch (ServiceOverloadedException e) {
+            event.finish(0, RmiMethodEvent.REJECTED);
+            throw e;
+        }
+
+        String outcome = RmiMethodEvent.ERROR;
+        try {
+            T result = call.call();
+            outcome = RmiMethodEvent.OK;
+            return result;
+        } finally {
+            permits.release();
+            event.finish(queueNanos, outcome);
+        }
+    }
+
+    /**
+     * @return Le temps passé à attendre une place, en ns (0 si une place était libre)
+     */
+    private long acquire() throws ServiceOverloadedException {
+        if (permits.tryAcquire()) {
+            return 0;
+        }
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw reject("file d'attente pleine");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw reject("délai d'attente dépassé");
+            }
+            return System.nanoTime() - start;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("attente interrompue");
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private ServiceOverloadedException reject(String reason) {
+        rejected.incrementAndGet();
+        return new ServiceOverloadedException("Serveur saturé pour " + name + " (" + reason
+                + "), veuillez réessayer plus tard");
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return Le nombre d'appels en cours d'exécution
+     */
+    int getActiveCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @return Le nombre d'appels en attente d'une place
+     */
+    int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * @return Le nombre d'appels rejetés depuis le démarrage
+     */
+    long getRejectedCount() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,111 @@
+package ch.hearc.heg.scl.rmi;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * File d'envoi asynchrone vers un écouteur distant.
+ *
+ * Les événements sont déposés sans jamais bloquer l'appelant et envoyés dans l'ordre
+ * par une seule tâche à la fois sur l'exécuteur fourni. Si la file est pleine
+ * (client lent ou bloqué), les nouveaux événements sont abandonnés et comptés.
+ * Une erreur RMI lors de l'envoi ferme la file et déclenche le callback d'échec.
+ *
+ * @param <T> Type des événements transmis
+ */
+class ListenerQueue<T> {
+
+    /**
+     * Envoi d'un événement à l'écouteur distant.
+     */
+    @FunctionalInterface
+    interface Sender<T> {
+        void send(T event) throws RemoteException;
+    }
+
+    private final Sender<T> sender;
+    private final BlockingQueue<T> queue;
+    private final Executor executor;
+    private final Runnable onFailure;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * @param sender Envoi effectif vers l'écouteur distant
+     * @param capacity Nombre maximal d'événements en attente
+     * @param executor Exécuteur sur lequel les envois sont effectués
+     * @param onFailure Appelé une seule fois si l'écouteur devient injoignable
+     */
+    ListenerQueue(Sender<T> sender, int capacity, Executor executor, Runnable onFailure) {
+        this.sender = sender;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.executor = executor;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Dépose un événement sans bloquer.
+     *
+     * @param event L'événement à envoyer
+     * @return false si l'événement a été abandonné (file pleine ou fermée)
+     */
+    boolean offer(T event) {
+        if (closed) {
+            return false;
+        }
+        if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        schedule();
+        return true;
+    }
+
+    /**
+     * Ferme la file : les événements en attente sont abandonnés.
+     */
+    void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    /**
+     * @return Le nombre d'événements abandonnés faute de place
+     */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Vide la file en envoyant les événements un par un à l'écouteur.
+     */
+    private void drain() {
+        try {
+            T event;
+            while (!closed && (event = queue.poll()) != null) {
+                sender.send(event);
+            }
+        } catch (RemoteException e) {
+            close();
+            onFailure.run();
+        } finally {
+            scheduled.set(false);
+            // Un événement a pu arriver entre la fin de la boucle et la remise à zéro
+            if (!closed && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ch.hearc.heg.scl.rmi;
+
+import ch.hearc.heg.scl.dao.WeatherDataDAO;
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.WeatherData;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.rmi.server.UnicastRemoteObject;
+import java.rmi.server.Unreferenced;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Curseur d'export exporté pour un client : chaque appel de nextChunk() lit au plus chunkRows
+ * mesures du curseur JDBC et les renvoie encodées (ExportChunks).
+ *
+ * Le curseur est fermé et désexporté à la fin de l'export, sur demande du client ou, si le client
+ * a disparu, quand le ramasse-miettes distribué le signale (Unreferenced).
+ */
+class ReadingExportCursor extends UnicastRemoteObject implements ExportCursor, Unreferenced {
+
+    private static final Logger LOG = Logger.getLogger(ReadingExportCursor.class);
+
+    private final WeatherDataDAO.HistoryCursor cursor;
+    private final int chunkRows;
+    private final Runnable onClose;
+    private boolean closed = false;
+    private long rowsSent = 0;
+
+    /**
+     * @param cursor Curseur JDBC ouvert, fermé avec ce curseur
+     * @param chunkRows Nombre maximal de mesures par bloc
+     * @param onClose Appelé une fois, à la fermeture
+     */
+    ReadingExportCursor(WeatherDataDAO.HistoryCursor cursor, int chunkRows, Runnable onClose,
+                        int exportPort, RMIClientSocketFactory clientSocketFactory,
+                        RMIServerSocketFactory serverSocketFactory) throws RemoteException {
+        super(exportPort, clientSocketFactory, serverSocketFactory);
+        this.cursor = cursor;
+        this.chunkRows = chunkRows;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public synchronized byte[] nextChunk() throws RemoteException {
+        if (closed) {
+            return null;
+        }
+
+        List<WeatherData> chunk = new ArrayList<>(chunkRows);
+        try {
+            WeatherData data;
+            while (chunk.size() < chunkRows && (data = cursor.next()) != null) {
+                chunk.add(data);
+            }
+        } catch (SQLException e) {
+            LOG.error("Erreur base de données pendant l'export : {}", e.getMessage());
+            close();
+            throw new RemoteException("Erreur lors de la lecture de l'export", e);
+        }
+
+        if (chunk.size() < chunkRows) {
+            close();  // Fin de l'export
+        }
+        if (chunk.isEmpty()) {
+            return null;
+        }
+        rowsSent += chunk.size();
+        return ExportChunks.encode(chunk);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            cursor.close();
+        } catch (SQLException e) {
+            LOG.warn("Erreur lors de la fermeture de l'export : {}", e.getMessage());
+        }
+        try {
+            UnicastRemoteObject.unexportObject(this, true);
+        } catch (NoSuchObjectException e) {
+            // Déjà désexporté
+        }
+        onClose.run();
+        LOG.info("Export terminé : {} mesure(s) envoyée(s)", rowsSent);
+    }
+
+    @Override
+    public void unreferenced() {
+        // Client disparu sans fermer le curseur
+        close();
+    }
+}
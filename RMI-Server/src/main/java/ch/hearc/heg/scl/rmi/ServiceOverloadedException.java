@@ -0,0 +1,15 @@
+package ch.hearc.heg.scl.rmi;
+
+import java.rmi.RemoteException;
+
+/**
+ * Levée lorsqu'une méthode distante est saturée : toutes ses places d'exécution
+ * et de file d'attente sont occupées. L'appel n'a pas été exécuté et peut être retenté plus tard.
+ */
+public class ServiceOverloadedException extends RemoteException {
+    private static final long serialVersionUID = 1L;
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
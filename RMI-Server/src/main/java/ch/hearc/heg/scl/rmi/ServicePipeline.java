@@ -0,0 +1,71 @@
+package ch.hearc.heg.scl.rmi;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Exécution asynchrone des étapes internes du service (appels API, requêtes DAO).
+ *
+ * Les étapes indépendantes d'une même requête sont lancées ensemble sous forme de futurs et
+ * composées ; la méthode RMI attend seulement le résultat final, dont la latence est celle du
+ * chemin critique. Les exceptions des étapes sont restituées telles quelles par await, pour que
+ * les méthodes RMI gardent leur traitement d'erreurs habituel.
+ */
+class ServicePipeline {
+
+    /**
+     * Étape pouvant lever les exceptions des DAO et du client API.
+     */
+    @FunctionalInterface
+    interface Step<T> {
+        T call() throws SQLException, IOException;
+    }
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("service-pipeline-", 0).factory());
+
+    /**
+     * Lance une étape sur l'exécuteur du pipeline.
+     */
+    <T> CompletableFuture<T> supply(Step<T> step) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return step.call();
+            } catch (SQLException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Attend le résultat d'un futur et relance l'exception d'origine de l'étape en échec.
+     */
+    static <T> T await(CompletableFuture<T> future) throws SQLException, IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,110 @@
+package ch.hearc.heg.scl.rmi;
+
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.WeatherData;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gère les abonnements des clients aux nouvelles données météo.
+ *
+ * La publication ne fait que déposer la mesure dans la file de chaque abonné concerné :
+ * l'envoi RMI se fait en arrière-plan, un abonné à la fois par file.
+ * Un client lent perd des mesures au lieu de ralentir le rafraîchissement,
+ * et un client injoignable est automatiquement désabonné.
+ */
+public class SubscriptionManager {
+
+    private static final Logger LOG = Logger.getLogger(SubscriptionManager.class);
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final Map<WeatherListener, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final ExecutorService deliveryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Abonne un écouteur (ou remplace ses stations suivies s'il est déjà abonné).
+     *
+     * @param listener L'écouteur distant
+     * @param stationIds Stations suivies (vide = toutes)
+     */
+    public void subscribe(WeatherListener listener, Set<Integer> stationIds) {
+        Set<Integer> ids = stationIds == null ? Set.of() : Set.copyOf(stationIds);
+
+        subscriptions.compute(listener, (key, existing) -> {
+            if (existing != null) {
+                return new Subscription(ids, existing.queue());
+            }
+            ListenerQueue<WeatherData> queue = new ListenerQueue<>(
+                    listener::onWeatherData,
+                    QUEUE_CAPACITY,
+                    deliveryExecutor,
+                    () -> removeUnreachable(listener)
+            );
+            return new Subscription(ids, queue);
+        });
+        LOG.info("Abonnement enregistré ({} abonné(s))", subscriptions.size());
+    }
+
+    /**
+     * Désabonne un écouteur.
+     *
+     * @param listener L'écouteur distant
+     */
+    public void unsubscribe(WeatherListener listener) {
+        Subscription removed = subscriptions.remove(listener);
+        if (removed != null) {
+            removed.queue().close();
+        }
+    }
+
+    /**
+     * Publie une nouvelle mesure vers les abonnés de sa station. Ne bloque jamais.
+     *
+     * @param weatherData La mesure enregistrée
+     */
+    public void publish(WeatherData weatherData) {
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.accepts(weatherData.getStationId())) {
+                subscription.queue().offer(weatherData);
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre total de mesures abandonnées pour les abonnés actuels
+     */
+    public long getDroppedCount() {
+        return subscriptions.values().stream()
+                .mapToLong(subscription -> subscription.queue().getDroppedCount())
+                .sum();
+    }
+
+    /**
+     * Ferme tous les abonnements et arrête l'envoi.
+     */
+    public void shutdown() {
+        subscriptions.values().forEach(subscription -> subscription.queue().close());
+        subscriptions.clear();
+        deliveryExecutor.shutdownNow();
+    }
+
+    private void removeUnreachable(WeatherListener listener) {
+        if (subscriptions.remove(listener) != null) {
+            LOG.warn("Abonné injoignable, abonnement supprimé");
+        }
+    }
+
+    /**
+     * Stations suivies par un abonné et sa file d'envoi.
+     */
+    private record Subscription(Set<Integer> stationIds, ListenerQueue<WeatherData> queue) {
+
+        boolean accepts(Integer stationId) {
+            return stationIds.isEmpty() || stationIds.contains(stationId);
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package ch.hearc.heg.scl.rmi;
 
+import ch.hearc.heg.scl.model.AlertRule;
+import ch.hearc.heg.scl.model.ChangeSet;
+import ch.hearc.heg.scl.model.ImportReport;
+import ch.hearc.heg.scl.model.QuantileEstimate;
+import ch.hearc.heg.scl.model.StationList;
 import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.model.WeatherSummary;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Interface RMI pour le service météo.
@@ -38,6 +48,18 @@ public interface WeatherService extends Remote {
     List<WeatherStation> getAllStations()
             throws RemoteException;
 
+    /**
+     * Liste les stations seulement si elles ont changé depuis la version déjà connue du client.
+     * La version ne change qu'à l'ajout, au retrait ou à la modification d'une station ;
+     * la date de dernière mise à jour des stations de la liste peut donc être ancienne.
+     *
+     * @param knownVersion Version retournée par l'appel précédent (0 au premier appel)
+     * @return Les stations et leur version, ou une réponse « non modifiée » sans stations
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    StationList getAllStations(long knownVersion)
+            throws RemoteException;
+
     /**
      * Récupère une station spécifique avec toutes ses données météorologiques.
      * Inclut les informations de la station ET ses données météo actuelles.
@@ -59,4 +81,156 @@ public interface WeatherService extends Remote {
      */
     int refreshAllStations()
             throws RemoteException;
+
+    /**
+     * Abonne un écouteur aux nouvelles données météo d'un ensemble de stations.
+     * Le serveur pousse chaque nouvelle mesure dès qu'elle est enregistrée.
+     * Un nouvel appel pour le même écouteur remplace l'ensemble de stations suivies.
+     *
+     * @param listener L'écouteur exporté par le client
+     * @param stationIds Identifiants des stations suivies (vide = toutes les stations)
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    void subscribe(WeatherListener listener, Set<Integer> stationIds)
+            throws RemoteException;
+
+    /**
+     * Désabonne un écouteur. Sans effet s'il n'était pas abonné.
+     *
+     * @param listener L'écouteur à désabonner
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    void unsubscribe(WeatherListener listener)
+            throws RemoteException;
+
+    /**
+     * Retourne les stations nouvelles ou modifiées et les nouvelles mesures
+     * enregistrées depuis une version, ainsi que la nouvelle version.
+     * Permet de maintenir un miroir à jour pour un coût proportionnel aux modifications.
+     *
+     * Au premier appel, passer 0 : le serveur répond par une resynchronisation complète.
+     *
+     * @param version Version retournée par l'appel précédent
+     * @return Les modifications depuis cette version
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    ChangeSet getChangesSince(long version)
+            throws RemoteException;
+
+    /**
+     * Importe en masse une liste de villes OpenWeatherMap (city.list.json ou CSV id, name,
+     * country, lat, lon) sans appel à l'API météo. Les stations dont l'ID OpenWeatherMap est
+     * déjà en base, ou qui apparaissent plusieurs fois dans le fichier, ne sont créées qu'une fois.
+     *
+     * @param fileName Nom du fichier (l'extension .json ou .csv indique le format)
+     * @param content Contenu du fichier en UTF-8
+     * @return Le bilan de l'import (lignes lues, créées, ignorées, débit)
+     * @throws RemoteException En cas d'erreur réseau RMI, de fichier invalide ou d'import déjà en cours
+     */
+    ImportReport importStations(String fileName, byte[] content)
+            throws RemoteException;
+
+    /**
+     * Ouvre un export des mesures d'une station (ou de toutes) sur une période, triées par date.
+     * Les mesures sont lues par blocs via le curseur retourné, sans que l'export complet soit
+     * chargé en mémoire, ni sur le serveur ni sur le client.
+     *
+     * @param stationId ID de la station, ou null pour toutes les stations
+     * @param from Début de la période (inclus), ou null pour le début de l'historique
+     * @param to Fin de la période (exclue), ou null pour maintenant
+     * @return Le curseur, à fermer après lecture
+     * @throws RemoteException En cas d'erreur réseau RMI ou de base de données
+     * @throws ServiceOverloadedException Si trop d'exports sont déjà ouverts
+     */
+    ExportCursor openExport(Integer stationId, LocalDateTime from, LocalDateTime to)
+            throws RemoteException;
+
+    /**
+     * Retourne les résumés horaires ou journaliers d'une station (nombre de mesures, minimum,
+     * maximum et moyenne de chaque grandeur), lus dans les agrégats tenus à jour à chaque mesure :
+     * le coût dépend du nombre d'heures ou de jours, pas du nombre de mesures.
+     *
+     * @param stationId ID de la station
+     * @param period Heure ou jour
+     * @param from Début de la période (inclus), ou null pour le début de l'historique
+     * @param to Fin de la période (exclue), ou null pour maintenant
+     * @return Les résumés des heures ou des jours ayant au moins une mesure, triés par date
+     * @throws RemoteException En cas d'erreur réseau RMI ou de base de données
+     */
+    List<WeatherSummary> getSummaries(int stationId, WeatherSummary.Period period,
+                                      LocalDateTime from, LocalDateTime to)
+            throws RemoteException;
+
+    /**
+     * Estime des quantiles d'une grandeur (médiane, 95e centile...) sur des stations et une
+     * période, en fusionnant les résumés de distribution journaliers tenus à jour à chaque mesure :
+     * le coût dépend du nombre de stations et de jours, pas du nombre de mesures.
+     *
+     * @param stationIds IDs des stations (au moins une)
+     * @param metric Grandeur
+     * @param from Premier jour (inclus)
+     * @param to Dernier jour (exclu)
+     * @param quantiles Rangs demandés, entre 0 et 1 (par exemple 0.5, 0.95, 0.99)
+     * @return Les valeurs estimées, avec le nombre de mesures résumées
+     * @throws RemoteException En cas d'erreur réseau RMI ou de base de données
+     */
+    QuantileEstimate getQuantiles(Set<Integer> stationIds, AlertRule.Metric metric,
+                                  LocalDate from, LocalDate to, double[] quantiles)
+            throws RemoteException;
+
+    /**
+     * Enregistre une règle d'alerte, évaluée à chaque nouvelle mesure.
+     * Une règle portant l'ID d'une règle existante la remplace.
+     *
+     * @param rule La règle (ID 0 pour une nouvelle règle)
+     * @return La règle enregistrée, avec son ID
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    AlertRule addAlertRule(AlertRule rule)
+            throws RemoteException;
+
+    /**
+     * Retire une règle d'alerte.
+     *
+     * @param ruleId ID de la règle
+     * @return Vrai si la règle existait
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    boolean removeAlertRule(int ruleId)
+            throws RemoteException;
+
+    /**
+     * @return Les règles d'alerte enregistrées
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    List<AlertRule> getAlertRules()
+            throws RemoteException;
+
+    /**
+     * Enregistre un écouteur qui reçoit toutes les alertes émises.
+     *
+     * @param listener L'écouteur exporté par le client
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    void subscribeAlerts(AlertListener listener)
+            throws RemoteException;
+
+    /**
+     * Retire un écouteur d'alertes. Sans effet s'il n'était pas enregistré.
+     *
+     * @param listener L'écouteur à retirer
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    void unsubscribeAlerts(AlertListener listener)
+            throws RemoteException;
+
+    /**
+     * Retourne les compteurs de fonctionnement du serveur
+     * (appels API évités, état du disjoncteur, mesures abandonnées, etc.).
+     *
+     * @return Compteurs nommés, dans un ordre stable
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    Map<String, Long> getServerStats()
+            throws RemoteException;
 }
\ No newline at end of file
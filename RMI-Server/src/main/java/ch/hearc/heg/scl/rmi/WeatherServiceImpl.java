@@ -1,27 +1,146 @@
 package ch.hearc.heg.scl.rmi;
 
+import ch.hearc.heg.scl.alert.AlertEngine;
+import ch.hearc.heg.scl.cache.NegativeCache;
+import ch.hearc.heg.scl.cache.StateSnapshot;
+import ch.hearc.heg.scl.cache.StationCatalog;
+import ch.hearc.heg.scl.cache.StationStateCache;
 import ch.hearc.heg.scl.dao.WeatherDataDAO;
+import ch.hearc.heg.scl.dao.WeatherDataWriter;
+import ch.hearc.heg.scl.dao.WeatherRollupDAO;
+import ch.hearc.heg.scl.dao.WeatherSketchDAO;
 import ch.hearc.heg.scl.dao.WeatherStationDAO;
+import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.AlertRule;
+import ch.hearc.heg.scl.model.ChangeSet;
+import ch.hearc.heg.scl.model.ImportReport;
+import ch.hearc.heg.scl.model.QuantileEstimate;
+import ch.hearc.heg.scl.model.StationList;
 import ch.hearc.heg.scl.model.WeatherData;
 import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.model.WeatherSummary;
+import ch.hearc.heg.scl.monitoring.RmiMethodEvent;
+import ch.hearc.heg.scl.service.CircuitBreaker;
+import ch.hearc.heg.scl.service.CoordinateKey;
+import ch.hearc.heg.scl.service.ReadingTolerance;
+import ch.hearc.heg.scl.service.StationImporter;
+import ch.hearc.heg.scl.service.StationNotFoundException;
+import ch.hearc.heg.scl.service.VolatilityTracker;
 import ch.hearc.heg.scl.service.WeatherApiClient;
+import ch.hearc.heg.scl.shard.ShardAssignment;
+import ch.hearc.heg.scl.shard.ShardPeer;
+import ch.hearc.heg.scl.shard.ShardRouter;
+import ch.hearc.heg.scl.sketch.QuantileSketch;
+import ch.hearc.heg.scl.sketch.SketchStore;
+import ch.hearc.heg.scl.sync.ChangeTracker;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.rmi.RemoteException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
 import java.rmi.server.UnicastRemoteObject;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implémentation du service RMI pour la gestion des stations météo.
  * Orchestre les appels à l'API météo et la persistance en base de données.
  */
-public class WeatherServiceImpl extends UnicastRemoteObject implements WeatherService {
+public class WeatherServiceImpl extends UnicastRemoteObject implements WeatherService, ShardPeer {
+
+    private static final Logger LOG = Logger.getLogger(WeatherServiceImpl.class);
+    private static final double FALLBACK_MAX_DELTA = 0.1;  // Degrés, pour la station la plus proche
 
     private final WeatherStationDAO stationDAO;
     private final WeatherDataDAO weatherDataDAO;
+    // Lectures devant voir toutes les écritures validées (jamais servies par un réplica)
+    private final WeatherStationDAO primaryStationDAO = new WeatherStationDAO(false);
+    private final WeatherDataDAO primaryWeatherDataDAO = new WeatherDataDAO(false);
+    private final WeatherDataWriter weatherDataWriter;  // Écriture groupée des mesures des stations connues
+    private final WeatherRollupDAO rollupDAO = new WeatherRollupDAO();  // Résumés horaires et journaliers
+    private final ReadingTolerance readingTolerance;    // Mesure identique à la précédente : ligne prolongée
     private final WeatherApiClient apiClient;
+    private final SubscriptionManager subscriptions;
+    private final ChangeTracker changeTracker;
+    private final AlertSubscriptionManager alertSubscriptions;
+    private final AlertEngine alertEngine;  // Règles d'alerte évaluées hors du chemin d'enregistrement
+
+    // Fraîcheur des données et protection contre les pannes de l'API
+    private final CircuitBreaker apiBreaker;
+    private final Duration maxAge;            // Au-delà, la donnée en base n'est plus servie directement
+    private final Duration revalidateAfter;   // Au-delà, la donnée servie est rafraîchie en arrière-plan
+    private final Set<CoordinateKey> revalidating = ConcurrentHashMap.newKeySet();
+    private final ExecutorService backgroundExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ServicePipeline pipeline = new ServicePipeline();  // Étapes internes exécutées en parallèle
+    private final int refreshParallelism;
+    private final ShardAssignment shard;  // Stations dont ce serveur a la charge (toutes hors mode réparti)
+    private volatile ShardRouter router;  // Accès aux shards propriétaires, null hors mode réparti
+    private final NegativeCache<CoordinateKey> notFoundCache;
+
+    // Rafraîchissement adaptatif : intervalle par station selon la variabilité de sa météo
+    private final VolatilityTracker volatility;
+    private final ScheduledExecutorService adaptiveRefresher;  // null si refresh.adaptive.tick.seconds = 0
+    private final int adaptiveRefreshBudget;
+    private final AtomicLong adaptiveRefreshed = new AtomicLong();
+    private final AtomicLong adaptiveDeferred = new AtomicLong();
+    private final StationImporter stationImporter;
+
+    // Résumés de distribution par station et par jour, écrits en base toutes les sketch.flush.seconds
+    private final SketchStore sketches;
+    private final ScheduledExecutorService sketchFlusher;  // null si sketch.flush.seconds = 0
+    private final int sketchQueryMaxBuckets;               // Stations × jours fusionnés au plus par requête
+
+    // Exports en cours (curseurs distants exportés comme ce service)
+    private final int exportMaxOpen;
+    private final Semaphore exportSlots;
+    private final int exportFetchSize;
+    private final int exportChunkRows;
+    private final int exportPort;
+    private final RMIClientSocketFactory clientSocketFactory;
+    private final RMIServerSocketFactory serverSocketFactory;
+
+    // État en mémoire (stations, dernières mesures, coordonnées), sauvegardé à l'arrêt
+    private final StationStateCache stateCache = new StationStateCache(
+            DatabaseConfig.getIntProperty("state.coordinates.max.entries", 100_000));
+    private final Path snapshotPath;
+
+    // Catalogue des stations servi par getAllStations, rechargé en arrière-plan après catalogReloadAfter
+    private final StationCatalog catalog = new StationCatalog();
+    private final Duration catalogReloadAfter;
+    private volatile long catalogLoadedAt;
+    private final AtomicBoolean catalogReloading = new AtomicBoolean();
+
+    // Cloisons par méthode distante (limites de concurrence et files d'attente)
+    private final List<Bulkhead> bulkheads = new ArrayList<>();
+    private final Bulkhead lookupBulkhead;
+    private final Bulkhead listBulkhead;
+    private final Bulkhead detailsBulkhead;
+    private final Bulkhead refreshBulkhead;
+    private final Bulkhead syncBulkhead;
+    private final Bulkhead importBulkhead;
+    private final Bulkhead summaryBulkhead;
+    private final Bulkhead quantileBulkhead;
 
     /**
      * Constructeur avec injection des dépendances.
@@ -30,83 +149,624 @@ public class WeatherServiceImpl extends UnicastRemoteObject implements WeatherSe
      * @throws RemoteException Si erreur d'initialisation RMI
      */
     public WeatherServiceImpl(String apiKey) throws RemoteException {
-        super();
+        this(new WeatherApiClient(apiKey));
+    }
+
+    /**
+     * Constructeur avec un client API déjà configuré (URL de base, etc.).
+     *
+     * @param apiClient Client de l'API météo
+     * @throws RemoteException Si erreur d'initialisation RMI
+     */
+    public WeatherServiceImpl(WeatherApiClient apiClient) throws RemoteException {
+        this(apiClient, 0, null, null);
+    }
+
+    /**
+     * Constructeur avec port d'exportation et fabriques de sockets personnalisées.
+     *
+     * @param apiClient Client de l'API météo
+     * @param exportPort Port d'exportation du service (0 = port libre quelconque)
+     * @param clientSocketFactory Fabrique de sockets clientes (null = par défaut)
+     * @param serverSocketFactory Fabrique de sockets serveur (null = par défaut)
+     * @throws RemoteException Si erreur d'initialisation RMI
+     */
+    public WeatherServiceImpl(WeatherApiClient apiClient, int exportPort,
+                              RMIClientSocketFactory clientSocketFactory,
+                              RMIServerSocketFactory serverSocketFactory) throws RemoteException {
+        super(exportPort, clientSocketFactory, serverSocketFactory);
         this.stationDAO = new WeatherStationDAO();
         this.weatherDataDAO = new WeatherDataDAO();
-        this.apiClient = new WeatherApiClient(apiKey);
+        this.weatherDataWriter = new WeatherDataWriter(
+                DatabaseConfig.getIntProperty("group.commit.max.rows", 64),
+                Duration.ofMillis(DatabaseConfig.getIntProperty("group.commit.window.ms", 5)));
+        this.readingTolerance = ReadingTolerance.fromConfig();
+        this.apiClient = apiClient;
+        this.subscriptions = new SubscriptionManager();
+        this.changeTracker = new ChangeTracker();
+        this.alertSubscriptions = new AlertSubscriptionManager();
+        this.shard = ShardAssignment.fromConfig();
+        this.alertEngine = new AlertEngine(DatabaseConfig.getIntProperty("alert.queue.capacity", 10_000),
+                alertSubscriptions::publish, shard.count(), shard.index());
+        this.apiBreaker = new CircuitBreaker("OpenWeatherMap",
+                DatabaseConfig.getIntProperty("breaker.failure.threshold", 5),
+                Duration.ofMillis(DatabaseConfig.getIntProperty("breaker.slow.call.ms", 3000)),
+                Duration.ofSeconds(DatabaseConfig.getIntProperty("breaker.open.seconds", 30)));
+        this.maxAge = Duration.ofSeconds(DatabaseConfig.getIntProperty("freshness.max.age.seconds", 600));
+        this.revalidateAfter = Duration.ofSeconds(DatabaseConfig.getIntProperty("freshness.revalidate.after.seconds", 60));
+        this.notFoundCache = new NegativeCache<>(
+                Duration.ofSeconds(DatabaseConfig.getIntProperty("negative.cache.ttl.seconds", 3600)),
+                DatabaseConfig.getIntProperty("negative.cache.max.entries", 10_000));
+        this.refreshParallelism = DatabaseConfig.getIntProperty("refresh.parallelism", 8);
+        this.volatility = new VolatilityTracker(
+                Duration.ofSeconds(DatabaseConfig.getIntProperty("refresh.adaptive.min.seconds", 300)),
+                Duration.ofSeconds(DatabaseConfig.getIntProperty("refresh.adaptive.max.seconds", 3600)));
+        this.adaptiveRefreshBudget = DatabaseConfig.getIntProperty("refresh.adaptive.max.per.tick", 50);
+        int adaptiveTickSeconds = DatabaseConfig.getIntProperty("refresh.adaptive.tick.seconds", 0);
+        if (adaptiveTickSeconds > 0) {
+            this.adaptiveRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "adaptive-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            adaptiveRefresher.scheduleWithFixedDelay(this::refreshDueStations, adaptiveTickSeconds,
+                    adaptiveTickSeconds, TimeUnit.SECONDS);
+        } else {
+            this.adaptiveRefresher = null;
+        }
+        this.sketches = new SketchStore(new WeatherSketchDAO(false),
+                DatabaseConfig.getDoubleProperty("sketch.compression", 100),
+                DatabaseConfig.getIntProperty("sketch.cache.max.entries", 20_000),
+                shard::owns);
+        this.sketchQueryMaxBuckets = DatabaseConfig.getIntProperty("sketch.query.max.buckets", 10_000);
+        int sketchFlushSeconds = DatabaseConfig.getIntProperty("sketch.flush.seconds", 60);
+        if (sketchFlushSeconds > 0) {
+            this.sketchFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sketch-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sketchFlusher.scheduleWithFixedDelay(sketches::flush, sketchFlushSeconds, sketchFlushSeconds,
+                    TimeUnit.SECONDS);
+        } else {
+            this.sketchFlusher = null;
+        }
+        this.catalogReloadAfter = Duration.ofSeconds(DatabaseConfig.getIntProperty("catalog.reload.seconds", 60));
+        this.snapshotPath = Path.of(DatabaseConfig.getProperty("snapshot.path", "server-state.bin"));
+        this.stationImporter = StationImporter.fromConfig(stationDAO);
+        this.exportMaxOpen = DatabaseConfig.getIntProperty("export.max.open", 2);
+        this.exportSlots = new Semaphore(exportMaxOpen);
+        this.exportFetchSize = DatabaseConfig.getIntProperty("export.fetch.size", 5000);
+        this.exportChunkRows = DatabaseConfig.getIntProperty("export.chunk.rows", 10_000);
+        this.exportPort = exportPort;
+        this.clientSocketFactory = clientSocketFactory;
+        this.serverSocketFactory = serverSocketFactory;
+
+        this.lookupBulkhead = createBulkhead("getStationByCoordinates", 8, 32);
+        this.listBulkhead = createBulkhead("getAllStations", 32, 64);
+        this.detailsBulkhead = createBulkhead("getStationWithWeatherData", 32, 64);
+        this.refreshBulkhead = createBulkhead("refreshAllStations", 1, 0);
+        this.syncBulkhead = createBulkhead("getChangesSince", 16, 32);
+        this.importBulkhead = createBulkhead("importStations", 1, 0);
+        this.summaryBulkhead = createBulkhead("getSummaries", 16, 32);
+        this.quantileBulkhead = createBulkhead("getQuantiles", 16, 32);
+    }
+
+    /**
+     * Crée la cloison d'une méthode distante. Les limites par défaut peuvent être remplacées par
+     * bulkhead.&lt;méthode&gt;.concurrency, bulkhead.&lt;méthode&gt;.queue et bulkhead.&lt;méthode&gt;.wait.ms.
+     */
+    private Bulkhead createBulkhead(String method, int defaultConcurrency, int defaultQueue) {
+        String prefix = "bulkhead." + method + ".";
+        Bulkhead bulkhead = new Bulkhead(method,
+                DatabaseConfig.getIntProperty(prefix + "concurrency", defaultConcurrency),
+                DatabaseConfig.getIntProperty(prefix + "queue", defaultQueue),
+                DatabaseConfig.getIntProperty(prefix + "wait.ms", 2000));
+        bulkheads.add(bulkhead);
+        return bulkhead;
     }
 
     @Override
     public WeatherStation getStationByCoordinates(double latitude, double longitude) throws RemoteException {
+        return lookupBulkhead.call(() -> lookupStation(latitude, longitude));
+    }
+
+    private WeatherStation lookupStation(double latitude, double longitude) throws RemoteException {
+        CoordinateKey key = CoordinateKey.of(latitude, longitude);
         try {
-            // 1. D'ABORD appeler l'API pour obtenir l'ID OpenWeatherMap
-            WeatherStation apiStation = apiClient.getWeatherByCoordinates(latitude, longitude);
-            long owmId = apiStation.getOpenWeatherMapId();
+            // 1. Si une mesure récente existe déjà pour ces coordonnées, la servir immédiatement
+            Integer knownStationId = stateCache.getStationIdFor(key);
+            if (knownStationId != null) {
+                WeatherStation stored = loadStoredStation(knownStationId);
+                if (stored != null) {
+                    Duration age = Duration.between(stored.getCurrentWeather().getObservedUntil(), LocalDateTime.now());
+                    if (age.compareTo(maxAge) < 0) {
+                        if (age.compareTo(revalidateAfter) >= 0) {
+                            revalidateInBackground(latitude, longitude, key);
+                        }
+                        return stored;
+                    }
+                }
+            }
+
+            // 2. Sinon appeler l'API (protégée par le disjoncteur) pour obtenir l'ID OpenWeatherMap
+            WeatherStation apiStation;
+            try {
+                apiStation = fetchFromApi(latitude, longitude);
+            } catch (StationNotFoundException e) {
+                throw e;
+            } catch (IOException e) {
+                // API lente ou indisponible : se rabattre sur la dernière donnée connue
+                WeatherStation fallback = findStoredFallback(key, latitude, longitude);
+                if (fallback == null) {
+                    throw e;
+                }
+                LOG.warn("API indisponible ({}), donnée en base servie pour {}", e.getMessage(), fallback.getName());
+                return fallback;
+            }
+
+            return persistApiResult(apiStation, key);
+
+        } catch (StationNotFoundException | CircuitBreaker.CircuitOpenException e) {
+            // Classes absentes du client : seul le message est transmis
+            throw new RemoteException("Erreur: " + e.getMessage());
+        } catch (SQLException | IOException e) {
+            throw new RemoteException("Erreur: " + e.getMessage(), e);
+        }
+    }
 
-            // 2. Vérifier si cette station existe déjà (par OWM ID, pas par coordonnées)
-            Optional<WeatherStation> existingStation = stationDAO.findByOpenWeatherMapId(owmId);
+    /**
+     * Seul point d'appel de l'API météo. Les coordonnées déjà connues comme sans station
+     * sont rejetées sans appel ; les autres passent par le disjoncteur.
+     */
+    private WeatherStation fetchFromApi(double latitude, double longitude) throws IOException {
+        CoordinateKey key = CoordinateKey.of(latitude, longitude);
+        if (notFoundCache.contains(key)) {
+            throw new StationNotFoundException("Aucune station météo trouvée pour ces coordonnées");
+        }
+        try {
+            return apiBreaker.call(() -> apiClient.getWeatherByCoordinates(latitude, longitude));
+        } catch (StationNotFoundException e) {
+            notFoundCache.put(key);
+            throw e;
+        }
+    }
 
-            if (existingStation.isPresent()) {
-                // Station existante : juste mettre à jour les données météo
-                WeatherStation station = existingStation.get();
+    /**
+     * Mode réparti : les mesures des stations des autres shards leur sont confiées (ShardPeer).
+     * À appeler avant d'enregistrer l'aiguilleur dans le registre.
+     */
+    public void attachRouter(ShardRouter router) {
+        this.router = router;
+    }
 
-                WeatherData weatherData = apiStation.getCurrentWeather();
-                weatherData.setStationId(station.getId());
-                weatherDataDAO.insert(weatherData);
+    /**
+     * Enregistre la réponse de l'API. Une station déjà connue ne reçoit que sa mesure, écrite
+     * avec celles des autres appels en cours (écriture groupée) ; une station inconnue est
+     * enregistrée avec sa mesure en un seul aller-retour avec la base.
+     *
+     * En mode réparti, la mesure d'une station d'un autre shard est enregistrée par celui-ci ;
+     * une station créée ici pour un autre shard lui est signalée après sa création.
+     *
+     * @param apiStation Station et données météo retournées par l'API
+     * @param key Coordonnées de la recherche, associées ensuite à la station
+     * @return La station persistée avec ses données actuelles
+     */
+    private WeatherStation persistApiResult(WeatherStation apiStation, CoordinateKey key)
+            throws SQLException, RemoteException {
+        WeatherData weatherData = apiStation.getCurrentWeather();
+        LocalDateTime now = LocalDateTime.now();
+        apiStation.setLastUpdated(now);
 
-                stationDAO.updateLastUpdated(station.getId());
-                station.setCurrentWeather(weatherData);
+        ShardRouter owners = router;
+        Integer knownStationId = stateCache.getStationIdByOpenWeatherMapId(apiStation.getOpenWeatherMapId());
+        if (knownStationId == null && owners != null) {
+            // Station peut-être créée par un autre shard depuis la dernière réconciliation
+            knownStationId = primaryStationDAO.findByOpenWeatherMapId(apiStation.getOpenWeatherMapId())
+                    .map(WeatherStation::getId)
+                    .orElse(null);
+        }
 
-                return station;
+        WeatherStation persisted;
+        if (knownStationId != null) {
+            apiStation.setId(knownStationId);
+            weatherData.setStationId(knownStationId);
+            persisted = shard.owns(knownStationId) || owners == null
+                    ? persistObservation(apiStation, now)
+                    : owners.persistOnOwner(apiStation);
+        } else {
+            WeatherStationDAO.UpsertResult result = stationDAO.upsertWithReading(apiStation, weatherData);
+            if (result.stationCreated()) {
+                LOG.info("Nouvelle station : {}", apiStation.getName());
+                persisted = apiStation;
+            } else {
+                // Station déjà en base (import, autre processus) : seule LAST_UPDATED a été modifiée
+                persisted = storedStation(result.stationId());
+                persisted.setLastUpdated(now);
+                persisted.setCurrentWeather(weatherData);
+            }
+            if (shard.owns(persisted.getId()) || owners == null) {
+                adoptStation(persisted, result.stationCreated());
             } else {
-                // Nouvelle station : insérer
-                WeatherStation newStation = stationDAO.insert(apiStation);
+                try {
+                    owners.adoptOnOwner(persisted);
+                } catch (RemoteException e) {
+                    // Mesure en base : le propriétaire la verra à sa prochaine lecture
+                    LOG.warn("Shard propriétaire de la station {} injoignable : {}", persisted.getId(), e.getMessage());
+                }
+            }
+        }
 
-                WeatherData weatherData = apiStation.getCurrentWeather();
-                weatherData.setStationId(newStation.getId());
-                weatherDataDAO.insert(weatherData);
+        stateCache.mapCoordinates(key, persisted.getId());
+        return persisted;
+    }
 
-                newStation.setCurrentWeather(weatherData);
-                return newStation;
+    @Override
+    public WeatherStation persistObservation(WeatherStation observed) throws RemoteException {
+        return monitored("persistObservation", () -> {
+            if (!shard.owns(observed.getId())) {
+                throw new RemoteException("Station " + observed.getId() + " hors du shard " + shard.index());
             }
+            try {
+                return persistObservation(observed, LocalDateTime.now());
+            } catch (SQLException e) {
+                LOG.error("Erreur base de données : {}", e.getMessage());
+                throw new RemoteException("Erreur lors de l'enregistrement de la mesure", e);
+            }
+        });
+    }
 
-        } catch (SQLException | IOException e) {
-            throw new RemoteException("Erreur: " + e.getMessage(), e);
+    /**
+     * Enregistre la mesure d'une station de ce shard déjà en base. Seule la mesure de l'API est
+     * reprise : nom, pays et coordonnées restent ceux de la station en base.
+     */
+    private WeatherStation persistObservation(WeatherStation observed, LocalDateTime now) throws SQLException {
+        WeatherStation station = storedStation(observed.getId());
+        WeatherData weatherData = observed.getCurrentWeather();
+        weatherData.setStationId(station.getId());
+        station.setLastUpdated(now);
+        station.setCurrentWeather(persistReading(station, weatherData, now));
+        return station;
+    }
+
+    /**
+     * Station telle qu'enregistrée en base (sans données météo), depuis la mémoire si possible.
+     *
+     * @return Une copie modifiable
+     * @throws SQLException Si la station n'existe pas ou plus
+     */
+    private WeatherStation storedStation(int stationId) throws SQLException {
+        WeatherStation station = stateCache.getStation(stationId);
+        if (station == null) {
+            station = primaryStationDAO.findById(stationId);
+        }
+        if (station == null) {
+            throw new SQLException("Station non trouvée avec l'ID : " + stationId);
+        }
+        return station;
+    }
+
+    @Override
+    public void adoptStation(WeatherStation created) throws RemoteException {
+        monitored("adoptStation", () -> {
+            if (!shard.owns(created.getId())) {
+                throw new RemoteException("Station " + created.getId() + " hors du shard " + shard.index());
+            }
+            adoptStation(created, true);
+            return null;
+        });
+    }
+
+    /**
+     * Prend en compte une station de ce shard et sa mesure, enregistrées ensemble en base.
+     */
+    private void adoptStation(WeatherStation station, boolean created) {
+        if (created) {
+            catalog.put(station);
+        }
+        onWeatherDataPersisted(station, station.getCurrentWeather());
+    }
+
+    /**
+     * Charge une station et sa dernière mesure, depuis la mémoire si possible, sinon depuis la base.
+     *
+     * @return La station avec ses données actuelles, ou null si absente ou sans mesure
+     */
+    private WeatherStation loadStoredStation(int stationId) throws SQLException, IOException {
+        ShardRouter owners = router;
+        if (owners != null && !shard.owns(stationId)) {
+            // Seul le propriétaire tient la dernière mesure à jour en mémoire
+            try {
+                WeatherStation remote = owners.getStationWithWeatherData(stationId);
+                return remote != null && remote.getCurrentWeather() != null ? remote : null;
+            } catch (RemoteException e) {
+                LOG.debug("Station {} non servie par son shard : {}", stationId, e.getMessage());
+                return null;
+            }
+        }
+
+        WeatherStation cached = stateCache.getStationWithLatest(stationId);
+        if (cached != null) {
+            return cached;
+        }
+
+        WeatherStation station = ServicePipeline.await(loadStationAsync(stationId));
+        if (station == null || station.getCurrentWeather() == null) {
+            return null;
+        }
+        stateCache.putStation(station);
+        stateCache.putReading(station.getCurrentWeather());
+        return station;
+    }
+
+    /**
+     * Lit en parallèle une station et sa dernière mesure.
+     *
+     * @return Un futur de la station avec sa dernière mesure (null si aucune), ou de null si la station est absente
+     */
+    private CompletableFuture<WeatherStation> loadStationAsync(int stationId) {
+        CompletableFuture<WeatherStation> station = pipeline.supply(() -> stationDAO.findById(stationId));
+        CompletableFuture<WeatherData> latest = pipeline.supply(() -> weatherDataDAO.findLatestByStationId(stationId));
+        return station.thenCombine(latest, (found, reading) -> {
+            if (found != null) {
+                found.setCurrentWeather(reading);
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Cherche une donnée en base à servir quand l'API est indisponible, quel que soit son âge :
+     * d'abord la station déjà associée à ces coordonnées, sinon la station la plus proche.
+     */
+    private WeatherStation findStoredFallback(CoordinateKey key, double latitude, double longitude)
+            throws SQLException, IOException {
+        Integer knownStationId = stateCache.getStationIdFor(key);
+        if (knownStationId != null) {
+            WeatherStation stored = loadStoredStation(knownStationId);
+            if (stored != null) {
+                return stored;
+            }
         }
+        Optional<WeatherStation> nearest = stationDAO.findNearest(latitude, longitude, FALLBACK_MAX_DELTA);
+        return nearest.isPresent() ? loadStoredStation(nearest.get().getId()) : null;
+    }
+
+    /**
+     * Rafraîchit en arrière-plan la donnée servie pour des coordonnées.
+     * Une seule revalidation à la fois par coordonnées, aucune si l'API est hors service.
+     */
+    private void revalidateInBackground(double latitude, double longitude, CoordinateKey key) {
+        if (apiBreaker.isOpen() || !revalidating.add(key)) {
+            return;
+        }
+        backgroundExecutor.execute(() -> {
+            try {
+                WeatherStation apiStation = fetchFromApi(latitude, longitude);
+                persistApiResult(apiStation, key);
+            } catch (IOException | SQLException e) {
+                LOG.warn("Revalidation échouée : {}", e.getMessage());
+            } finally {
+                revalidating.remove(key);
+            }
+        });
     }
 
     @Override
     public List<WeatherStation> getAllStations() throws RemoteException {
+        return listBulkhead.call(() -> loadAllStations());
+    }
+
+    private List<WeatherStation> loadAllStations() throws RemoteException {
+        return catalogSnapshot().stations();
+    }
+
+    @Override
+    public StationList getAllStations(long knownVersion) throws RemoteException {
+        return listBulkhead.call(() -> {
+            StationCatalog.Snapshot snapshot = catalogSnapshot();
+            if (snapshot.version() == knownVersion) {
+                return StationList.notModified(knownVersion);
+            }
+            return StationList.of(snapshot.version(), snapshot.stations());
+        });
+    }
+
+    /**
+     * Version courante du catalogue, chargée depuis la base au premier appel.
+     * Passé catalogReloadAfter, le catalogue est rechargé en arrière-plan (stations créées
+     * par un autre serveur) ; sa version ne change que si son contenu a changé.
+     */
+    private StationCatalog.Snapshot catalogSnapshot() throws RemoteException {
+        StationCatalog.Snapshot snapshot = catalog.current();
+        if (snapshot == null) {
+            try {
+                return reloadCatalog(stationDAO);
+            } catch (SQLException e) {
+                LOG.error("Erreur base de données : {}", e.getMessage());
+                throw new RemoteException("Erreur lors de la récupération des stations", e);
+            }
+        }
+
+        if (System.nanoTime() - catalogLoadedAt > catalogReloadAfter.toNanos()
+                && catalogReloading.compareAndSet(false, true)) {
+            backgroundExecutor.execute(() -> {
+                try {
+                    reloadCatalog(stationDAO);
+                } catch (SQLException e) {
+                    LOG.warn("Rechargement du catalogue échoué : {}", e.getMessage());
+                } finally {
+                    catalogReloading.set(false);
+                }
+            });
+        }
+        return snapshot;
+    }
+
+    private StationCatalog.Snapshot reloadCatalog(WeatherStationDAO dao) throws SQLException {
+        StationCatalog.Snapshot previous = catalog.current();
+        List<WeatherStation> stations = dao.findAll();
+        stations.removeIf(station -> !shard.owns(station.getId()));
+        StationCatalog.Snapshot snapshot = catalog.replaceAll(stations);
+        catalogLoadedAt = System.nanoTime();
+
+        if (previous != null && snapshot != previous) {
+            // Stations créées sans passer par ce serveur (import, autre processus) : signalées aux miroirs
+            Set<Integer> known = new HashSet<>();
+            for (WeatherStation station : previous.stations()) {
+                known.add(station.getId());
+            }
+            for (WeatherStation station : snapshot.stations()) {
+                if (!known.contains(station.getId())) {
+                    stateCache.putStation(station);
+                    changeTracker.recordStation(station);
+                }
+            }
+        }
+        LOG.info("Catalogue chargé : {} station(s)", snapshot.stations().size());
+        return snapshot;
+    }
+
+    @Override
+    public ImportReport importStations(String fileName, byte[] content) throws RemoteException {
+        return importBulkhead.call(() -> {
+            try {
+                ImportReport report = stationImporter.importContent(fileName, content);
+                if (report.getInsertedRows() > 0) {
+                    // Les nouvelles stations sont listées dès le prochain appel
+                    reloadCatalog(primaryStationDAO);
+                }
+                return report;
+
+            } catch (SQLException e) {
+                LOG.error("Erreur base de données : {}", e.getMessage());
+                throw new RemoteException("Erreur lors de l'import des stations", e);
+            } catch (IOException | IllegalArgumentException e) {
+                throw new RemoteException("Fichier d'import invalide : " + e.getMessage(), e);
+            }
+        });
+    }
+
+    @Override
+    public ExportCursor openExport(Integer stationId, LocalDateTime from, LocalDateTime to) throws RemoteException {
+        return monitored("openExport", () -> openExportCursor(stationId, from, to));
+    }
+
+    private ExportCursor openExportCursor(Integer stationId, LocalDateTime from, LocalDateTime to)
+            throws RemoteException {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new RemoteException("Période d'export vide : " + from + " - " + to);
+        }
+        // Chaque export ouvert garde une connexion : leur nombre est borné
+        if (!exportSlots.tryAcquire()) {
+            throw new ServiceOverloadedException("Trop d'exports en cours, réessayez plus tard");
+        }
+
+        WeatherDataDAO.HistoryCursor cursor = null;
         try {
-            List<WeatherStation> stations = stationDAO.findAll();
-            System.out.println("Récupération de " + stations.size() + " station(s)");
-            return stations;
+            cursor = weatherDataDAO.openHistory(stationId, from, to, exportFetchSize);
+            ReadingExportCursor export = new ReadingExportCursor(cursor, exportChunkRows, exportSlots::release,
+                    exportPort, clientSocketFactory, serverSocketFactory);
+            LOG.info("Export ouvert : {}, {} - {}", stationId != null ? "station " + stationId : "toutes les stations",
+                    from != null ? from : "début", to != null ? to : "maintenant");
+            return export;
 
-        } catch (SQLException e) {
-            System.err.println("Erreur base de données : " + e.getMessage());
-            throw new RemoteException("Erreur lors de la récupération des stations", e);
+        } catch (SQLException | RemoteException e) {
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                } catch (SQLException closeError) {
+                    e.addSuppressed(closeError);
+                }
+            }
+            exportSlots.release();
+            if (e instanceof RemoteException remoteException) {
+                throw remoteException;
+            }
+            LOG.error("Erreur base de données : {}", e.getMessage());
+            throw new RemoteException("Erreur lors de l'ouverture de l'export", e);
         }
     }
 
+    @Override
+    public List<WeatherSummary> getSummaries(int stationId, WeatherSummary.Period period,
+                                             LocalDateTime from, LocalDateTime to) throws RemoteException {
+        return summaryBulkhead.call(() -> {
+            if (period == null) {
+                throw new RemoteException("Période de résumé manquante (HOUR ou DAY)");
+            }
+            if (from != null && to != null && !from.isBefore(to)) {
+                throw new RemoteException("Période de résumé vide : " + from + " - " + to);
+            }
+            try {
+                return rollupDAO.findSummaries(stationId, period, from, to);
+            } catch (SQLException e) {
+                LOG.error("Erreur base de données : {}", e.getMessage());
+                throw new RemoteException("Erreur lors de la lecture des résumés", e);
+            }
+        });
+    }
+
+    @Override
+    public QuantileEstimate getQuantiles(Set<Integer> stationIds, AlertRule.Metric metric,
+                                         LocalDate from, LocalDate to, double[] quantiles) throws RemoteException {
+        return quantileBulkhead.call(() -> {
+            if (stationIds == null || stationIds.isEmpty() || metric == null || quantiles == null) {
+                throw new RemoteException("Stations, grandeur et quantiles sont obligatoires");
+            }
+            if (from == null || to == null || !from.isBefore(to)) {
+                throw new RemoteException("Période de quantiles vide : " + from + " - " + to);
+            }
+            for (double q : quantiles) {
+                if (!(q >= 0 && q <= 1)) {
+                    throw new RemoteException("Quantile hors de [0, 1] : " + q);
+                }
+            }
+            long buckets = stationIds.size() * (to.toEpochDay() - from.toEpochDay());
+            if (buckets > sketchQueryMaxBuckets) {
+                throw new RemoteException("Requête trop large : " + buckets + " résumés (stations × jours), "
+                        + sketchQueryMaxBuckets + " au plus");
+            }
+            try {
+                QuantileSketch merged = sketches.merged(stationIds, metric, from, to);
+                double[] values = new double[quantiles.length];
+                for (int i = 0; i < quantiles.length; i++) {
+                    values[i] = merged.quantile(quantiles[i]);
+                }
+                return new QuantileEstimate(metric, from, to, stationIds.size(), merged.count(),
+                        merged.min(), merged.max(), quantiles, values);
+            } catch (SQLException e) {
+                LOG.error("Erreur base de données : {}", e.getMessage());
+                throw new RemoteException("Erreur lors de la lecture des résumés de distribution", e);
+            }
+        });
+    }
+
     @Override
     public WeatherStation getStationWithWeatherData(int stationId) throws RemoteException {
+        return detailsBulkhead.call(() -> loadStationWithWeatherData(stationId));
+    }
+
+    private WeatherStation loadStationWithWeatherData(int stationId) throws RemoteException {
+        // État en mémoire : à jour à chaque enregistrement, servi sans accès à la base
+        WeatherStation cached = stateCache.getStationWithLatest(stationId);
+        if (cached != null) {
+            return cached;
+        }
+
         try {
-            // 1. Récupérer la station
-            WeatherStation station = stationDAO.findById(stationId);
+            // Station et données météo les plus récentes, lues en parallèle
+            WeatherStation station = ServicePipeline.await(loadStationAsync(stationId));
 
             if (station == null) {
                 throw new IllegalArgumentException("Station non trouvée avec l'ID : " + stationId);
             }
 
-            // 2. Récupérer les données météo les plus récentes
-            WeatherData latestWeather = weatherDataDAO.findLatestByStationId(stationId);
-            station.setCurrentWeather(latestWeather);
-
-            System.out.println("Station récupérée : " + station.getName());
+            LOG.info("Station récupérée : {}", station.getName());
             return station;
 
-        } catch (SQLException e) {
-            System.err.println("Erreur base de données : " + e.getMessage());
+        } catch (SQLException | IOException e) {
+            LOG.error("Erreur base de données : {}", e.getMessage());
             throw new RemoteException("Erreur lors de la récupération de la station", e);
         } catch (IllegalArgumentException e) {
             throw new RemoteException(e.getMessage(), e);
@@ -115,45 +775,405 @@ public class WeatherServiceImpl extends UnicastRemoteObject implements WeatherSe
 
     @Override
     public int refreshAllStations() throws RemoteException {
+        return refreshBulkhead.call(() -> refreshStations());
+    }
+
+    private int refreshStations() throws RemoteException {
         try {
-            // 1. Récupérer toutes les stations
+            // 1. Récupérer toutes les stations dont ce serveur a la charge
             List<WeatherStation> stations = stationDAO.findAll();
-            int successCount = 0;
+            stations.removeIf(station -> !shard.owns(station.getId()));
 
-            System.out.println("Rafraîchissement de " + stations.size() + " station(s)...");
+            LOG.info("Rafraîchissement de {} station(s)...", stations.size());
 
-            // 2. Pour chaque station, interroger l'API et mettre à jour
+            // 2. Interroger l'API pour plusieurs stations à la fois ; les mesures obtenues
+            //    simultanément sont validées ensemble par l'écriture groupée
+            Semaphore apiPermits = new Semaphore(refreshParallelism);
+            List<CompletableFuture<Boolean>> results = new ArrayList<>(stations.size());
             for (WeatherStation station : stations) {
-                try {
-                    // Appel API pour obtenir les nouvelles données
-                    WeatherStation updatedStation = apiClient.getWeatherByCoordinates(
-                            station.getLatitude(),
-                            station.getLongitude()
-                    );
-
-                    // Persister les nouvelles données météo
-                    WeatherData newWeatherData = updatedStation.getCurrentWeather();
-                    newWeatherData.setStationId(station.getId());
-                    weatherDataDAO.insert(newWeatherData);
-
-                    // Mettre à jour la date de dernière mise à jour
-                    stationDAO.updateLastUpdated(station.getId());
+                results.add(pipeline.supply(() -> refreshStation(station, apiPermits)));
+            }
 
+            int successCount = 0;
+            for (CompletableFuture<Boolean> result : results) {
+                if (ServicePipeline.await(result)) {
                     successCount++;
-                    System.out.println("Station mise à jour : " + station.getName());
-
-                } catch (IOException e) {
-                    System.err.println("Échec pour " + station.getName() + " : " + e.getMessage());
-                    // Continue avec les autres stations
                 }
             }
 
-            System.out.println("Rafraîchissement terminé : " + successCount + "/" + stations.size());
+            LOG.info("Rafraîchissement terminé : {}/{}", successCount, stations.size());
             return successCount;
 
-        } catch (SQLException e) {
-            System.err.println("Erreur base de données : " + e.getMessage());
+        } catch (SQLException | IOException e) {
+            LOG.error("Erreur base de données : {}", e.getMessage());
             throw new RemoteException("Erreur lors du rafraîchissement des stations", e);
         }
     }
+
+    /**
+     * Rafraîchit une station : appel API (au plus refreshParallelism simultanés) puis enregistrement.
+     *
+     * @return Vrai si la station a été mise à jour, faux si l'API a échoué pour elle
+     */
+    private boolean refreshStation(WeatherStation station, Semaphore apiPermits) throws SQLException {
+        WeatherStation updatedStation;
+        try {
+            apiPermits.acquireUninterruptibly();
+            try {
+                // Appel API pour obtenir les nouvelles données
+                updatedStation = fetchFromApi(station.getLatitude(), station.getLongitude());
+            } finally {
+                apiPermits.release();
+            }
+        } catch (IOException e) {
+            LOG.warn("Échec pour {} : {}", station.getName(), e.getMessage());
+            return false;  // Continue avec les autres stations
+        }
+
+        // Persister les nouvelles données météo et la date de mise à jour (écriture groupée)
+        WeatherData newWeatherData = updatedStation.getCurrentWeather();
+        newWeatherData.setStationId(station.getId());
+        persistReading(station, newWeatherData, LocalDateTime.now());
+
+        LOG.debug("Station mise à jour : {}", station.getName());
+        return true;
+    }
+
+    /**
+     * Enregistre la mesure d'une station déjà en base (écriture groupée). Une mesure identique
+     * à la dernière connue en mémoire, aux tolérances près, ne crée pas de ligne : la validité de
+     * la précédente est prolongée jusqu'à la date de la nouvelle, si elle est toujours la plus
+     * récente en base (sinon la mesure est insérée).
+     *
+     * @return La mesure enregistrée : la nouvelle, ou la précédente prolongée
+     */
+    private WeatherData persistReading(WeatherStation station, WeatherData weatherData, LocalDateTime now)
+            throws SQLException {
+        WeatherData previous = stateCache.getLatestReading(station.getId());
+        if (readingTolerance.matches(previous, weatherData)) {
+            WeatherData extended = withValidUntil(previous, weatherData.getTimestamp());
+            WeatherData written = weatherDataWriter.extend(extended, weatherData, now);
+            station.setLastUpdated(now);
+            if (written == extended) {
+                onReadingConfirmed(station, extended, weatherData);
+            } else {
+                // La mesure en mémoire n'était plus la dernière en base : mesure insérée
+                onWeatherDataPersisted(station, written);
+            }
+            return written;
+        }
+        weatherDataWriter.write(weatherData, now);
+        station.setLastUpdated(now);
+        onWeatherDataPersisted(station, weatherData);
+        return weatherData;
+    }
+
+    /**
+     * Copie d'une mesure avec une nouvelle date de validité (les mesures en mémoire sont partagées).
+     */
+    private static WeatherData withValidUntil(WeatherData reading, LocalDateTime validUntil) {
+        WeatherData copy = new WeatherData(reading.getStationId(), reading.getTemperature(), reading.getFeelsLike(),
+                reading.getHumidity(), reading.getPressure(), reading.getDescription(), reading.getIcon(),
+                reading.getWindSpeed());
+        copy.setId(reading.getId());
+        copy.setTimestamp(reading.getTimestamp());
+        copy.setValidUntil(validUntil);
+        return copy;
+    }
+
+    /**
+     * Tour du rafraîchissement adaptatif : seules les stations de ce serveur dont l'intervalle
+     * (court si leur météo varie, long si elle est stable) est écoulé sont rafraîchies, les plus en
+     * retard d'abord et au plus adaptiveRefreshBudget par tour. Les autres attendent le tour suivant.
+     */
+    private void refreshDueStations() {
+        try {
+            List<WeatherStation> stations = catalogSnapshot().stations();
+            List<WeatherStation> due = volatility.dueStations(stations, LocalDateTime.now(), adaptiveRefreshBudget);
+            adaptiveDeferred.addAndGet(stations.size() - due.size());
+            if (due.isEmpty()) {
+                LOG.debug("Rafraîchissement adaptatif : aucune station à rafraîchir");
+                return;
+            }
+
+            Semaphore apiPermits = new Semaphore(refreshParallelism);
+            List<CompletableFuture<Boolean>> results = new ArrayList<>(due.size());
+            for (WeatherStation station : due) {
+                // Copie : les stations du catalogue sont partagées avec les lecteurs
+                WeatherStation copy = new WeatherStation(station.getId(), station.getOpenWeatherMapId(),
+                        station.getName(), station.getCountry(), station.getLatitude(), station.getLongitude(),
+                        station.getLastUpdated());
+                results.add(pipeline.supply(() -> refreshStation(copy, apiPermits)));
+            }
+
+            int successCount = 0;
+            for (CompletableFuture<Boolean> result : results) {
+                if (ServicePipeline.await(result)) {
+                    successCount++;
+                }
+            }
+            adaptiveRefreshed.addAndGet(successCount);
+            LOG.info("Rafraîchissement adaptatif : {}/{} station(s) mise(s) à jour, {} non échue(s)",
+                    successCount, due.size(), stations.size() - due.size());
+
+        } catch (SQLException | IOException e) {
+            LOG.error("Rafraîchissement adaptatif échoué : {}", e.getMessage());
+        } catch (RuntimeException e) {
+            // Une exception arrêterait les tours suivants
+            LOG.error("Erreur du rafraîchissement adaptatif : {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(WeatherListener listener, Set<Integer> stationIds) throws RemoteException {
+        monitored("subscribe", () -> {
+            if (listener == null) {
+                throw new RemoteException("Écouteur manquant");
+            }
+            subscriptions.subscribe(listener, stationIds);
+            return null;
+        });
+    }
+
+    @Override
+    public void unsubscribe(WeatherListener listener) throws RemoteException {
+        monitored("unsubscribe", () -> {
+            subscriptions.unsubscribe(listener);
+            return null;
+        });
+    }
+
+    @Override
+    public ChangeSet getChangesSince(long version) throws RemoteException {
+        return syncBulkhead.call(() -> loadChangesSince(version));
+    }
+
+    private ChangeSet loadChangesSince(long version) throws RemoteException {
+        ChangeTracker.ChangeLog changes = changeTracker.changesSince(version);
+        if (changes != null) {
+            return new ChangeSet(changes.version(), false, changes.stations(), changes.readings());
+        }
+
+        try {
+            // Version inconnue : tout renvoyer. La version est prise avant la lecture pour
+            // que les modifications concurrentes soient renvoyées au prochain appel ; la lecture
+            // se fait sur le primaire, un réplica en retard pourrait omettre des modifications.
+            long current = changeTracker.currentVersion();
+            CompletableFuture<List<WeatherStation>> stationsFuture = pipeline.supply(primaryStationDAO::findAll);
+            CompletableFuture<List<WeatherData>> readingsFuture =
+                    pipeline.supply(primaryWeatherDataDAO::findLatestForAllStations);
+            List<WeatherStation> stations = ServicePipeline.await(stationsFuture);
+            List<WeatherData> readings = ServicePipeline.await(readingsFuture);
+
+            LOG.info("Resynchronisation complète : {} station(s)", stations.size());
+            return new ChangeSet(current, true, stations, readings);
+
+        } catch (SQLException | IOException e) {
+            LOG.error("Erreur base de données : {}", e.getMessage());
+            throw new RemoteException("Erreur lors de la synchronisation", e);
+        }
+    }
+
+    @Override
+    public AlertRule addAlertRule(AlertRule rule) throws RemoteException {
+        return monitored("addAlertRule", () -> {
+            AlertRule registered = alertEngine.addRule(rule);
+            LOG.info("Règle d'alerte enregistrée : {}", registered);
+            return registered;
+        });
+    }
+
+    @Override
+    public boolean removeAlertRule(int ruleId) throws RemoteException {
+        return monitored("removeAlertRule", () -> alertEngine.removeRule(ruleId));
+    }
+
+    @Override
+    public List<AlertRule> getAlertRules() throws RemoteException {
+        return monitored("getAlertRules", alertEngine::getRules);
+    }
+
+    @Override
+    public void subscribeAlerts(AlertListener listener) throws RemoteException {
+        monitored("subscribeAlerts", () -> {
+            alertSubscriptions.subscribe(listener);
+            return null;
+        });
+    }
+
+    @Override
+    public void unsubscribeAlerts(AlertListener listener) throws RemoteException {
+        monitored("unsubscribeAlerts", () -> {
+            alertSubscriptions.unsubscribe(listener);
+            return null;
+        });
+    }
+
+    /**
+     * Exécute une méthode distante sans cloison en la mesurant (événement JFR RmiMethod),
+     * comme le fait Bulkhead pour les autres.
+     */
+    private static <T> T monitored(String method, Bulkhead.RemoteCall<T> call) throws RemoteException {
+        RmiMethodEvent event = RmiMethodEvent.start(method);
+        String outcome = RmiMethodEvent.ERROR;
+        try {
+            T result = call.call();
+            outcome = RmiMethodEvent.OK;
+            return result;
+        } finally {
+            event.finish(0, outcome);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getServerStats() throws RemoteException {
+        return monitored("getServerStats", this::collectStats);
+    }
+
+    private Map<String, Long> collectStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("api.breaker.open", apiBreaker.isOpen() ? 1L : 0L);
+        stats.put("api.notFoundCache.savedCalls", notFoundCache.getHitCount());
+        stats.put("api.notFoundCache.stored", notFoundCache.getStoredCount());
+        stats.put("api.notFoundCache.size", (long) notFoundCache.size());
+        stats.put("subscriptions.dropped", subscriptions.getDroppedCount());
+        stats.put("alerts.rules", (long) alertEngine.getRules().size());
+        stats.put("alerts.evaluated", alertEngine.getEvaluatedCount());
+        stats.put("alerts.emitted", alertEngine.getEmittedCount());
+        stats.put("alerts.dropped", alertEngine.getDroppedCount());
+        stats.put("alerts.undelivered", alertSubscriptions.getDroppedCount());
+        for (Bulkhead bulkhead : bulkheads) {
+            String prefix = "bulkhead." + bulkhead.getName() + ".";
+            stats.put(prefix + "active", (long) bulkhead.getActiveCount());
+            stats.put(prefix + "queued", (long) bulkhead.getQueuedCount());
+            stats.put(prefix + "rejected", bulkhead.getRejectedCount());
+        }
+        List<Long> replicaLags = DatabaseConfig.getReplicaLagMillis();
+        for (int i = 0; i < replicaLags.size(); i++) {
+            stats.put("db.replica" + i + ".lagMillis", replicaLags.get(i));
+        }
+        stats.put("export.open", (long) (exportMaxOpen - exportSlots.availablePermits()));
+        stats.put("log.written", Logger.getWrittenCount());
+        stats.put("log.dropped", Logger.getDroppedCount());
+        stats.put("refresh.adaptive.tracked", (long) volatility.trackedCount());
+        stats.put("refresh.adaptive.refreshed", adaptiveRefreshed.get());
+        stats.put("refresh.adaptive.deferred", adaptiveDeferred.get());
+        stats.put("shard.index", (long) shard.index());
+        stats.put("shard.count", (long) shard.count());
+        stats.put("sketch.entries", (long) sketches.size());
+        stats.put("sketch.dirty", (long) sketches.dirtyCount());
+        stats.put("sketch.flushed", sketches.getFlushedCount());
+        stats.put("sketch.flushFailures", sketches.getFlushFailureCount());
+        stats.put("state.stations", (long) stateCache.stationCount());
+        stats.put("writer.batches", weatherDataWriter.getBatchCount());
+        stats.put("writer.rows", weatherDataWriter.getRowCount());
+        stats.put("writer.extended", weatherDataWriter.getExtensionCount());
+        return stats;
+    }
+
+    /**
+     * Démarrage à chaud : recharge l'instantané écrit au dernier arrêt, puis lance en arrière-plan
+     * la réconciliation avec la base. À appeler avant d'enregistrer le service dans le registre.
+     */
+    public void warmStart() {
+        if (Files.exists(snapshotPath)) {
+            long start = System.nanoTime();
+            try {
+                int count = StateSnapshot.load(stateCache, snapshotPath);
+                LOG.info("Instantané chargé : {} station(s) en {} ms", count,
+                        Duration.ofNanos(System.nanoTime() - start).toMillis());
+            } catch (IOException e) {
+                LOG.warn("Instantané ignoré : {}", e.getMessage());
+            }
+        }
+        backgroundExecutor.execute(this::reconcileWithDatabase);
+    }
+
+    /**
+     * Aligne l'état en mémoire sur la base (stations et dernière mesure de chacune).
+     */
+    private void reconcileWithDatabase() {
+        try {
+            CompletableFuture<List<WeatherStation>> stationsFuture = pipeline.supply(primaryStationDAO::findAll);
+            CompletableFuture<List<WeatherData>> readingsFuture =
+                    pipeline.supply(primaryWeatherDataDAO::findLatestForAllStations);
+            List<WeatherStation> stations = ServicePipeline.await(stationsFuture);
+            List<WeatherData> readings = ServicePipeline.await(readingsFuture);
+            // Dernières mesures tenues en mémoire pour les seules stations de ce shard
+            readings.removeIf(reading -> !shard.owns(reading.getStationId()));
+            int removed = stateCache.reconcile(stations, readings);
+            List<WeatherStation> owned = new ArrayList<>(stations);
+            owned.removeIf(station -> !shard.owns(station.getId()));
+            catalog.replaceAll(owned);
+            catalogLoadedAt = System.nanoTime();
+            LOG.info("Réconciliation terminée : {} station(s) en base, {} retirée(s) de la mémoire",
+                    stations.size(), removed);
+        } catch (SQLException | IOException e) {
+            LOG.warn("Réconciliation échouée : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Arrête les traitements en arrière-plan du service (envoi aux abonnés)
+     * et ferme le client API (archive d'enregistrement).
+     */
+    public void shutdown() {
+        if (adaptiveRefresher != null) {
+            adaptiveRefresher.shutdownNow();
+        }
+        if (sketchFlusher != null) {
+            sketchFlusher.shutdownNow();
+        }
+        backgroundExecutor.shutdownNow();
+        pipeline.shutdown();
+        subscriptions.shutdown();
+        alertEngine.close();
+        alertSubscriptions.shutdown();
+        weatherDataWriter.close();
+        int flushed = sketches.flush();  // Dernières mesures, reçues depuis la dernière écriture
+        LOG.info("Résumés de distribution écrits : {}", flushed);
+        try {
+            int count = StateSnapshot.write(stateCache, snapshotPath);
+            LOG.info("Instantané écrit : {} station(s) dans {}", count, snapshotPath);
+        } catch (IOException e) {
+            LOG.error("Erreur lors de l'écriture de l'instantané : {}", e.getMessage());
+        }
+        try {
+            apiClient.close();
+        } catch (IOException e) {
+            LOG.warn("Erreur lors de la fermeture du client API : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Appelée après chaque enregistrement d'une nouvelle mesure en base
+     * (la station vient d'être créée ou sa date de mise à jour modifiée).
+     * Ne doit jamais bloquer : elle s'exécute sur le chemin de rafraîchissement.
+     */
+    private void onWeatherDataPersisted(WeatherStation station, WeatherData weatherData) {
+        stateCache.putStation(station);
+        stateCache.putReading(weatherData);
+        changeTracker.recordStation(station);
+        changeTracker.recordReading(weatherData);
+        subscriptions.publish(weatherData);
+        alertEngine.submit(station.getName(), weatherData);
+        volatility.record(station.getId(), weatherData);
+        sketches.record(weatherData);
+    }
+
+    /**
+     * Appelée après la prolongation d'une mesure par une mesure identique. Rien de nouveau pour
+     * les abonnés ni pour les alertes ; la nouvelle date de validité est reprise en mémoire et
+     * signalée aux miroirs, et l'absence de variation est comptée pour le rafraîchissement adaptatif.
+     *
+     * @param extended La mesure prolongée
+     * @param observed La mesure reçue, identique
+     */
+    private void onReadingConfirmed(WeatherStation station, WeatherData extended, WeatherData observed) {
+        stateCache.putStation(station);
+        stateCache.putReading(extended);
+        changeTracker.recordStation(station);
+        changeTracker.recordReading(extended);
+        volatility.record(station.getId(), observed);
+    }
 }
\ No newline at end of file
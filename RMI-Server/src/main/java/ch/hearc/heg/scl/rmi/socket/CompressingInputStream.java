@@ -0,0 +1,140 @@
+package ch.hearc.heg.scl.rmi.socket;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Flux d'entrée relisant les trames produites par CompressingOutputStream.
+ * Les trames compressées sont décompressées entièrement avant d'être servies.
+ */
+public class CompressingInputStream extends FilterInputStream {
+
+    private final DataInputStream data;
+    private final Inflater inflater = new Inflater();
+
+    private byte[] frame = new byte[8192];
+    private byte[] compressed = new byte[0];
+    private int position = 0;
+    private int limit = 0;
+
+    /**
+     * @param in Flux sous-jacent (socket)
+     */
+    public CompressingInputStream(InputStream in) {
+        super(in);
+        this.data = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !readFrame()) {
+            return -1;
+        }
+        return frame[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !readFrame()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(frame, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            if (position == limit && !readFrame()) {
+                break;
+            }
+            int step = (int) Math.min(n - skipped, limit - position);
+            position += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    /**
+     * Lit la trame suivante (en bloquant).
+     *
+     * @return false si la fin du flux est atteinte
+     */
+    private boolean readFrame() throws IOException {
+        int type = data.read();
+        if (type < 0) {
+            return false;
+        }
+        int length = data.readInt();
+        if (length < 0 || length > CompressingOutputStream.MAX_FRAME) {
+            throw new IOException("Trame invalide (longueur " + length + ")");
+        }
+        if (frame.length < length) {
+            frame = new byte[Math.max(length, frame.length * 2)];
+        }
+
+        if (type == CompressingOutputStream.RAW) {
+            data.readFully(frame, 0, length);
+        } else if (type == CompressingOutputStream.DEFLATED) {
+            int compressedLength = data.readInt();
+            if (compressedLength < 0 || compressedLength > length) {
+                throw new IOException("Trame compressée invalide (longueur " + compressedLength + ")");
+            }
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressedLength];
+            }
+            data.readFully(compressed, 0, compressedLength);
+            inflate(compressedLength, length);
+        } else {
+            throw new IOException("Type de trame inconnu : " + type);
+        }
+
+        position = 0;
+        limit = length;
+        return true;
+    }
+
+    private void inflate(int compressedLength, int length) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            int inflated = 0;
+            while (inflated < length) {
+                int n = inflater.inflate(frame, inflated, length - inflated);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new EOFException("Trame compressée tronquée");
+                }
+                inflated += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Trame compressée corrompue", e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ch.hearc.heg.scl.rmi.socket;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Flux de sortie découpant les données en trames, compressées au-delà d'un seuil.
+ *
+ * Les octets écrits sont accumulés jusqu'au flush() (RMI vide le flux à la fin de chaque message),
+ * ou jusqu'à la taille maximale d'une trame. Chaque trame est émise ainsi :
+ * <pre>
+ * octet 0 (brute)      : int longueur, octets
+ * octet 1 (compressée) : int longueurBrute, int longueurCompressée, octets compressés (Deflate)
+ * </pre>
+ * Les petits messages (appels, accusés de réception) partent bruts : les compresser coûterait
+ * plus de temps qu'ils n'en feraient gagner. Une trame n'est compressée que si elle y gagne.
+ */
+public class CompressingOutputStream extends FilterOutputStream {
+
+    static final int RAW = 0;
+    static final int DEFLATED = 1;
+    static final int MAX_FRAME = 256 * 1024;
+
+    private final DataOutputStream data;
+    private final int threshold;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private byte[] buffer = new byte[8192];
+    private byte[] compressed = new byte[0];
+    private int count = 0;
+
+    /**
+     * @param out Flux sous-jacent (socket)
+     * @param threshold Taille minimale d'une trame pour être compressée, en octets
+     */
+    public CompressingOutputStream(OutputStream out, int threshold) {
+        super(out);
+        this.data = new DataOutputStream(out);
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+        if (count >= MAX_FRAME) {
+            writeFrame();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int chunk = Math.min(len, MAX_FRAME - count);
+            ensureCapacity(chunk);
+            System.arraycopy(b, off, buffer, count, chunk);
+            count += chunk;
+            off += chunk;
+            len -= chunk;
+            if (count >= MAX_FRAME) {
+                writeFrame();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeFrame();
+        data.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * Émet le contenu du tampon sous forme d'une trame, brute ou compressée.
+     */
+    private void writeFrame() throws IOException {
+        if (count == 0) {
+            return;
+        }
+
+        if (count >= threshold) {
+            deflater.reset();
+            deflater.setInput(buffer, 0, count);
+            deflater.finish();
+            if (compressed.length < count) {
+                compressed = new byte[count];
+            }
+            int compressedLength = 0;
+            while (!deflater.finished() && compressedLength < count) {
+                compressedLength += deflater.deflate(compressed, compressedLength, count - compressedLength);
+            }
+
+            if (deflater.finished() && compressedLength < count) {
+                data.writeByte(DEFLATED);
+                data.writeInt(count);
+                data.writeInt(compressedLength);
+                data.write(compressed, 0, compressedLength);
+                count = 0;
+                return;
+            }
+            // Données incompressibles : envoi brut
+        }
+
+        data.writeByte(RAW);
+        data.writeInt(count);
+        data.write(buffer, 0, count);
+        count = 0;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(MAX_FRAME, Math.max(buffer.length * 2, count + extra)));
+        }
+    }
+}
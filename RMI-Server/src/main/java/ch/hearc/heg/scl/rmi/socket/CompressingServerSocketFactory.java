@@ -0,0 +1,37 @@
+package ch.hearc.heg.scl.rmi.socket;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.rmi.server.RMIServerSocketFactory;
+
+/**
+ * Fabrique de sockets serveur compressées, associée à CompressingClientSocketFactory.
+ */
+public class CompressingServerSocketFactory implements RMIServerSocketFactory {
+
+    private final int threshold;
+
+    /**
+     * @param threshold Taille minimale d'une trame pour être compressée, en octets
+     */
+    public CompressingServerSocketFactory(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return new CompressingServerSocket(port, threshold);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return threshold == ((CompressingServerSocketFactory) o).threshold;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(threshold);
+    }
+}
@@ -0,0 +1,69 @@
+package ch.hearc.heg.scl.rmi.socket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * Socket dont les flux appliquent la compression par trames.
+ * Les deux extrémités d'une connexion doivent utiliser ce type de socket.
+ */
+public class CompressingSocket extends Socket {
+
+    private final int threshold;
+    private InputStream input;
+    private OutputStream output;
+
+    /**
+     * Socket non connectée, destinée à ServerSocket.implAccept().
+     *
+     * @param threshold Taille minimale d'une trame pour être compressée
+     */
+    public CompressingSocket(int threshold) {
+        super();
+        this.threshold = threshold;
+    }
+
+    /**
+     * Socket cliente connectée.
+     *
+     * @param host Hôte du serveur
+     * @param port Port du serveur
+     * @param threshold Taille minimale d'une trame pour être compressée
+     */
+    public CompressingSocket(String host, int port, int threshold) throws IOException {
+        super(host, port);
+        this.threshold = threshold;
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        if (input == null) {
+            input = new CompressingInputStream(rawInputStream());
+        }
+        return input;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (output == null) {
+            output = new CompressingOutputStream(rawOutputStream(), threshold);
+        }
+        return output;
+    }
+
+    /**
+     * Flux d'entrée réseau, sous la décompression.
+     */
+    protected InputStream rawInputStream() throws IOException {
+        return super.getInputStream();
+    }
+
+    /**
+     * Flux de sortie réseau, sous la compression.
+     */
+    protected OutputStream rawOutputStream() throws IOException {
+        return super.getOutputStream();
+    }
+}
@@ -0,0 +1,159 @@
+package ch.hearc.heg.scl.service;
+
+import ch.hearc.heg.scl.logging.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Disjoncteur protégeant les appels à un service externe (API météo).
+ *
+ * - FERMÉ : les appels passent. Après N échecs consécutifs (un appel trop lent compte
+ *   comme un échec), le disjoncteur s'ouvre.
+ * - OUVERT : les appels échouent immédiatement (CircuitOpenException) sans solliciter
+ *   le service, pendant la durée d'ouverture.
+ * - SEMI-OUVERT : à l'expiration, un seul appel d'essai est autorisé ; son succès referme
+ *   le disjoncteur, son échec le rouvre.
+ *
+ * Une StationNotFoundException n'est pas un échec : le service a répondu normalement.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOG = Logger.getLogger(CircuitBreaker.class);
+
+    /**
+     * État du disjoncteur.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Appel protégé par le disjoncteur.
+     */
+    @FunctionalInterface
+    public interface IoCall<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Levée lorsque le disjoncteur est ouvert et que l'appel n'a pas été tenté.
+     * Propre au serveur : ne jamais la transmettre au client comme cause d'une RemoteException.
+     */
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(String message) {
+            super(message);
+        }
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt;
+    private boolean trialInProgress = false;
+
+    /**
+     * @param name Nom du service protégé (pour les messages)
+     * @param failureThreshold Nombre d'échecs consécutifs avant ouverture
+     * @param slowCallThreshold Durée au-delà de laquelle un appel réussi compte comme un échec
+     * @param openDuration Durée pendant laquelle les appels sont refusés
+     */
+    public CircuitBreaker(String name, int failureThreshold, Duration slowCallThreshold, Duration openDuration) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Le seuil d'échecs doit être positif");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Exécute un appel à travers le disjoncteur.
+     *
+     * @param call L'appel au service externe
+     * @return Le résultat de l'appel
+     * @throws CircuitOpenException Si le disjoncteur est ouvert
+     * @throws IOException Si l'appel échoue
+     */
+    public <T> T call(IoCall<T> call) throws IOException {
+        acquirePermission();
+
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            onResult(System.nanoTime() - start <= slowCallNanos);
+            return result;
+        } catch (StationNotFoundException e) {
+            onResult(true);
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            // Une erreur de validation n'est pas une défaillance du service
+            onResult(e instanceof IllegalArgumentException);
+            throw e;
+        }
+    }
+
+    /**
+     * @return L'état courant du disjoncteur
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return Vrai si un appel serait refusé immédiatement
+     */
+    public synchronized boolean isOpen() {
+        return getState() == State.OPEN || (state == State.HALF_OPEN && trialInProgress);
+    }
+
+    private synchronized void acquirePermission() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                throw new CircuitOpenException("Service " + name + " indisponible (disjoncteur ouvert)");
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInProgress) {
+                throw new CircuitOpenException("Service " + name + " en cours de vérification");
+            }
+            trialInProgress = true;
+        }
+    }
+
+    private synchronized void onResult(boolean success) {
+        if (state == State.HALF_OPEN) {
+            trialInProgress = false;
+            if (success) {
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+                LOG.info("Disjoncteur {} refermé", name);
+            } else {
+                open();
+            }
+            return;
+        }
+
+        if (success) {
+            consecutiveFailures = 0;
+        } else if (++consecutiveFailures >= failureThreshold && state == State.CLOSED) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        consecutiveFailures = 0;
+        LOG.warn("Disjoncteur {} ouvert pour {} s", name, Duration.ofNanos(openNanos).toSeconds());
+    }
+}
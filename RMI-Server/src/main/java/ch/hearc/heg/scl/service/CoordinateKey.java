@@ -0,0 +1,22 @@
+package ch.hearc.heg.scl.service;
+
+/**
+ * Coordonnées arrondies au centième de degré (environ 1 km), utilisées comme clé
+ * pour rapprocher des recherches portant sur un même lieu.
+ *
+ * @param latitudeE2 Latitude × 100, arrondie
+ * @param longitudeE2 Longitude × 100, arrondie
+ */
+public record CoordinateKey(int latitudeE2, int longitudeE2) {
+
+    /**
+     * Arrondit des coordonnées au centième de degré.
+     *
+     * @param latitude Latitude
+     * @param longitude Longitude
+     * @return La clé correspondante
+     */
+    public static CoordinateKey of(double latitude, double longitude) {
+        return new CoordinateKey((int) Math.round(latitude * 100), (int) Math.round(longitude * 100));
+    }
+}
@@ -0,0 +1,59 @@
+package ch.hearc.heg.scl.service;
+
+import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.model.WeatherData;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Décide si une nouvelle mesure est identique à la précédente, auquel cas la ligne existante
+ * est prolongée (VALID_UNTIL) au lieu d'en insérer une nouvelle.
+ *
+ * Deux mesures sont identiques si température et ressenti, pression, vent et humidité diffèrent
+ * d'au plus leur tolérance (0 par défaut : valeurs exactement égales), et si description et icône
+ * sont les mêmes. Une ligne n'est pas prolongée au-delà de maxWindow après sa mesure : une
+ * station stable garde au moins une ligne par fenêtre.
+ *
+ * @param temperature Écart toléré sur la température et le ressenti (°C)
+ * @param pressure Écart toléré sur la pression (hPa)
+ * @param windSpeed Écart toléré sur le vent (m/s)
+ * @param humidity Écart toléré sur l'humidité (%)
+ * @param maxWindow Durée maximale couverte par une ligne (zéro = aucune prolongation)
+ */
+public record ReadingTolerance(double temperature, double pressure, double windSpeed, double humidity,
+                               Duration maxWindow) {
+
+    /**
+     * Tolérances de dedup.*.tolerance et fenêtre de dedup.max.window.seconds (3600 par défaut).
+     */
+    public static ReadingTolerance fromConfig() {
+        return new ReadingTolerance(
+                DatabaseConfig.getDoubleProperty("dedup.temperature.tolerance", 0),
+                DatabaseConfig.getDoubleProperty("dedup.pressure.tolerance", 0),
+                DatabaseConfig.getDoubleProperty("dedup.wind.tolerance", 0),
+                DatabaseConfig.getDoubleProperty("dedup.humidity.tolerance", 0),
+                Duration.ofSeconds(DatabaseConfig.getIntProperty("dedup.max.window.seconds", 3600)));
+    }
+
+    /**
+     * @param previous Dernière mesure enregistrée de la station (null si inconnue)
+     * @param current Nouvelle mesure de la même station
+     * @return Vrai si la nouvelle mesure peut prolonger la précédente
+     */
+    public boolean matches(WeatherData previous, WeatherData current) {
+        if (previous == null || previous.getId() == null || previous.getId() <= 0
+                || previous.getTimestamp() == null || current.getTimestamp() == null
+                || !current.getTimestamp().isAfter(previous.getObservedUntil())
+                || Duration.between(previous.getTimestamp(), current.getTimestamp()).compareTo(maxWindow) > 0) {
+            return false;
+        }
+        return Math.abs(current.getTemperature() - previous.getTemperature()) <= temperature
+                && Math.abs(current.getFeelsLike() - previous.getFeelsLike()) <= temperature
+                && Math.abs(current.getPressure() - previous.getPressure()) <= pressure
+                && Math.abs(current.getWindSpeed() - previous.getWindSpeed()) <= windSpeed
+                && Math.abs(current.getHumidity() - previous.getHumidity()) <= humidity
+                && Objects.equals(current.getDescription(), previous.getDescription())
+                && Objects.equals(current.getIcon(), previous.getIcon());
+    }
+}
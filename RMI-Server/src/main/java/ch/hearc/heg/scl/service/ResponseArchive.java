@@ -0,0 +1,122 @@
+package ch.hearc.heg.scl.service;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Archive de réponses de l'API météo, relue en mémoire mappée pour le mode rejeu.
+ *
+ * À l'ouverture, le fichier écrit par ResponseRecorder est mappé en mémoire et indexé
+ * (clé de requête vers position). Les corps ne sont décodés qu'à la demande,
+ * par lecture absolue dans le tampon mappé : la recherche est sans verrou et thread-safe.
+ * Si une clé apparaît plusieurs fois, la dernière réponse enregistrée est servie.
+ */
+public class ResponseArchive {
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, Integer> index;
+
+    /**
+     * Réponse enregistrée dans l'archive.
+     */
+    public record ArchivedResponse(int status, String body) {
+    }
+
+    /**
+     * Ouvre et indexe une archive existante.
+     *
+     * @param path Chemin du fichier d'archive
+     * @throws IOException Si le fichier est absent, trop gros ou corrompu
+     */
+    public ResponseArchive(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive trop volumineuse (> 2 Go) : " + path);
+            }
+            // Le mappage reste valide après la fermeture du canal
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        this.index = buildIndex(path);
+    }
+
+    /**
+     * Recherche la réponse enregistrée pour une clé de requête.
+     *
+     * @param key Clé de la requête
+     * @return La réponse, ou null si la clé n'a jamais été enregistrée
+     */
+    public ArchivedResponse lookup(String key) {
+        Integer position = index.get(key);
+        if (position == null) {
+            return null;
+        }
+        int status = buffer.getInt(position);
+        int bodyLength = buffer.getInt(position + 4);
+        byte[] body = new byte[bodyLength];
+        buffer.get(position + 8, body);
+        return new ArchivedResponse(status, new String(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return Le nombre de clés distinctes dans l'archive
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Parcourt les entrées et mémorise pour chaque clé la position de son statut.
+     */
+    private Map<String, Integer> buildIndex(Path path) throws IOException {
+        if (buffer.limit() < 8 || buffer.getInt(0) != ResponseRecorder.MAGIC) {
+            throw new IOException("Fichier d'archive invalide : " + path);
+        }
+        if (buffer.getInt(4) != ResponseRecorder.VERSION) {
+            throw new IOException("Version d'archive non supportée : " + buffer.getInt(4));
+        }
+
+        Map<String, Integer> entries = new HashMap<>();
+        int position = 8;
+        int limit = buffer.limit();
+        while (position + 4 <= limit) {
+            int keyLength = buffer.getInt(position);
+            int statusPosition = position + 4 + keyLength;
+            if (keyLength < 0 || statusPosition + 8 > limit) {
+                break;  // Entrée tronquée (arrêt pendant l'enregistrement)
+            }
+            int bodyLength = buffer.getInt(statusPosition + 4);
+            int next = statusPosition + 8 + bodyLength;
+            if (bodyLength < 0 || next > limit) {
+                break;
+            }
+
+            byte[] key = new byte[keyLength];
+            buffer.get(position + 4, key);
+            entries.put(new String(key, StandardCharsets.UTF_8), statusPosition);
+            position = next;
+        }
+        return entries;
+    }
+
+    /**
+     * Vérifie l'en-tête d'une archive avant de la compléter.
+     */
+    static void checkHeader(Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(input)) {
+            if (in.readInt() != ResponseRecorder.MAGIC || in.readInt() != ResponseRecorder.VERSION) {
+                throw new IOException("Fichier d'archive invalide : " + path);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ch.hearc.heg.scl.service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Enregistre les réponses brutes de l'API météo dans une archive sur disque,
+ * avec la clé de la requête qui les a produites.
+ *
+ * Format de l'archive (relue par ResponseArchive) :
+ * <pre>
+ * en-tête : int MAGIC, int VERSION
+ * entrée  : int longueurClé, octets clé (UTF-8), int statut HTTP, int longueurCorps, octets corps (UTF-8)
+ * </pre>
+ * Les entrées sont ajoutées à la fin : une archive existante est complétée.
+ */
+public class ResponseRecorder implements Closeable {
+
+    static final int MAGIC = 0x4F574D41;  // "OWMA"
+    static final int VERSION = 1;
+
+    private final DataOutputStream out;
+
+    /**
+     * Ouvre (ou crée) une archive en écriture.
+     *
+     * @param path Chemin du fichier d'archive
+     * @throws IOException Si le fichier ne peut pas être ouvert
+     */
+    public ResponseRecorder(Path path) throws IOException {
+        boolean isNew = !Files.exists(path) || Files.size(path) == 0;
+        if (!isNew) {
+            // Vérifier qu'on complète bien une archive du même format
+            ResponseArchive.checkHeader(path);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)));
+        if (isNew) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.flush();
+        }
+    }
+
+    /**
+     * Ajoute une réponse à l'archive. L'entrée est écrite sur disque avant le retour.
+     *
+     * @param key Clé de la requête (paramètres sans la clé API)
+     * @param status Code de statut HTTP
+     * @param body Corps de la réponse
+     */
+    public synchronized void record(String key, int status, String body) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(status);
+        out.writeInt(bodyBytes.length);
+        out.write(bodyBytes);
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
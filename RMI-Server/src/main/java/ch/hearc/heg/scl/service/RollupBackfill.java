@@ -0,0 +1,141 @@
+package ch.hearc.heg.scl.service;
+
+import ch.hearc.heg.scl.dao.WeatherRollupDAO;
+import ch.hearc.heg.scl.dao.WeatherStationDAO;
+import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.WeatherStation;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reconstruction des agrégats horaires et journaliers à partir de l'historique des mesures,
+ * pour les mesures enregistrées avant leur mise à jour incrémentale (ou pour réparer des agrégats).
+ *
+ * Les stations, triées par ID, sont découpées récursivement (fork/join) en plages d'au plus
+ * chunkStations stations ; chaque plage est reconstruite en une transaction sur sa propre
+ * connexion (WeatherRollupDAO.rebuild), parallelism plages à la fois. Le serveur peut rester
+ * en service : l'écriture des mesures d'une plage attend la fin de sa reconstruction.
+ *
+ * Une plage en échec est signalée et comptée sans interrompre les autres ; relancer la
+ * reconstruction est sans risque.
+ */
+public class RollupBackfill {
+
+    private static final Logger LOG = Logger.getLogger(RollupBackfill.class);
+
+    /**
+     * Bilan d'une reconstruction.
+     *
+     * @param stations Nombre de stations traitées
+     * @param rollupRows Nombre de lignes d'agrégats écrites
+     * @param failedChunks Nombre de plages en échec (laissées dans leur état précédent)
+     * @param millis Durée totale
+     */
+    public record Report(int stations, long rollupRows, int failedChunks, long millis) {
+    }
+
+    private final WeatherStationDAO stationDAO;
+    private final WeatherRollupDAO rollupDAO;
+    private final int chunkStations;
+    private final int parallelism;
+
+    /**
+     * @param stationDAO DAO de lecture des stations
+     * @param rollupDAO DAO des agrégats
+     * @param chunkStations Nombre maximal de stations par plage (et par transaction)
+     * @param parallelism Nombre de plages reconstruites en même temps
+     */
+    public RollupBackfill(WeatherStationDAO stationDAO, WeatherRollupDAO rollupDAO, int chunkStations,
+                          int parallelism) {
+        if (chunkStations <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("La taille des plages et le parallélisme doivent être positifs");
+        }
+        this.stationDAO = stationDAO;
+        this.rollupDAO = rollupDAO;
+        this.chunkStations = chunkStations;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Crée la reconstruction selon la configuration : rollup.backfill.chunk.stations (50 stations
+     * par plage) et rollup.backfill.parallelism (4 plages à la fois).
+     */
+    public static RollupBackfill fromConfig() {
+        return new RollupBackfill(new WeatherStationDAO(false), new WeatherRollupDAO(),
+                DatabaseConfig.getIntProperty("rollup.backfill.chunk.stations", 50),
+                DatabaseConfig.getIntProperty("rollup.backfill.parallelism", 4));
+    }
+
+    /**
+     * Reconstruit les agrégats de toutes les stations.
+     *
+     * @return Le bilan de la reconstruction
+     * @throws SQLException Si la liste des stations n'a pas pu être lue
+     */
+    public Report run() throws SQLException {
+        long start = System.nanoTime();
+        int[] stationIds = stationDAO.findAll().stream()
+                .mapToInt(WeatherStation::getId)
+                .sorted()
+                .toArray();
+
+        AtomicInteger failed = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long rows;
+        try {
+            rows = pool.invoke(new RebuildTask(stationIds, 0, stationIds.length, failed));
+        } finally {
+            pool.shutdown();
+        }
+
+        Report report = new Report(stationIds.length, rows, failed.get(), (System.nanoTime() - start) / 1_000_000);
+        LOG.info("Agrégats reconstruits : {} station(s), {} ligne(s), {} plage(s) en échec, {} ms",
+                report.stations(), report.rollupRows(), report.failedChunks(), report.millis());
+        return report;
+    }
+
+    /**
+     * Reconstruit les stations ids[from, to) : directement si la plage est assez petite,
+     * sinon en deux moitiés parallèles.
+     */
+    private final class RebuildTask extends RecursiveTask<Long> {
+        private final int[] ids;
+        private final int from;
+        private final int to;
+        private final AtomicInteger failed;
+
+        RebuildTask(int[] ids, int from, int to, AtomicInteger failed) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.failed = failed;
+        }
+
+        @Override
+        protected Long compute() {
+            if (from >= to) {
+                return 0L;
+            }
+            if (to - from <= chunkStations) {
+                try {
+                    return (long) rollupDAO.rebuild(ids[from], ids[to - 1]);
+                } catch (SQLException e) {
+                    LOG.warn("Échec de la reconstruction des stations {} à {} : {}",
+                            ids[from], ids[to - 1], e.getMessage());
+                    failed.incrementAndGet();
+                    return 0L;
+                }
+            }
+            int middle = (from + to) >>> 1;
+            RebuildTask left = new RebuildTask(ids, from, middle, failed);
+            left.fork();
+            long right = new RebuildTask(ids, middle, to, failed).compute();
+            return right + left.join();
+        }
+    }
+}
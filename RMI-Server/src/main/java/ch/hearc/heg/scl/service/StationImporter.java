@@ -0,0 +1,395 @@
+package ch.hearc.heg.scl.service;
+
+import ch.hearc.heg.scl.dao.WeatherStationDAO;
+import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.ImportReport;
+import ch.hearc.heg.scl.model.WeatherStation;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * Import en masse de stations depuis une liste de villes OpenWeatherMap, sans appel à l'API.
+ *
+ * Formats acceptés :
+ * - JSON : le fichier city.list.json d'OpenWeatherMap, un tableau d'objets
+ *   {"id", "name", "country", "coord": {"lon", "lat"}} ;
+ * - CSV : colonnes id, name, country, lat, lon, avec ou sans ligne d'en-tête
+ *   (l'en-tête peut les donner dans un autre ordre).
+ *
+ * Lecture : un premier passage, simple parcours de caractères, découpe le fichier en
+ * enregistrements (objets JSON de premier niveau ou lignes CSV) ; ceux-ci sont ensuite
+ * décodés et validés en parallèle. Les doublons d'ID OpenWeatherMap sont écartés (la première
+ * occurrence est gardée).
+ *
+ * Écriture : les stations sont insérées par lots de batchSize (WeatherStationDAO.insertMissing),
+ * parallelism lots à la fois, chacun sur sa connexion ; les stations déjà en base sont ignorées.
+ * Les stations importées n'ont pas encore de mesure.
+ */
+public class StationImporter {
+
+    private static final Logger LOG = Logger.getLogger(StationImporter.class);
+
+    /**
+     * Format du fichier à importer.
+     */
+    public enum Format {
+        JSON, CSV;
+
+        /**
+         * Déduit le format de l'extension du nom de fichier, sinon du premier caractère du contenu.
+         */
+        static Format detect(String fileName, String content) {
+            String lower = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".json")) {
+                return JSON;
+            }
+            if (lower.endsWith(".csv")) {
+                return CSV;
+            }
+            for (int i = 0; i < content.length(); i++) {
+                char c = content.charAt(i);
+                if (!Character.isWhitespace(c) && c != '\uFEFF') {
+                    return c == '[' ? JSON : CSV;
+                }
+            }
+            return CSV;
+        }
+    }
+
+    private static final int MAX_NAME_LENGTH = 100;    // WEATHER_STATION.NAME
+    private static final int MAX_COUNTRY_LENGTH = 10;  // WEATHER_STATION.COUNTRY
+
+    private final WeatherStationDAO stationDAO;
+    private final int batchSize;
+    private final int parallelism;
+    private final Gson gson = new Gson();
+
+    /**
+     * @param stationDAO DAO utilisé pour les insertions
+     * @param batchSize Nombre de stations par lot (et par transaction)
+     * @param parallelism Nombre de lots écrits en même temps
+     */
+    public StationImporter(WeatherStationDAO stationDAO, int batchSize, int parallelism) {
+        if (batchSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("La taille des lots et le parallélisme doivent être positifs");
+        }
+        this.stationDAO = stationDAO;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Crée l'importateur selon la configuration : import.batch.size (500 stations par lot)
+     * et import.parallelism (4 lots à la fois).
+     */
+    public static StationImporter fromConfig(WeatherStationDAO stationDAO) {
+        return new StationImporter(stationDAO,
+                DatabaseConfig.getIntProperty("import.batch.size", 500),
+                DatabaseConfig.getIntProperty("import.parallelism", 4));
+    }
+
+    /**
+     * Importe un fichier lu sur le serveur.
+     *
+     * @param file Fichier JSON ou CSV
+     * @return Le bilan de l'import
+     */
+    public ImportReport importFile(Path file) throws IOException, SQLException {
+        return importContent(file.getFileName().toString(), Files.readAllBytes(file));
+    }
+
+    /**
+     * Importe le contenu d'un fichier (UTF-8).
+     *
+     * @param fileName Nom du fichier, pour reconnaître le format (peut être null)
+     * @param content Contenu du fichier
+     * @return Le bilan de l'import
+     */
+    public ImportReport importContent(String fileName, byte[] content) throws IOException, SQLException {
+        long start = System.nanoTime();
+        String text = new String(content, StandardCharsets.UTF_8);
+        Format format = Format.detect(fileName, text);
+
+        // 1. Découpage séquentiel, puis décodage parallèle de chaque enregistrement
+        LocalDateTime importedAt = LocalDateTime.now();
+        WeatherStation[] parsed = format == Format.JSON
+                ? parseJson(text, importedAt)
+                : parseCsv(text, importedAt);
+
+        // 2. Dédoublonnage sur l'ID OpenWeatherMap
+        int invalid = 0;
+        Map<Long, WeatherStation> unique = new LinkedHashMap<>();
+        for (WeatherStation station : parsed) {
+            if (station == null) {
+                invalid++;
+            } else {
+                unique.putIfAbsent(station.getOpenWeatherMapId(), station);
+            }
+        }
+        int valid = parsed.length - invalid;
+        long parseMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // 3. Écriture par lots
+        long insertStart = System.nanoTime();
+        int inserted = insertInBatches(new ArrayList<>(unique.values()));
+        long insertMillis = (System.nanoTime() - insertStart) / 1_000_000;
+
+        ImportReport report = new ImportReport(valid, invalid, valid - unique.size(), inserted,
+                unique.size() - inserted, parseMillis, insertMillis);
+        LOG.info("Import {} terminé : {}", format, report);
+        return report;
+    }
+
+    private int insertInBatches(List<WeatherStation> stations) throws SQLException {
+        if (stations.isEmpty()) {
+            return 0;
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            List<Future<Integer>> batches = new ArrayList<>();
+            for (int from = 0; from < stations.size(); from += batchSize) {
+                List<WeatherStation> batch = stations.subList(from, Math.min(from + batchSize, stations.size()));
+                batches.add(executor.submit(() -> stationDAO.insertMissing(batch)));
+            }
+
+            int inserted = 0;
+            SQLException failure = null;
+            for (Future<Integer> batch : batches) {
+                try {
+                    inserted += batch.get();
+                } catch (ExecutionException e) {
+                    // Les lots déjà validés restent en base ; l'import peut être relancé
+                    if (failure == null) {
+                        failure = e.getCause() instanceof SQLException sqlException
+                                ? sqlException
+                                : new SQLException("Erreur lors de l'import", e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Import interrompu", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return inserted;
+        }
+    }
+
+    // Lecture JSON
+
+    /**
+     * Entrée de city.list.json.
+     */
+    private static class CityEntry {
+        Long id;
+        String name;
+        String country;
+        Coord coord;
+
+        static class Coord {
+            Double lon;
+            Double lat;
+        }
+    }
+
+    private WeatherStation[] parseJson(String text, LocalDateTime importedAt) throws IOException {
+        List<int[]> objects = splitJsonObjects(text);
+        return IntStream.range(0, objects.size())
+                .parallel()
+                .mapToObj(i -> {
+                    int[] range = objects.get(i);
+                    try {
+                        CityEntry entry = gson.fromJson(text.substring(range[0], range[1]), CityEntry.class);
+                        if (entry == null || entry.coord == null) {
+                            return null;
+                        }
+                        return toStation(entry.id, entry.name, entry.country, entry.coord.lat, entry.coord.lon,
+                                importedAt);
+                    } catch (JsonParseException e) {
+                        return null;
+                    }
+                })
+                .toArray(WeatherStation[]::new);
+    }
+
+    /**
+     * Repère les objets du tableau de premier niveau ([début, fin[ de chacun) en suivant
+     * l'imbrication et les chaînes, sans rien décoder.
+     */
+    private static List<int[]> splitJsonObjects(String text) throws IOException {
+        List<int[]> objects = new ArrayList<>();
+        int depth = 0;
+        int objectStart = -1;
+        boolean inString = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> inString = true;
+                case '[', '{' -> {
+                    depth++;
+                    if (c == '{' && depth == 2) {
+                        objectStart = i;
+                    }
+                }
+                case ']', '}' -> {
+                    if (c == '}' && depth == 2 && objectStart >= 0) {
+                        objects.add(new int[]{objectStart, i + 1});
+                        objectStart = -1;
+                    }
+                    depth--;
+                }
+                default -> {
+                }
+            }
+        }
+        if (depth != 0 || inString) {
+            throw new IOException("Fichier JSON tronqué ou mal formé");
+        }
+        return objects;
+    }
+
+    // Lecture CSV
+
+    private WeatherStation[] parseCsv(String text, LocalDateTime importedAt) {
+        String[] lines = text.split("\r?\n");
+        int first = 0;
+        while (first < lines.length && lines[first].isBlank()) {
+            first++;
+        }
+        if (first == lines.length) {
+            return new WeatherStation[0];
+        }
+
+        // Colonnes id, name, country, lat, lon : ordre de l'en-tête s'il y en a un
+        int[] columns = {0, 1, 2, 3, 4};
+        List<String> header = splitCsvLine(lines[first].replace("\uFEFF", ""));
+        if (!header.isEmpty() && !isNumber(header.get(0))) {
+            columns = headerColumns(header);
+            first++;
+        }
+
+        int[] indexes = columns;
+        return IntStream.range(first, lines.length)
+                .parallel()
+                .filter(i -> !lines[i].isBlank())
+                .mapToObj(i -> {
+                    List<String> fields = splitCsvLine(lines[i]);
+                    try {
+                        return toStation(Long.parseLong(field(fields, indexes[0])), field(fields, indexes[1]),
+                                field(fields, indexes[2]), Double.parseDouble(field(fields, indexes[3])),
+                                Double.parseDouble(field(fields, indexes[4])), importedAt);
+                    } catch (NumberFormatException | NullPointerException e) {
+                        return null;
+                    }
+                })
+                .toArray(WeatherStation[]::new);
+    }
+
+    private static int[] headerColumns(List<String> header) {
+        int[] columns = {-1, -1, -1, -1, -1};
+        for (int i = 0; i < header.size(); i++) {
+            switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "id", "openweathermap_id" -> columns[0] = i;
+                case "name" -> columns[1] = i;
+                case "country" -> columns[2] = i;
+                case "lat", "latitude" -> columns[3] = i;
+                case "lon", "lng", "longitude" -> columns[4] = i;
+                default -> {
+                }
+            }
+        }
+        if (columns[0] < 0 || columns[1] < 0 || columns[3] < 0 || columns[4] < 0) {
+            throw new IllegalArgumentException("En-tête CSV incomplet (id, name, lat, lon requis) : " + header);
+        }
+        return columns;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index).trim() : null;
+    }
+
+    /**
+     * Découpe une ligne CSV ; un champ entre guillemets peut contenir des virgules ("" = guillemet).
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Long.parseLong(value.trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return La station, ou null si un champ obligatoire manque ou sort des limites de la table
+     */
+    private static WeatherStation toStation(Long id, String name, String country, Double latitude,
+                                            Double longitude, LocalDateTime importedAt) {
+        if (id == null || id <= 0 || name == null || name.isBlank() || name.length() > MAX_NAME_LENGTH
+                || latitude == null || longitude == null
+                || latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            return null;
+        }
+        String countryCode = country == null || country.isBlank() ? null : country.trim();
+        if (countryCode != null && countryCode.length() > MAX_COUNTRY_LENGTH) {
+            return null;
+        }
+        return new WeatherStation(null, id, name.trim(), countryCode, latitude, longitude, importedAt);
+    }
+}
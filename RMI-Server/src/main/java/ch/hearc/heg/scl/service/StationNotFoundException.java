@@ -0,0 +1,15 @@
+package ch.hearc.heg.scl.service;
+
+import java.io.IOException;
+
+/**
+ * Levée lorsque l'API météo ne connaît aucune station pour les coordonnées demandées (HTTP 404).
+ * Ce n'est pas une défaillance de l'API : elle a répondu normalement.
+ * Propre au serveur : ne jamais la transmettre au client comme cause d'une RemoteException.
+ */
+public class StationNotFoundException extends IOException {
+
+    public StationNotFoundException(String message) {
+        super(message);
+    }
+}
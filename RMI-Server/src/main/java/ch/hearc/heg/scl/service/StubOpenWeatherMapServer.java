@@ -0,0 +1,138 @@
+package ch.hearc.heg.scl.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bouchon HTTP local imitant l'API "current weather" d'OpenWeatherMap.
+ * Sert aux tests de charge : aucun quota, aucune latence réseau externe.
+ *
+ * Les coordonnées sont arrondies au dixième de degré pour produire un ID de station
+ * stable (même zone = même station). Les valeurs météo sont aléatoires.
+ *
+ * Utilisation : java ch.hearc.heg.scl.service.StubOpenWeatherMapServer [port] [latence ms]
+ * puis api.url=http://localhost:8089/data/2.5/weather dans database.properties.
+ */
+public class StubOpenWeatherMapServer {
+
+    private static final int DEFAULT_PORT = 8089;
+    private static final String PATH = "/data/2.5/weather";
+
+    private final HttpServer server;
+    private final long latencyMillis;
+
+    /**
+     * @param port Port d'écoute HTTP
+     * @param latencyMillis Latence simulée par requête (0 = aucune)
+     */
+    public StubOpenWeatherMapServer(int port, long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext(PATH, this::handle);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<String, String> params = parseQuery(exchange.getRequestURI());
+            double lat;
+            double lon;
+            try {
+                lat = Double.parseDouble(params.get("lat"));
+                lon = Double.parseDouble(params.get("lon"));
+            } catch (NullPointerException | NumberFormatException e) {
+                send(exchange, 400, "{\"cod\":\"400\",\"message\":\"wrong latitude\"}");
+                return;
+            }
+
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            send(exchange, 200, buildResponse(lat, lon));
+        }
+    }
+
+    /**
+     * Construit une réponse JSON au format OpenWeatherMap.
+     */
+    private String buildResponse(double lat, double lon) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latTenth = Math.round(lat * 10);
+        long lonTenth = Math.round(lon * 10);
+        long id = 1_000_000L + (latTenth + 900) * 3601 + (lonTenth + 1800);
+
+        double temp = 5 + random.nextDouble() * 20;
+        return String.format(Locale.ROOT,
+                "{\"coord\":{\"lon\":%.1f,\"lat\":%.1f}," +
+                "\"weather\":[{\"id\":800,\"main\":\"Clear\",\"description\":\"ciel dégagé\",\"icon\":\"01d\"}]," +
+                "\"main\":{\"temp\":%.2f,\"feels_like\":%.2f,\"humidity\":%d,\"pressure\":%d}," +
+                "\"wind\":{\"speed\":%.2f}," +
+                "\"sys\":{\"country\":\"CH\"}," +
+                "\"id\":%d,\"name\":\"Stub %.1f/%.1f\",\"cod\":200}",
+                lonTenth / 10.0, latTenth / 10.0,
+                temp, temp - random.nextDouble() * 3,
+                40 + random.nextInt(50), 1000 + random.nextInt(30),
+                random.nextDouble() * 15,
+                id, latTenth / 10.0, lonTenth / 10.0);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Point d'entrée du bouchon.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+        StubOpenWeatherMapServer stub = new StubOpenWeatherMapServer(port, latency);
+        stub.start();
+        System.out.println("Bouchon OpenWeatherMap démarré : http://localhost:" + port + PATH
+                + " (latence simulée : " + latency + " ms)");
+    }
+}
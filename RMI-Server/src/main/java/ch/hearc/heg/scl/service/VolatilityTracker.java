@@ -0,0 +1,167 @@
+package ch.hearc.heg.scl.service;
+
+import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.model.WeatherStation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mesure la variabilité de la météo de chaque station pour adapter sa fréquence de rafraîchissement.
+ *
+ * À chaque nouvelle mesure, l'écart avec la précédente est converti en « variations significatives
+ * par heure » : le plus grand de |Δtempérature| / 0,5 °C, |Δpression| / 1 hPa et |Δvent| / 1 m/s,
+ * divisé par le temps écoulé. Ce taux est lissé par une moyenne mobile exponentielle (poids 0,3
+ * pour la dernière mesure) : l'état d'une station tient en quelques champs, sans historique.
+ *
+ * L'intervalle de rafraîchissement d'une station est le temps attendu pour une variation
+ * significative (1 / taux), borné par [minInterval, maxInterval]. Une station sans estimation
+ * (moins de deux mesures depuis le démarrage) reçoit maxInterval, pour ne pas épuiser le quota
+ * de l'API sur des stations jamais consultées.
+ */
+public class VolatilityTracker {
+
+    private static final double TEMPERATURE_STEP = 0.5;  // °C
+    private static final double PRESSURE_STEP = 1.0;     // hPa
+    private static final double WIND_STEP = 1.0;         // m/s
+    private static final double SMOOTHING = 0.3;
+    private static final double MIN_ELAPSED_HOURS = 1.0 / 60;  // Deux mesures à moins d'une minute d'écart
+
+    /**
+     * État d'une station : dernière mesure et taux lissé.
+     */
+    private static final class StationState {
+        LocalDateTime lastTimestamp;
+        double lastTemperature;
+        double lastPressure;
+        double lastWindSpeed;
+        double rate;       // Variations significatives par heure (lissé)
+        int samples = 0;   // Nombre d'écarts mesurés
+    }
+
+    private final Map<Integer, StationState> states = new ConcurrentHashMap<>();
+    private final Duration minInterval;
+    private final Duration maxInterval;
+
+    /**
+     * @param minInterval Intervalle des stations les plus variables
+     * @param maxInterval Intervalle des stations stables ou sans estimation
+     */
+    public VolatilityTracker(Duration minInterval, Duration maxInterval) {
+        if (minInterval.isNegative() || minInterval.isZero() || maxInterval.compareTo(minInterval) < 0) {
+            throw new IllegalArgumentException("Intervalles de rafraîchissement invalides : "
+                    + minInterval + " - " + maxInterval);
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * Prend en compte une nouvelle mesure. Une mesure antérieure à la dernière connue est ignorée.
+     */
+    public void record(int stationId, WeatherData weatherData) {
+        if (weatherData.getTimestamp() == null) {
+            return;
+        }
+        StationState state = states.computeIfAbsent(stationId, id -> new StationState());
+        synchronized (state) {
+            if (state.lastTimestamp != null) {
+                if (weatherData.getTimestamp().isBefore(state.lastTimestamp)) {
+                    return;
+                }
+                double hours = Math.max(MIN_ELAPSED_HOURS,
+                        Duration.between(state.lastTimestamp, weatherData.getTimestamp()).toMillis() / 3_600_000.0);
+                double change = Math.max(Math.abs(weatherData.getTemperature() - state.lastTemperature) / TEMPERATURE_STEP,
+                        Math.max(Math.abs(weatherData.getPressure() - state.lastPressure) / PRESSURE_STEP,
+                                Math.abs(weatherData.getWindSpeed() - state.lastWindSpeed) / WIND_STEP));
+                double rate = change / hours;
+                state.rate = state.samples == 0 ? rate : SMOOTHING * rate + (1 - SMOOTHING) * state.rate;
+                state.samples++;
+            }
+            state.lastTimestamp = weatherData.getTimestamp();
+            state.lastTemperature = weatherData.getTemperature();
+            state.lastPressure = weatherData.getPressure();
+            state.lastWindSpeed = weatherData.getWindSpeed();
+        }
+    }
+
+    /**
+     * @return L'intervalle de rafraîchissement de la station
+     */
+    public Duration intervalFor(int stationId) {
+        StationState state = states.get(stationId);
+        if (state == null) {
+            return maxInterval;
+        }
+        double rate;
+        synchronized (state) {
+            if (state.samples == 0) {
+                return maxInterval;
+            }
+            rate = state.rate;
+        }
+        if (rate <= 0) {
+            return maxInterval;
+        }
+        long millis = (long) (3_600_000 / rate);
+        return Duration.ofMillis(Math.min(maxInterval.toMillis(), Math.max(minInterval.toMillis(), millis)));
+    }
+
+    /**
+     * Sélectionne les stations à rafraîchir : celles dont la dernière mesure (à défaut, la date
+     * de mise à jour de la station) date d'au moins leur intervalle, les plus en retard d'abord.
+     *
+     * @param stations Stations candidates
+     * @param now Date de référence
+     * @param limit Nombre maximal de stations retenues
+     * @return Les stations à rafraîchir
+     */
+    public List<WeatherStation> dueStations(List<WeatherStation> stations, LocalDateTime now, int limit) {
+        record Due(WeatherStation station, LocalDateTime dueAt) {
+        }
+
+        List<Due> due = new ArrayList<>();
+        for (WeatherStation station : stations) {
+            LocalDateTime last = lastReading(station.getId());
+            if (last == null) {
+                last = station.getLastUpdated();
+            }
+            LocalDateTime dueAt = last != null ? last.plus(intervalFor(station.getId())) : LocalDateTime.MIN;
+            if (!dueAt.isAfter(now)) {
+                due.add(new Due(station, dueAt));
+            }
+        }
+        due.sort(Comparator.comparing(Due::dueAt));
+        return due.stream().limit(limit).map(Due::station).toList();
+    }
+
+    /**
+     * @return Le nombre de stations disposant d'une estimation
+     */
+    public int trackedCount() {
+        int count = 0;
+        for (StationState state : states.values()) {
+            synchronized (state) {
+                if (state.samples > 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private LocalDateTime lastReading(int stationId) {
+        StationState state = states.get(stationId);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.lastTimestamp;
+        }
+    }
+}
@@ -2,33 +2,105 @@ package ch.hearc.heg.scl.service;
 
 import ch.hearc.heg.scl.model.WeatherData;
 import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.monitoring.ApiCallEvent;
 import com.google.gson.Gson;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
 
 /**
  * Client pour interroger l'API OpenWeatherMap.
  * Utilise HttpClient (Java 11+) pour faire des appels HTTP.
+ *
+ * Trois modes de fonctionnement :
+ * - LIVE : appel réel de l'API ;
+ * - RECORD : appel réel, et chaque réponse brute est archivée sur disque avec sa clé de requête ;
+ * - REPLAY : aucune requête réseau, les réponses sont servies depuis l'archive
+ *   (latence simulée optionnelle). Permet des exécutions reproductibles et hors ligne.
  */
-public class WeatherApiClient {
+public class WeatherApiClient implements Closeable {
+
+    /**
+     * Mode de fonctionnement du client.
+     */
+    public enum Mode {
+        LIVE, RECORD, REPLAY
+    }
 
     private static final String API_BASE_URL = "https://api.openweathermap.org/data/2.5/weather";
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
     private final String apiKey;
+    private final String baseUrl;
     private final HttpClient httpClient;
     private final Gson gson;
+    private final Duration timeout;
+
+    private final Mode mode;
+    private final ResponseRecorder recorder;   // Mode RECORD uniquement
+    private final ResponseArchive archive;     // Mode REPLAY uniquement
+    private final long replayLatencyMillis;
 
     /**
      * Constructeur avec clé API.
      * @param apiKey Clé API OpenWeatherMap
      */
     public WeatherApiClient(String apiKey) {
+        this(apiKey, API_BASE_URL);
+    }
+
+    /**
+     * Constructeur avec clé API et URL de base (ex: bouchon local pour les tests).
+     * @param apiKey Clé API OpenWeatherMap
+     * @param baseUrl URL du service "current weather"
+     */
+    public WeatherApiClient(String apiKey, String baseUrl) {
         this.apiKey = apiKey;
-        this.httpClient = HttpClient.newHttpClient();
+        this.baseUrl = baseUrl;
+        this.timeout = DEFAULT_TIMEOUT;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
         this.gson = new Gson();
+        this.mode = Mode.LIVE;
+        this.recorder = null;
+        this.archive = null;
+        this.replayLatencyMillis = 0;
+    }
+
+    /**
+     * Constructeur avec mode d'enregistrement ou de rejeu.
+     *
+     * @param apiKey Clé API OpenWeatherMap
+     * @param baseUrl URL du service "current weather"
+     * @param mode Mode de fonctionnement
+     * @param archivePath Fichier d'archive (ignoré en mode LIVE)
+     * @param replayLatencyMillis Latence simulée par réponse en mode REPLAY (0 = aucune)
+     * @param timeout Délai maximal de connexion et de réponse de l'API
+     * @throws IOException Si l'archive ne peut pas être ouverte
+     */
+    public WeatherApiClient(String apiKey, String baseUrl, Mode mode, Path archivePath,
+                            long replayLatencyMillis, Duration timeout) throws IOException {
+        this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.gson = new Gson();
+        this.mode = mode;
+        this.recorder = mode == Mode.RECORD ? new ResponseRecorder(archivePath) : null;
+        this.archive = mode == Mode.REPLAY ? new ResponseArchive(archivePath) : null;
+        this.replayLatencyMillis = replayLatencyMillis;
+    }
+
+    /**
+     * @return Le mode de fonctionnement du client
+     */
+    public Mode getMode() {
+        return mode;
     }
 
     /**
@@ -37,7 +109,8 @@ public class WeatherApiClient {
      * @param latitude Latitude
      * @param longitude Longitude
      * @return Un objet WeatherStation avec les données météo actuelles
-     * @throws IOException Si l'appel HTTP échoue
+     * @throws StationNotFoundException Si aucune station n'existe pour ces coordonnées
+     * @throws IOException Si l'appel HTTP échoue ou dépasse le délai maximal
      * @throws IllegalArgumentException Si les coordonnées sont invalides
      */
     public WeatherStation getWeatherByCoordinates(double latitude, double longitude) throws IOException {
@@ -49,13 +122,56 @@ public class WeatherApiClient {
             throw new IllegalArgumentException("Longitude doit être entre -180 et 180");
         }
 
-        // Construction de l'URL avec paramètres
-        String url = String.format("%s?lat=%.6f&lon=%.6f&appid=%s&units=metric&lang=fr",
-                API_BASE_URL, latitude, longitude, apiKey);
+        // Clé de la requête (sans la clé API), partagée par l'archive et l'URL
+        // Locale.ROOT : point décimal quelle que soit la langue du système
+        String key = String.format(Locale.ROOT, "lat=%.6f&lon=%.6f", latitude, longitude);
+
+        ResponseArchive.ArchivedResponse response = fetch(key);
+
+        // Vérification du code de statut HTTP
+        if (response.status() != 200) {
+            // Gérer les cas d'erreur courants
+            if (response.status() == 401) {
+                throw new IOException("Clé API invalide. Vérifiez votre fichier database.properties");
+            } else if (response.status() == 404) {
+                throw new StationNotFoundException("Aucune station météo trouvée pour ces coordonnées");
+            } else if (response.status() == 429) {
+                throw new IOException("Limite de requêtes API atteinte. Veuillez réessayer plus tard");
+            } else {
+                throw new IOException("Erreur API (code " + response.status() + ")");
+            }
+        }
+
+        // Désérialisation JSON vers objet Java
+        OpenWeatherMapResponse apiResponse = gson.fromJson(response.body(), OpenWeatherMapResponse.class);
+
+        // Conversion en objets du modèle
+        return convertToWeatherStation(apiResponse);
+    }
+
+    /**
+     * Obtient la réponse brute pour une requête, selon le mode (mesurée par un événement JFR ApiCall).
+     */
+    private ResponseArchive.ArchivedResponse fetch(String key) throws IOException {
+        ApiCallEvent event = ApiCallEvent.start(key, mode.name());
+        ResponseArchive.ArchivedResponse response = null;
+        try {
+            response = mode == Mode.REPLAY ? replay(key) : send(key);
+            return response;
+        } finally {
+            event.finish(response != null ? response.status() : 0, response != null ? response.body() : null);
+        }
+    }
+
+    /**
+     * Interroge l'API en direct (modes LIVE et RECORD).
+     */
+    private ResponseArchive.ArchivedResponse send(String key) throws IOException {
 
         // Création de la requête HTTP
         HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+                .uri(URI.create(baseUrl + "?" + key + "&appid=" + apiKey + "&units=metric&lang=fr"))
+                .timeout(timeout)
                 .GET()
                 .build();
 
@@ -63,25 +179,10 @@ public class WeatherApiClient {
             // Envoi de la requête et récupération de la réponse
             HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
 
-            // Vérification du code de statut HTTP
-            if (response.statusCode() != 200) {
-                // Gérer les cas d'erreur courants
-                if (response.statusCode() == 401) {
-                    throw new IOException("Clé API invalide. Vérifiez votre fichier database.properties");
-                } else if (response.statusCode() == 404) {
-                    throw new IOException("Aucune station météo trouvée pour ces coordonnées");
-                } else if (response.statusCode() == 429) {
-                    throw new IOException("Limite de requêtes API atteinte. Veuillez réessayer plus tard");
-                } else {
-                    throw new IOException("Erreur API (code " + response.statusCode() + ")");
-                }
+            if (recorder != null) {
+                recorder.record(key, response.statusCode(), response.body());
             }
-
-            // Désérialisation JSON vers objet Java
-            OpenWeatherMapResponse apiResponse = gson.fromJson(response.body(), OpenWeatherMapResponse.class);
-
-            // Conversion en objets du modèle
-            return convertToWeatherStation(apiResponse);
+            return new ResponseArchive.ArchivedResponse(response.statusCode(), response.body());
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -89,6 +190,36 @@ public class WeatherApiClient {
         }
     }
 
+    /**
+     * Sert une réponse depuis l'archive, avec la latence simulée configurée.
+     */
+    private ResponseArchive.ArchivedResponse replay(String key) throws IOException {
+        if (replayLatencyMillis > 0) {
+            try {
+                Thread.sleep(replayLatencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Requête interrompue", e);
+            }
+        }
+
+        ResponseArchive.ArchivedResponse response = archive.lookup(key);
+        if (response == null) {
+            throw new IOException("Aucune réponse enregistrée dans l'archive pour " + key);
+        }
+        return response;
+    }
+
+    /**
+     * Ferme l'archive en cours d'enregistrement.
+     */
+    @Override
+    public void close() throws IOException {
+        if (recorder != null) {
+            recorder.close();
+        }
+    }
+
     /**
      * Convertit la réponse de l'API en objets du modèle métier.
      */
@@ -0,0 +1,65 @@
+package ch.hearc.heg.scl.shard;
+
+import ch.hearc.heg.scl.database.DatabaseConfig;
+import ch.hearc.heg.scl.service.CoordinateKey;
+
+/**
+ * Part des stations attribuée à un processus serveur en mode réparti.
+ *
+ * Une station appartient au shard index = ID en base modulo count ; une recherche par coordonnées
+ * est confiée au shard désigné par ses coordonnées arrondies, pour que les mêmes coordonnées
+ * profitent toujours du même cache.
+ *
+ * @param count Nombre de shards
+ * @param index Index de ce shard (0 à count - 1)
+ */
+public record ShardAssignment(int count, int index) {
+
+    /**
+     * Serveur unique : possède toutes les stations.
+     */
+    public static final ShardAssignment SINGLE = new ShardAssignment(1, 0);
+
+    public ShardAssignment {
+        if (count <= 0 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard invalide : " + index + "/" + count);
+        }
+    }
+
+    /**
+     * Lit shard.count et shard.index dans la configuration (serveur unique par défaut).
+     */
+    public static ShardAssignment fromConfig() {
+        return new ShardAssignment(DatabaseConfig.getIntProperty("shard.count", 1),
+                DatabaseConfig.getIntProperty("shard.index", 0));
+    }
+
+    /**
+     * @return Vrai s'il y a plusieurs shards
+     */
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    /**
+     * @return L'index du shard propriétaire d'une station
+     */
+    public int shardOf(int stationId) {
+        return Math.floorMod(stationId, count);
+    }
+
+    /**
+     * @return L'index du shard chargé des recherches pour ces coordonnées
+     */
+    public int shardOf(CoordinateKey key) {
+        // Calcul explicite : le hashCode d'un record n'est pas garanti identique d'une JVM à l'autre
+        return Math.floorMod(31 * key.latitudeE2() + key.longitudeE2(), count);
+    }
+
+    /**
+     * @return Vrai si ce shard possède la station
+     */
+    public boolean owns(int stationId) {
+        return shardOf(stationId) == index;
+    }
+}
@@ -0,0 +1,34 @@
+package ch.hearc.heg.scl.shard;
+
+import ch.hearc.heg.scl.model.WeatherStation;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Appels entre shards, absents de l'interface des clients : une recherche par coordonnées est
+ * traitée par le shard désigné par les coordonnées, mais la mesure obtenue est enregistrée par
+ * le shard propriétaire de la station, seul à tenir son état en mémoire (dernière mesure,
+ * variabilité, résumés de distribution).
+ */
+public interface ShardPeer extends Remote {
+
+    /**
+     * Enregistre la mesure retournée par l'API pour une station de ce shard déjà en base.
+     *
+     * @param observed Station retournée par l'API (ID en base renseigné) avec sa mesure
+     * @return La station enregistrée avec sa mesure actuelle
+     * @throws RemoteException En cas d'erreur réseau RMI ou de base de données
+     */
+    WeatherStation persistObservation(WeatherStation observed)
+            throws RemoteException;
+
+    /**
+     * Signale une station de ce shard créée par un autre shard, avec sa première mesure déjà en base.
+     *
+     * @param created Station créée, avec sa mesure
+     * @throws RemoteException En cas d'erreur réseau RMI
+     */
+    void adoptStation(WeatherStation created)
+            throws RemoteException;
+}
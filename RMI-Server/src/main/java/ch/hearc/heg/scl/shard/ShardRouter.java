@@ -0,0 +1,393 @@
+package ch.hearc.heg.scl.shard;
+
+import ch.hearc.heg.scl.model.AlertRule;
+import ch.hearc.heg.scl.model.ChangeSet;
+import ch.hearc.heg.scl.model.ImportReport;
+import ch.hearc.heg.scl.model.QuantileEstimate;
+import ch.hearc.heg.scl.model.StationList;
+import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.model.WeatherStation;
+import ch.hearc.heg.scl.model.WeatherSummary;
+import ch.hearc.heg.scl.rmi.AlertListener;
+import ch.hearc.heg.scl.rmi.ExportCursor;
+import ch.hearc.heg.scl.rmi.WeatherListener;
+import ch.hearc.heg.scl.rmi.WeatherService;
+import ch.hearc.heg.scl.service.CoordinateKey;
+
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.rmi.server.UnicastRemoteObject;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Point d'entrée du service en mode réparti : aiguille chaque appel vers le shard concerné.
+ *
+ * - Recherche par coordonnées : shard désigné par les coordonnées arrondies (cache commun) ; la
+ *   mesure obtenue est enregistrée par le shard propriétaire de la station (ShardPeer).
+ * - Détail d'une station : shard propriétaire de la station.
+ * - Liste, rafraîchissement, abonnements, règles et écouteurs d'alertes, statistiques : envoyés à
+ *   tous les shards en parallèle, résultats fusionnés.
+ * - Import de stations, export de l'historique : shard local (base commune).
+ * - Synchronisation : les modifications de tous les shards sont fusionnées ; la version retournée
+ *   est la plus petite des versions des shards. Au prochain appel, un shard en avance renvoie
+ *   quelques modifications déjà transmises (sans effet sur un miroir), mais aucune n'est perdue.
+ *
+ * Le shard local est appelé directement ; les autres sont recherchés dans leur registre
+ * (shard.peers) à la première utilisation, puis à nouveau après une erreur.
+ */
+public class ShardRouter extends UnicastRemoteObject implements WeatherService {
+
+    /**
+     * Nom sous lequel chaque processus enregistre son propre shard.
+     */
+    public static final String SHARD_SERVICE_NAME = "WeatherService-shard";
+
+    private final ShardAssignment assignment;
+    private final List<String> peers;              // host:port du registre de chaque shard
+    private final AtomicReferenceArray<WeatherService> shards;  // Souches en cache (null = à rechercher)
+    private final ExecutorService fanOutExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Catalogue fusionné : version de chaque shard, leurs listes et la liste fusionnée.
+     */
+    private record MergedCatalog(long version, long[] shardVersions, List<List<WeatherStation>> parts,
+                                 List<WeatherStation> stations) {
+    }
+
+    private MergedCatalog mergedCatalog;  // Protégé par synchronized (refreshCatalog)
+
+    /**
+     * @param assignment Shard de ce processus
+     * @param localShard Service local (shard assignment.index())
+     * @param peers Adresse host:port du registre de chaque shard, dans l'ordre des index
+     */
+    public ShardRouter(ShardAssignment assignment, WeatherService localShard, List<String> peers,
+                       int exportPort, RMIClientSocketFactory clientSocketFactory,
+                       RMIServerSocketFactory serverSocketFactory) throws RemoteException {
+        super(exportPort, clientSocketFactory, serverSocketFactory);
+        if (peers.size() != assignment.count()) {
+            throw new IllegalArgumentException("shard.peers doit contenir " + assignment.count()
+                    + " adresse(s), trouvé : " + peers.size());
+        }
+        this.assignment = assignment;
+        this.peers = List.copyOf(peers);
+        this.shards = new AtomicReferenceArray<>(assignment.count());
+        this.shards.set(assignment.index(), localShard);
+    }
+
+    @Override
+    public WeatherStation getStationByCoordinates(double latitude, double longitude) throws RemoteException {
+        int index = assignment.shardOf(CoordinateKey.of(latitude, longitude));
+        return onShard(index, shard -> shard.getStationByCoordinates(latitude, longitude));
+    }
+
+    @Override
+    public List<WeatherStation> getAllStations() throws RemoteException {
+        return refreshCatalog().stations();
+    }
+
+    @Override
+    public StationList getAllStations(long knownVersion) throws RemoteException {
+        MergedCatalog catalog = refreshCatalog();
+        if (catalog.version() == knownVersion) {
+            return StationList.notModified(knownVersion);
+        }
+        return StationList.of(catalog.version(), catalog.stations());
+    }
+
+    @Override
+    public WeatherStation getStationWithWeatherData(int stationId) throws RemoteException {
+        return onShard(assignment.shardOf(stationId), shard -> shard.getStationWithWeatherData(stationId));
+    }
+
+    @Override
+    public int refreshAllStations() throws RemoteException {
+        int total = 0;
+        for (int count : onAllShards(WeatherService::refreshAllStations)) {
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public void subscribe(WeatherListener listener, Set<Integer> stationIds) throws RemoteException {
+        // Une mesure est publiée par le shard qui l'a enregistrée : s'abonner partout
+        onAllShards(shard -> {
+            shard.subscribe(listener, stationIds);
+            return null;
+        });
+    }
+
+    @Override
+    public void unsubscribe(WeatherListener listener) throws RemoteException {
+        onAllShards(shard -> {
+            shard.unsubscribe(listener);
+            return null;
+        });
+    }
+
+    @Override
+    public ChangeSet getChangesSince(long version) throws RemoteException {
+        List<ChangeSet> parts = onAllShards(shard -> shard.getChangesSince(version));
+
+        long minVersion = Long.MAX_VALUE;
+        for (ChangeSet part : parts) {
+            minVersion = Math.min(minVersion, part.getVersion());
+        }
+
+        // La base est commune : une resynchronisation complète d'un shard contient tout
+        for (ChangeSet part : parts) {
+            if (part.isFullResync()) {
+                return new ChangeSet(minVersion, true, part.getStations(), part.getReadings());
+            }
+        }
+
+        Map<Integer, WeatherStation> stations = new LinkedHashMap<>();
+        List<WeatherData> readings = new ArrayList<>();
+        for (ChangeSet part : parts) {
+            for (WeatherStation station : part.getStations()) {
+                stations.put(station.getId(), station);
+            }
+            readings.addAll(part.getReadings());
+        }
+        return new ChangeSet(minVersion, false, new ArrayList<>(stations.values()), readings);
+    }
+
+    @Override
+    public ImportReport importStations(String fileName, byte[] content) throws RemoteException {
+        // La base est commune : le shard local importe tout, les autres voient les nouvelles
+        // stations au prochain rechargement de leur catalogue
+        return onShard(assignment.index(), shard -> shard.importStations(fileName, content));
+    }
+
+    @Override
+    public ExportCursor openExport(Integer stationId, LocalDateTime from, LocalDateTime to) throws RemoteException {
+        // Les mesures sont dans la base commune : le curseur du shard local couvre toutes les stations
+        return onShard(assignment.index(), shard -> shard.openExport(stationId, from, to));
+    }
+
+    @Override
+    public List<WeatherSummary> getSummaries(int stationId, WeatherSummary.Period period,
+                                             LocalDateTime from, LocalDateTime to) throws RemoteException {
+        // Les agrégats sont dans la base commune : le shard local répond pour toutes les stations
+        return onShard(assignment.index(), shard -> shard.getSummaries(stationId, period, from, to));
+    }
+
+    @Override
+    public QuantileEstimate getQuantiles(Set<Integer> stationIds, AlertRule.Metric metric,
+                                         LocalDate from, LocalDate to, double[] quantiles) throws RemoteException {
+        // Les résumés sont dans la base commune : le shard local répond pour toutes les stations,
+        // celles des autres shards sans leurs mesures pas encore écrites (sketch.flush.seconds au plus)
+        return onShard(assignment.index(), shard -> shard.getQuantiles(stationIds, metric, from, to, quantiles));
+    }
+
+    @Override
+    public AlertRule addAlertRule(AlertRule rule) throws RemoteException {
+        // Chaque shard évalue les mesures de ses stations : la règle est enregistrée partout,
+        // avec l'ID attribué par le shard local (propre à ce shard, voir AlertEngine)
+        AlertRule registered = onShard(assignment.index(), shard -> shard.addAlertRule(rule));
+        fanOut(index -> index == assignment.index() ? registered
+                : onShard(index, shard -> shard.addAlertRule(registered)));
+        return registered;
+    }
+
+    @Override
+    public boolean removeAlertRule(int ruleId) throws RemoteException {
+        boolean removed = false;
+        for (boolean shardRemoved : onAllShards(shard -> shard.removeAlertRule(ruleId))) {
+            removed |= shardRemoved;
+        }
+        return removed;
+    }
+
+    @Override
+    public List<AlertRule> getAlertRules() throws RemoteException {
+        return onShard(assignment.index(), WeatherService::getAlertRules);
+    }
+
+    @Override
+    public void subscribeAlerts(AlertListener listener) throws RemoteException {
+        onAllShards(shard -> {
+            shard.subscribeAlerts(listener);
+            return null;
+        });
+    }
+
+    @Override
+    public void unsubscribeAlerts(AlertListener listener) throws RemoteException {
+        onAllShards(shard -> {
+            shard.unsubscribeAlerts(listener);
+            return null;
+        });
+    }
+
+    @Override
+    public Map<String, Long> getServerStats() throws RemoteException {
+        List<Map<String, Long>> parts = onAllShards(WeatherService::getServerStats);
+        Map<String, Long> stats = new LinkedHashMap<>();
+        for (int i = 0; i < parts.size(); i++) {
+            for (Map.Entry<String, Long> entry : parts.get(i).entrySet()) {
+                stats.put("shard" + i + "." + entry.getKey(), entry.getValue());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Demande à chaque shard sa liste s'il en a changé (chaque shard ne liste que ses propres
+     * stations) et refait la fusion seulement si l'une d'elles a changé. La version fusionnée
+     * suit l'horloge, comme celle des catalogues des shards.
+     */
+    private synchronized MergedCatalog refreshCatalog() throws RemoteException {
+        MergedCatalog previous = mergedCatalog;
+        List<StationList> responses = fanOut(index -> onShard(index,
+                shard -> shard.getAllStations(previous != null ? previous.shardVersions()[index] : 0)));
+
+        boolean changed = previous == null;
+        long[] versions = new long[responses.size()];
+        List<List<WeatherStation>> parts = new ArrayList<>(responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            StationList response = responses.get(i);
+            versions[i] = response.getVersion();
+            if (response.isNotModified() && previous != null) {
+                parts.add(previous.parts().get(i));
+            } else {
+                parts.add(response.getStations());
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return previous;
+        }
+
+        List<WeatherStation> stations = new ArrayList<>();
+        parts.forEach(stations::addAll);
+        stations.sort(Comparator.comparing(WeatherStation::getName));
+        long now = System.currentTimeMillis() * 1000;
+        long version = previous == null ? now : Math.max(previous.version() + 1, now);
+        mergedCatalog = new MergedCatalog(version, versions, parts, List.copyOf(stations));
+        return mergedCatalog;
+    }
+
+    /**
+     * Fait enregistrer une mesure par le shard propriétaire de sa station.
+     *
+     * @param observed Station retournée par l'API, avec son ID en base et sa mesure
+     * @return La station enregistrée avec sa mesure actuelle
+     */
+    public WeatherStation persistOnOwner(WeatherStation observed) throws RemoteException {
+        return onShard(assignment.shardOf(observed.getId()), shard -> ((ShardPeer) shard).persistObservation(observed));
+    }
+
+    /**
+     * Signale au shard propriétaire une station créée par ce shard, avec sa première mesure.
+     */
+    public void adoptOnOwner(WeatherStation created) throws RemoteException {
+        onShard(assignment.shardOf(created.getId()), shard -> {
+            ((ShardPeer) shard).adoptStation(created);
+            return null;
+        });
+    }
+
+    /**
+     * Arrête les envois parallèles vers les shards.
+     */
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    // Aiguillage
+
+    /**
+     * Appel distant vers un shard.
+     */
+    @FunctionalInterface
+    private interface ShardCall<T> {
+        T call(WeatherService shard) throws RemoteException;
+    }
+
+    private <T> T onShard(int index, ShardCall<T> call) throws RemoteException {
+        WeatherService shard = shard(index);
+        try {
+            return call.call(shard);
+        } catch (RemoteException e) {
+            if (index != assignment.index()) {
+                shards.set(index, null);  // Le shard a peut-être redémarré : rechercher à nouveau
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Appel d'un shard désigné par son index.
+     */
+    @FunctionalInterface
+    private interface IndexedCall<T> {
+        T call(int index) throws RemoteException;
+    }
+
+    /**
+     * Appelle tous les shards en parallèle et renvoie leurs résultats dans l'ordre des index.
+     */
+    private <T> List<T> onAllShards(ShardCall<T> call) throws RemoteException {
+        return fanOut(index -> onShard(index, call));
+    }
+
+    private <T> List<T> fanOut(IndexedCall<T> call) throws RemoteException {
+        List<Future<T>> futures = new ArrayList<>(shards.length());
+        for (int i = 0; i < shards.length(); i++) {
+            int index = i;
+            futures.add(fanOutExecutor.submit(() -> call.call(index)));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RemoteException remoteException) {
+                    throw remoteException;
+                }
+                throw new RemoteException("Erreur sur le shard " + i, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Appel des shards interrompu", e);
+            }
+        }
+        return results;
+    }
+
+    private WeatherService shard(int index) throws RemoteException {
+        WeatherService shard = shards.get(index);
+        if (shard != null) {
+            return shard;
+        }
+
+        String peer = peers.get(index);
+        int separator = peer.lastIndexOf(':');
+        String host = separator > 0 ? peer.substring(0, separator) : peer;
+        int port = separator > 0 ? Integer.parseInt(peer.substring(separator + 1)) : 1099;
+        try {
+            shard = (WeatherService) LocateRegistry.getRegistry(host, port).lookup(SHARD_SERVICE_NAME);
+        } catch (NotBoundException e) {
+            throw new RemoteException("Shard " + index + " non enregistré sur " + peer, e);
+        }
+        shards.set(index, shard);
+        return shard;
+    }
+}
@@ -0,0 +1,370 @@
+package ch.hearc.heg.scl.sketch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Résumé compact d'une distribution de valeurs, pour estimer ses quantiles (t-digest).
+ *
+ * Les valeurs sont regroupées en centroïdes (moyenne, poids) triés par moyenne. Un centroïde peut
+ * regrouper beaucoup de valeurs au milieu de la distribution, mais très peu près des extrémités :
+ * la limite suit la fonction d'échelle k(q) = compression / 2π · asin(2q − 1), ce qui garde les
+ * quantiles extrêmes (p95, p99) précis. Le nombre de centroïdes reste de l'ordre de compression,
+ * quel que soit le nombre de valeurs.
+ *
+ * Les valeurs ajoutées sont d'abord rangées dans un tampon, fusionné avec les centroïdes quand il
+ * est plein ou avant une lecture. Deux résumés se combinent avec merge() : le résumé d'un mois
+ * pour plusieurs stations est la fusion de leurs résumés journaliers. Le minimum et le maximum
+ * sont exacts.
+ *
+ * Non synchronisé : l'appelant protège un résumé partagé.
+ */
+public final class QuantileSketch {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final double compression;
+    private final int bufferLimit;
+
+    private double[] means = new double[0];   // Centroïdes, triés par moyenne
+    private long[] weights = new long[0];
+    private int centroidCount = 0;
+
+    private double[] bufferValues;  // Valeurs (ou centroïdes d'un autre résumé) pas encore fusionnées
+    private long[] bufferWeights;
+    private int bufferCount = 0;
+    private double[] sortValues;    // Espace de travail du tri, de la taille du tampon
+    private long[] sortWeights;
+
+    private long totalWeight = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param compression Précision (100 : ~1 % d'erreur sur le rang au milieu, bien moins aux extrémités)
+     */
+    public QuantileSketch(double compression) {
+        if (!(compression >= 10)) {
+            throw new IllegalArgumentException("Compression invalide : " + compression);
+        }
+        this.compression = compression;
+        this.bufferLimit = (int) (4 * compression);
+    }
+
+    public double getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return Le nombre de valeurs résumées
+     */
+    public long count() {
+        return totalWeight;
+    }
+
+    /**
+     * @return La plus petite valeur (NaN si vide)
+     */
+    public double min() {
+        return totalWeight == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * @return La plus grande valeur (NaN si vide)
+     */
+    public double max() {
+        return totalWeight == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Ajoute une valeur. Une valeur NaN est ignorée.
+     */
+    public void add(double value) {
+        if (!Double.isNaN(value)) {
+            add(value, 1);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+    }
+
+    /**
+     * Ajoute toutes les valeurs d'un autre résumé (inchangé).
+     */
+    public void merge(QuantileSketch other) {
+        if (other.totalWeight == 0) {
+            return;
+        }
+        for (int i = 0; i < other.centroidCount; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        for (int i = 0; i < other.bufferCount; i++) {
+            add(other.bufferValues[i], other.bufferWeights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Estime un quantile par interpolation linéaire entre les centres des centroïdes voisins
+     * (entre le minimum, ou le maximum, et le premier ou le dernier centroïde aux bords).
+     *
+     * @param q Rang entre 0 et 1 (0,95 pour le 95e centile)
+     * @return La valeur estimée, NaN si le résumé est vide
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile hors de [0, 1] : " + q);
+        }
+        compress();
+        if (totalWeight == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+
+        double index = q * totalWeight;
+        double firstHalf = weights[0] / 2.0;
+        if (index < firstHalf) {
+            return min + (means[0] - min) * (index / firstHalf);
+        }
+        double center = firstHalf;  // Rang du centre du centroïde i
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2.0;
+            if (index < center + gap) {
+                return means[i] + (means[i + 1] - means[i]) * ((index - center) / gap);
+            }
+            center += gap;
+        }
+        int last = centroidCount - 1;
+        double lastHalf = weights[last] / 2.0;
+        return means[last] + (max - means[last]) * Math.min(1, (index - center) / lastHalf);
+    }
+
+    /**
+     * Fusionne le tampon et libère sa mémoire : à appeler sur un résumé conservé longtemps sans ajout.
+     */
+    public void trimToSize() {
+        compress();
+        bufferValues = null;
+        bufferWeights = null;
+        sortValues = null;
+        sortWeights = null;
+    }
+
+    /**
+     * Format : version (octet), compression, minimum, maximum (doubles), nombre de centroïdes (int),
+     * puis moyenne (double) et poids (int) de chaque centroïde.
+     */
+    public byte[] toBytes() {
+        compress();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(29 + centroidCount * 12);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeDouble(compression);
+            out.writeDouble(min);
+            out.writeDouble(max);
+            out.writeInt(centroidCount);
+            for (int i = 0; i < centroidCount; i++) {
+                out.writeDouble(means[i]);
+                out.writeInt(Math.toIntExact(weights[i]));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // Impossible en mémoire
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException Si le format est inconnu ou les données tronquées
+     */
+    public static QuantileSketch fromBytes(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            byte version = buffer.get();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Version de résumé inconnue : " + version);
+            }
+            QuantileSketch sketch = new QuantileSketch(buffer.getDouble());
+            double min = buffer.getDouble();
+            double max = buffer.getDouble();
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / 12) {
+                throw new IllegalArgumentException("Résumé tronqué : " + count + " centroïde(s) annoncé(s)");
+            }
+            sketch.means = new double[count];
+            sketch.weights = new long[count];
+            for (int i = 0; i < count; i++) {
+                sketch.means[i] = buffer.getDouble();
+                sketch.weights[i] = buffer.getInt();
+                sketch.totalWeight += sketch.weights[i];
+            }
+            sketch.centroidCount = count;
+            sketch.min = min;
+            sketch.max = max;
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Résumé tronqué", e);
+        }
+    }
+
+    private void add(double value, long weight) {
+        if (bufferValues == null) {
+            bufferValues = new double[INITIAL_CAPACITY];
+            bufferWeights = new long[INITIAL_CAPACITY];
+        } else if (bufferCount == bufferValues.length) {
+            if (bufferCount >= bufferLimit) {
+                compress();
+            } else {
+                int capacity = Math.min(bufferLimit, bufferCount * 2);
+                bufferValues = Arrays.copyOf(bufferValues, capacity);
+                bufferWeights = Arrays.copyOf(bufferWeights, capacity);
+            }
+        }
+        bufferValues[bufferCount] = value;
+        bufferWeights[bufferCount] = weight;
+        bufferCount++;
+        totalWeight += weight;
+    }
+
+    /**
+     * Fusionne le tampon trié avec les centroïdes : en parcourant les valeurs par ordre croissant,
+     * chacune rejoint le centroïde courant tant que celui-ci ne dépasse pas une unité de k(q).
+     */
+    private void compress() {
+        if (bufferCount == 0) {
+            return;
+        }
+        sortBuffer();
+
+        int total = centroidCount + bufferCount;
+        double[] newMeans = new double[total];
+        long[] newWeights = new long[total];
+        int out = 0;
+
+        double weightSoFar = 0;  // Poids des centroïdes déjà terminés
+        double limit = totalWeight * quantileOfScale(scale(0) + 1);
+        double currentMean = 0;
+        long currentWeight = 0;
+
+        int c = 0;
+        int b = 0;
+        while (c < centroidCount || b < bufferCount) {
+            double mean;
+            long weight;
+            if (b >= bufferCount || (c < centroidCount && means[c] <= bufferValues[b])) {
+                mean = means[c];
+                weight = weights[c++];
+            } else {
+                mean = bufferValues[b];
+                weight = bufferWeights[b++];
+            }
+
+            if (currentWeight == 0) {
+                currentMean = mean;
+                currentWeight = weight;
+            } else if (weightSoFar + currentWeight + weight <= limit) {
+                currentWeight += weight;
+                currentMean += (mean - currentMean) * weight / currentWeight;
+            } else {
+                newMeans[out] = currentMean;
+                newWeights[out++] = currentWeight;
+                weightSoFar += currentWeight;
+                limit = totalWeight * quantileOfScale(scale(weightSoFar / totalWeight) + 1);
+                currentMean = mean;
+                currentWeight = weight;
+            }
+        }
+        newMeans[out] = currentMean;
+        newWeights[out++] = currentWeight;
+
+        means = Arrays.copyOf(newMeans, out);
+        weights = Arrays.copyOf(newWeights, out);
+        centroidCount = out;
+        bufferCount = 0;
+    }
+
+    /**
+     * Trie le tampon par valeur, chaque poids suivant sa valeur. Tri fusion sur les deux tableaux :
+     * les centroïdes ajoutés par merge() forment des suites déjà triées, qui ne sont pas retriées.
+     */
+    private void sortBuffer() {
+        if (sortValues == null || sortValues.length < bufferCount) {
+            sortValues = new double[bufferValues.length];
+            sortWeights = new long[bufferValues.length];
+        }
+        sort(bufferValues, bufferWeights, sortValues, sortWeights, 0, bufferCount);
+    }
+
+    /**
+     * Trie values[from, to) en utilisant tmp comme espace de travail.
+     */
+    private static void sort(double[] values, long[] weights, double[] tmpValues, long[] tmpWeights,
+                             int from, int to) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                double value = values[i];
+                long weight = weights[i];
+                int j = i - 1;
+                while (j >= from && values[j] > value) {
+                    values[j + 1] = values[j];
+                    weights[j + 1] = weights[j];
+                    j--;
+                }
+                values[j + 1] = value;
+                weights[j + 1] = weight;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(values, weights, tmpValues, tmpWeights, from, middle);
+        sort(values, weights, tmpValues, tmpWeights, middle, to);
+        if (values[middle - 1] <= values[middle]) {
+            return;  // Les deux moitiés sont déjà dans l'ordre
+        }
+        System.arraycopy(values, from, tmpValues, from, middle - from);
+        System.arraycopy(weights, from, tmpWeights, from, middle - from);
+        int i = from;
+        int j = middle;
+        int k = from;
+        while (i < middle && j < to) {
+            if (tmpValues[i] <= values[j]) {
+                values[k] = tmpValues[i];
+                weights[k++] = tmpWeights[i++];
+            } else {
+                values[k] = values[j];
+                weights[k++] = weights[j++];
+            }
+        }
+        while (i < middle) {
+            values[k] = tmpValues[i];
+            weights[k++] = tmpWeights[i++];
+        }
+    }
+
+    /**
+     * Fonction d'échelle k(q), de -compression/4 à compression/4.
+     */
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    /**
+     * Réciproque de scale(), bornée à 1.
+     */
+    private double quantileOfScale(double k) {
+        if (k >= compression / 4) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+}
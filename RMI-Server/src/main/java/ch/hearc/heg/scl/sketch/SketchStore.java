@@ -0,0 +1,333 @@
+package ch.hearc.heg.scl.sketch;
+
+import ch.hearc.heg.scl.dao.WeatherSketchDAO;
+import ch.hearc.heg.scl.logging.Logger;
+import ch.hearc.heg.scl.model.AlertRule;
+import ch.hearc.heg.scl.model.WeatherData;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * Résumés de distribution (QuantileSketch) par station, par jour et par grandeur, alimentés à
+ * chaque mesure enregistrée et écrits en différé dans WEATHER_SKETCH.
+ *
+ * En mémoire, un résumé est complet (il inclut la version en base) dès qu'il a été lu en base ;
+ * avant cela il ne contient que les mesures reçues depuis le démarrage. flush() complète les
+ * résumés modifiés (une lecture par station et par jour, la première fois), puis les réécrit
+ * en un lot. Une panne entre deux flush() perd au plus les mesures de l'intervalle dans les
+ * résumés (jamais dans WEATHER_DATA).
+ *
+ * Les résumés non modifiés sont gardés au plus maxEntries, les moins récemment utilisés étant
+ * oubliés en premier (après chaque flush(), jamais sur le chemin d'enregistrement) : une requête
+ * sur des jours en mémoire ne touche pas la base.
+ *
+ * Chaque résumé en base n'a qu'un écrivain, le shard propriétaire de sa station (owns) : flush()
+ * remplace la ligne par la version en mémoire, qui inclut la version en base lue une fois. Les
+ * mesures des autres stations sont ignorées par record(), et leurs résumés relus en base à
+ * chaque requête.
+ */
+public class SketchStore {
+
+    private static final Logger LOG = Logger.getLogger(SketchStore.class);
+
+    /**
+     * Clé d'un résumé.
+     */
+    private record Key(int stationId, LocalDate day, AlertRule.Metric metric) {
+    }
+
+    /**
+     * Résumé en mémoire, protégé par son propre verrou.
+     */
+    private static final class Entry {
+        QuantileSketch sketch;
+        boolean loaded;  // Le résumé inclut la version en base
+        boolean dirty;   // Des mesures ne sont pas encore en base
+
+        Entry(QuantileSketch sketch) {
+            this.sketch = sketch;
+        }
+    }
+
+    private final WeatherSketchDAO sketchDAO;
+    private final double compression;
+    private final int maxEntries;
+    private final IntPredicate owns;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);  // Sous son verrou
+    private final Set<Key> dirtyKeys = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong flushedCount = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+
+    /**
+     * @param sketchDAO DAO des résumés (lecture sur le primaire : les résumés lus sont complétés puis réécrits)
+     * @param compression Précision des résumés
+     * @param maxEntries Nombre de résumés non modifiés gardés en mémoire
+     * @param owns Vrai pour les stations dont ce serveur enregistre les mesures
+     */
+    public SketchStore(WeatherSketchDAO sketchDAO, double compression, int maxEntries, IntPredicate owns) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Le nombre de résumés en mémoire doit être positif");
+        }
+        this.sketchDAO = sketchDAO;
+        this.compression = compression;
+        this.maxEntries = maxEntries;
+        this.owns = owns;
+        new QuantileSketch(compression);  // Valide la compression dès la création
+    }
+
+    /**
+     * Ajoute une mesure enregistrée aux résumés de son jour (une valeur par grandeur).
+     * Sans effet pour une station d'un autre shard.
+     */
+    public void record(WeatherData weatherData) {
+        if (weatherData.getTimestamp() == null || weatherData.getStationId() == null
+                || !owns.test(weatherData.getStationId())) {
+            return;
+        }
+        LocalDate day = weatherData.getTimestamp().toLocalDate();
+        synchronized (entries) {
+            for (AlertRule.Metric metric : AlertRule.Metric.values()) {
+                Key key = new Key(weatherData.getStationId(), day, metric);
+                Entry entry = entries.computeIfAbsent(key, k -> new Entry(new QuantileSketch(compression)));
+                synchronized (entry) {
+                    entry.sketch.add(metric.of(weatherData));
+                    entry.dirty = true;
+                }
+                dirtyKeys.add(key);
+            }
+        }
+    }
+
+    /**
+     * Fusionne les résumés d'une grandeur pour des stations et des jours.
+     *
+     * @param stationIds Stations
+     * @param metric Grandeur
+     * @param from Premier jour (inclus)
+     * @param to Dernier jour (exclu)
+     * @return Un nouveau résumé, propriété de l'appelant
+     */
+    public QuantileSketch merged(Collection<Integer> stationIds, AlertRule.Metric metric, LocalDate from,
+                                 LocalDate to) throws SQLException {
+        QuantileSketch result = new QuantileSketch(compression);
+        Set<Key> missing = new HashSet<>();
+        Set<Integer> missingStations = new HashSet<>();
+
+        for (int stationId : stationIds) {
+            for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+                Key key = new Key(stationId, day, metric);
+                Entry entry;
+                synchronized (entries) {
+                    entry = entries.get(key);
+                }
+                if (entry != null) {
+                    synchronized (entry) {
+                        if (entry.loaded) {
+                            result.merge(entry.sketch);
+                            continue;
+                        }
+                    }
+                }
+                missing.add(key);
+                missingStations.add(stationId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<Key, QuantileSketch> stored = new HashMap<>();
+            for (WeatherSketchDAO.StoredSketch row : sketchDAO.findSketches(missingStations, metric.name(),
+                    from.atStartOfDay(), to.atStartOfDay())) {
+                Key key = new Key(row.stationId(), row.bucketStart().toLocalDate(), metric);
+                if (missing.contains(key)) {
+                    stored.put(key, QuantileSketch.fromBytes(row.sketch()));
+                }
+            }
+            for (Key key : missing) {
+                QuantileSketch sketch = stored.get(key);
+                if (owns.test(key.stationId())) {
+                    install(key, sketch, result);
+                } else if (sketch != null) {
+                    result.merge(sketch);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Complète un résumé en mémoire avec sa version en base (null si absente), puis l'ajoute à result.
+     */
+    private void install(Key key, QuantileSketch stored, QuantileSketch result) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.computeIfAbsent(key, k -> new Entry(new QuantileSketch(compression)));
+            evictClean();
+        }
+        synchronized (entry) {
+            complete(entry, stored);
+            result.merge(entry.sketch);
+        }
+    }
+
+    /**
+     * Ajoute la version en base à un résumé qui ne contient que les mesures récentes. Sous le verrou de l'entrée.
+     */
+    private static void complete(Entry entry, QuantileSketch stored) {
+        if (entry.loaded) {
+            return;
+        }
+        if (stored != null) {
+            stored.merge(entry.sketch);
+            entry.sketch = stored;
+        }
+        entry.sketch.trimToSize();
+        entry.loaded = true;
+    }
+
+    /**
+     * Écrit en base les résumés modifiés depuis le dernier appel. En cas d'erreur, ils restent
+     * à écrire au prochain appel. Un seul appel à la fois : une version plus ancienne d'un
+     * résumé ne peut pas être écrite après une plus récente.
+     *
+     * @return Le nombre de résumés écrits
+     */
+    public synchronized int flush() {
+        List<Key> keys = new ArrayList<>(dirtyKeys);
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        keys.forEach(dirtyKeys::remove);
+
+        List<WeatherSketchDAO.StoredSketch> updates = new ArrayList<>(keys.size());
+        List<Entry> written = new ArrayList<>(keys.size());
+        try {
+            // Lecture des versions en base des résumés jamais lus (une requête par station et par jour)
+            Map<Key, Entry> pending = new HashMap<>();
+            Set<Key> toLoad = new HashSet<>();
+            synchronized (entries) {
+                for (Key key : keys) {
+                    Entry entry = entries.get(key);
+                    if (entry != null) {
+                        pending.put(key, entry);
+                    }
+                }
+            }
+            for (Map.Entry<Key, Entry> item : pending.entrySet()) {
+                synchronized (item.getValue()) {
+                    if (!item.getValue().loaded) {
+                        toLoad.add(new Key(item.getKey().stationId(), item.getKey().day(), null));
+                    }
+                }
+            }
+            for (Key stationDay : toLoad) {
+                Map<AlertRule.Metric, QuantileSketch> stored = new HashMap<>();
+                for (WeatherSketchDAO.StoredSketch row : sketchDAO.findStationDay(stationDay.stationId(),
+                        stationDay.day().atStartOfDay())) {
+                    stored.put(AlertRule.Metric.valueOf(row.metric()), QuantileSketch.fromBytes(row.sketch()));
+                }
+                for (AlertRule.Metric metric : AlertRule.Metric.values()) {
+                    Entry entry = pending.get(new Key(stationDay.stationId(), stationDay.day(), metric));
+                    if (entry != null) {
+                        synchronized (entry) {
+                            complete(entry, stored.get(metric));
+                        }
+                    }
+                }
+            }
+
+            for (Map.Entry<Key, Entry> item : pending.entrySet()) {
+                Key key = item.getKey();
+                Entry entry = item.getValue();
+                synchronized (entry) {
+                    if (entry.dirty && entry.loaded) {
+                        updates.add(new WeatherSketchDAO.StoredSketch(key.stationId(), key.day().atStartOfDay(),
+                                key.metric().name(), entry.sketch.count(), entry.sketch.toBytes()));
+                        entry.dirty = false;
+                        written.add(entry);
+                    }
+                }
+            }
+            if (!updates.isEmpty()) {
+                sketchDAO.saveAll(updates);
+            }
+
+        } catch (SQLException | RuntimeException e) {
+            for (Entry entry : written) {
+                synchronized (entry) {
+                    entry.dirty = true;
+                }
+            }
+            dirtyKeys.addAll(keys);
+            flushFailures.incrementAndGet();
+            LOG.warn("Échec de l'écriture des résumés de distribution : {}", e.getMessage());
+            return 0;
+        }
+
+        flushedCount.addAndGet(updates.size());
+        synchronized (entries) {
+            evictClean();
+        }
+        return updates.size();
+    }
+
+    /**
+     * Oublie les résumés non modifiés les moins récemment utilisés au-delà de maxEntries.
+     * Sous le verrou de entries.
+     */
+    private void evictClean() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            synchronized (entry) {
+                if (!entry.dirty) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de résumés en mémoire
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return Le nombre de résumés en attente d'écriture
+     */
+    public int dirtyCount() {
+        return dirtyKeys.size();
+    }
+
+    /**
+     * @return Le nombre de résumés écrits en base
+     */
+    public long getFlushedCount() {
+        return flushedCount.get();
+    }
+
+    /**
+     * @return Le nombre d'écritures en échec
+     */
+    public long getFlushFailureCount() {
+        return flushFailures.get();
+    }
+}
@@ -0,0 +1,151 @@
+package ch.hearc.heg.scl.sync;
+
+import ch.hearc.heg.scl.model.WeatherData;
+import ch.hearc.heg.scl.model.WeatherStation;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Journal en mémoire des modifications de stations et des nouvelles mesures.
+ *
+ * Chaque modification reçoit une version strictement croissante. La version suit
+ * l'horloge murale en microsecondes (max(dernière + 1, maintenant)) : elle reste donc
+ * croissante après un redémarrage du serveur et comparable d'un processus à l'autre.
+ *
+ * Le journal est borné : une version plus ancienne que la plus vieille entrée conservée
+ * (ou antérieure au démarrage) ne peut plus être servie et impose une resynchronisation complète.
+ */
+public class ChangeTracker {
+
+    private static final int DEFAULT_CAPACITY = 10_000;
+
+    private final Change[] ring;
+    private long count = 0;          // Nombre total de modifications enregistrées
+    private long lastVersion;        // Dernière version attribuée ou communiquée
+    private long floorVersion;       // Toutes les modifications > floorVersion sont conservées
+
+    public ChangeTracker() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Nombre maximal de modifications conservées
+     */
+    public ChangeTracker(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacité du journal doit être positive");
+        }
+        this.ring = new Change[capacity];
+        this.lastVersion = nowMicros();
+        this.floorVersion = lastVersion;
+    }
+
+    /**
+     * Enregistre une station nouvelle ou modifiée.
+     *
+     * @param station La station (ses données météo ne sont pas conservées)
+     * @return La version attribuée
+     */
+    public synchronized long recordStation(WeatherStation station) {
+        WeatherStation copy = new WeatherStation(station.getId(), station.getOpenWeatherMapId(),
+                station.getName(), station.getCountry(), station.getLatitude(), station.getLongitude(),
+                station.getLastUpdated());
+        return append(copy, null);
+    }
+
+    /**
+     * Enregistre une nouvelle mesure.
+     *
+     * @param weatherData La mesure persistée
+     * @return La version attribuée
+     */
+    public synchronized long recordReading(WeatherData weatherData) {
+        return append(null, weatherData);
+    }
+
+    /**
+     * Retourne la version courante. Toute modification future aura une version supérieure.
+     */
+    public synchronized long currentVersion() {
+        lastVersion = Math.max(lastVersion, nowMicros());
+        return lastVersion;
+    }
+
+    /**
+     * Retourne les modifications postérieures à une version.
+     *
+     * @param version Dernière version connue du client
+     * @return Les modifications, ou null si la version n'est plus disponible
+     *         (resynchronisation complète nécessaire)
+     */
+    public synchronized ChangeLog changesSince(long version) {
+        long current = currentVersion();
+        if (version < floorVersion || version > current) {
+            return null;
+        }
+
+        // Dernière version d'une station seulement, toutes les nouvelles mesures
+        Map<Integer, WeatherStation> stations = new LinkedHashMap<>();
+        List<WeatherData> readings = new ArrayList<>();
+
+        for (long i = firstIndexAfter(version); i < count; i++) {
+            Change change = ring[(int) (i % ring.length)];
+            if (change.station() != null) {
+                stations.remove(change.station().getId());
+                stations.put(change.station().getId(), change.station());
+            } else {
+                readings.add(change.reading());
+            }
+        }
+        return new ChangeLog(current, new ArrayList<>(stations.values()), readings);
+    }
+
+    private long append(WeatherStation station, WeatherData reading) {
+        long version = Math.max(lastVersion + 1, nowMicros());
+        lastVersion = version;
+
+        int slot = (int) (count % ring.length);
+        if (count >= ring.length) {
+            // L'entrée écrasée n'est plus disponible
+            floorVersion = ring[slot].version();
+        }
+        ring[slot] = new Change(version, station, reading);
+        count++;
+        return version;
+    }
+
+    /**
+     * Recherche dichotomique de la première entrée conservée de version > version.
+     */
+    private long firstIndexAfter(long version) {
+        long low = Math.max(0, count - ring.length);
+        long high = count;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (ring[(int) (mid % ring.length)].version() <= version) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long nowMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+    /**
+     * Modifications retournées par changesSince().
+     */
+    public record ChangeLog(long version, List<WeatherStation> stations, List<WeatherData> readings) {
+    }
+
+    private record Change(long version, WeatherStation station, WeatherData reading) {
+    }
+}
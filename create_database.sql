@@ -4,6 +4,9 @@
 -- ========================================
 
 -- Suppression des tables si elles existent (pour tests)
+DROP TABLE WEATHER_ROLLUP_HOUR CASCADE CONSTRAINTS;
+DROP TABLE WEATHER_ROLLUP_DAY CASCADE CONSTRAINTS;
+DROP TABLE WEATHER_SKETCH CASCADE CONSTRAINTS;
 DROP TABLE WEATHER_DATA CASCADE CONSTRAINTS;
 DROP TABLE WEATHER_STATION CASCADE CONSTRAINTS;
 DROP SEQUENCE WEATHER_STATION_SEQ;
@@ -42,6 +45,9 @@ CREATE TABLE WEATHER_DATA (
                               ICON            VARCHAR2(10),
                               WIND_SPEED      NUMBER(5,2),
                               TIMESTAMP       TIMESTAMP       NOT NULL,
+                              -- Fin de la période où la mesure est restée inchangée (NULL : mesure ponctuelle)
+                              -- Base existante : ALTER TABLE WEATHER_DATA ADD (VALID_UNTIL TIMESTAMP);
+                              VALID_UNTIL     TIMESTAMP,
 
                               CONSTRAINT FK_WEATHER_STATION
                                   FOREIGN KEY (STATION_ID)
@@ -56,4 +62,85 @@ CREATE SEQUENCE WEATHER_DATA_SEQ
     NOCYCLE;
 
 CREATE INDEX IDX_WEATHER_DATA_STATION ON WEATHER_DATA(STATION_ID);
-CREATE INDEX IDX_WEATHER_DATA_TIMESTAMP ON WEATHER_DATA(TIMESTAMP);
\ No newline at end of file
+CREATE INDEX IDX_WEATHER_DATA_TIMESTAMP ON WEATHER_DATA(TIMESTAMP);
+
+-- ========================================
+-- Table WEATHER_ROLLUP_HOUR
+-- Résumé des mesures par station et par heure, tenu à jour à chaque insertion
+-- (moyenne = somme / nombre de mesures)
+-- ========================================
+CREATE TABLE WEATHER_ROLLUP_HOUR (
+                              STATION_ID      NUMBER(10)      NOT NULL,
+                              BUCKET_START    TIMESTAMP       NOT NULL,
+                              READING_COUNT   NUMBER(10)      NOT NULL,
+                              TEMPERATURE_MIN NUMBER(5,2)     NOT NULL,
+                              TEMPERATURE_MAX NUMBER(5,2)     NOT NULL,
+                              TEMPERATURE_SUM NUMBER          NOT NULL,
+                              HUMIDITY_MIN    NUMBER(3)       NOT NULL,
+                              HUMIDITY_MAX    NUMBER(3)       NOT NULL,
+                              HUMIDITY_SUM    NUMBER          NOT NULL,
+                              PRESSURE_MIN    NUMBER(5)       NOT NULL,
+                              PRESSURE_MAX    NUMBER(5)       NOT NULL,
+                              PRESSURE_SUM    NUMBER          NOT NULL,
+                              WIND_SPEED_MIN  NUMBER(5,2)     NOT NULL,
+                              WIND_SPEED_MAX  NUMBER(5,2)     NOT NULL,
+                              WIND_SPEED_SUM  NUMBER          NOT NULL,
+
+                              CONSTRAINT PK_WEATHER_ROLLUP_HOUR PRIMARY KEY (STATION_ID, BUCKET_START),
+                              CONSTRAINT FK_WEATHER_ROLLUP_HOUR_STATION
+                                  FOREIGN KEY (STATION_ID)
+                                      REFERENCES WEATHER_STATION(ID)
+                                          ON DELETE CASCADE
+);
+
+-- ========================================
+-- Table WEATHER_ROLLUP_DAY
+-- Résumé des mesures par station et par jour, tenu à jour à chaque insertion
+-- (moyenne = somme / nombre de mesures)
+-- ========================================
+CREATE TABLE WEATHER_ROLLUP_DAY (
+                              STATION_ID      NUMBER(10)      NOT NULL,
+                              BUCKET_START    TIMESTAMP       NOT NULL,
+                              READING_COUNT   NUMBER(10)      NOT NULL,
+                              TEMPERATURE_MIN NUMBER(5,2)     NOT NULL,
+                              TEMPERATURE_MAX NUMBER(5,2)     NOT NULL,
+                              TEMPERATURE_SUM NUMBER          NOT NULL,
+                              HUMIDITY_MIN    NUMBER(3)       NOT NULL,
+                              HUMIDITY_MAX    NUMBER(3)       NOT NULL,
+                              HUMIDITY_SUM    NUMBER          NOT NULL,
+                              PRESSURE_MIN    NUMBER(5)       NOT NULL,
+                              PRESSURE_MAX    NUMBER(5)       NOT NULL,
+                              PRESSURE_SUM    NUMBER          NOT NULL,
+                              WIND_SPEED_MIN  NUMBER(5,2)     NOT NULL,
+                              WIND_SPEED_MAX  NUMBER(5,2)     NOT NULL,
+                              WIND_SPEED_SUM  NUMBER          NOT NULL,
+
+                              CONSTRAINT PK_WEATHER_ROLLUP_DAY PRIMARY KEY (STATION_ID, BUCKET_START),
+                              CONSTRAINT FK_WEATHER_ROLLUP_DAY_STATION
+                                  FOREIGN KEY (STATION_ID)
+                                      REFERENCES WEATHER_STATION(ID)
+                                          ON DELETE CASCADE
+);
+
+-- Base existante : après création des deux tables, calculer les agrégats de l'historique avec
+-- java ... ch.hearc.heg.scl.Main --backfill-rollups
+
+-- ========================================
+-- Table WEATHER_SKETCH
+-- Résumé de la distribution d'une grandeur (quantiles approchés) par station et par jour,
+-- réécrit périodiquement par le serveur (sketch.flush.seconds)
+-- ========================================
+CREATE TABLE WEATHER_SKETCH (
+                              STATION_ID      NUMBER(10)      NOT NULL,
+                              BUCKET_START    TIMESTAMP       NOT NULL,
+                              METRIC          VARCHAR2(20)    NOT NULL,
+                              READING_COUNT   NUMBER(10)      NOT NULL,
+                              SKETCH          BLOB            NOT NULL,
+                              UPDATED_AT      TIMESTAMP       NOT NULL,
+
+                              CONSTRAINT PK_WEATHER_SKETCH PRIMARY KEY (STATION_ID, BUCKET_START, METRIC),
+                              CONSTRAINT FK_WEATHER_SKETCH_STATION
+                                  FOREIGN KEY (STATION_ID)
+                                      REFERENCES WEATHER_STATION(ID)
+                                          ON DELETE CASCADE
+);